@@ -0,0 +1,62 @@
+package benchmarks;
+
+import manager.InMemoryTaskManager;
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.time.LocalDateTime;
+
+/**
+ * Заполняет менеджер доской заданного размера: boardSize задач, boardSize / 10 эпиков
+ * и по SUBTASKS_PER_EPIC подзадач в каждом эпике. Все задачи и подзадачи стоят в непересекающихся
+ * получасовых слотах, поэтому проверка времени проходит и работает на полном индексе.
+ */
+final class BoardFixture {
+    static final int SUBTASKS_PER_EPIC = 5;
+    static final int DURATION_MINUTES = 30;
+    static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    final int[] taskIds;
+    final int[] epicIds;
+    final int[] subtaskIds;
+    final Subtask[] subtasks;
+    private int nextSlot;
+
+    private BoardFixture(int tasks, int epics) {
+        this.taskIds = new int[tasks];
+        this.epicIds = new int[epics];
+        this.subtaskIds = new int[epics * SUBTASKS_PER_EPIC];
+        this.subtasks = new Subtask[epics * SUBTASKS_PER_EPIC];
+    }
+
+    static BoardFixture fill(InMemoryTaskManager manager, int boardSize) {
+        BoardFixture fixture = new BoardFixture(boardSize, Math.max(1, boardSize / 10));
+        for (int i = 0; i < fixture.taskIds.length; i++) {
+            Task task = new Task("Task" + i, "Descr", Status.NEW, fixture.nextStartTime(), DURATION_MINUTES);
+            manager.createTask(task);
+            fixture.taskIds[i] = task.getId();
+        }
+        for (int i = 0; i < fixture.epicIds.length; i++) {
+            Epic epic = new Epic("Epic" + i, "Descr", null, 0);
+            manager.createEpic(epic);
+            fixture.epicIds[i] = epic.getId();
+            for (int j = 0; j < SUBTASKS_PER_EPIC; j++) {
+                Subtask subtask = new Subtask("Subtask" + i + "." + j, "Descr", Status.values()[j % 3],
+                        fixture.nextStartTime(), DURATION_MINUTES, epic.getId());
+                manager.createSubtask(subtask);
+                fixture.subtaskIds[i * SUBTASKS_PER_EPIC + j] = subtask.getId();
+                fixture.subtasks[i * SUBTASKS_PER_EPIC + j] = subtask;
+            }
+        }
+        return fixture;
+    }
+
+    /**
+     * Следующий свободный слот после всех задач доски.
+     */
+    LocalDateTime nextStartTime() {
+        return START.plusMinutes((long) DURATION_MINUTES * nextSlot++);
+    }
+}
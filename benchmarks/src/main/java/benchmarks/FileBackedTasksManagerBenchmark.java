@@ -0,0 +1,78 @@
+package benchmarks;
+
+import manager.DurabilityPolicy;
+import manager.FileBackedTasksManager;
+import manager.snapshot.SnapshotFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись снимка доски в файл и восстановление менеджера из этого файла в текстовом и двоичном формате.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileBackedTasksManagerBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int boardSize;
+
+    @Param({"CSV", "BINARY"})
+    public SnapshotFormat format;
+
+    private File file;
+    private FileBackedTasksManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("kanban-bench", ".csv");
+        // доска заполняется без записи на диск, снимок пишется один раз в конце
+        FileBackedTasksManager builder = new FileBackedTasksManager(file, Integer.MAX_VALUE,
+                DurabilityPolicy.writeThrough(), format);
+        BoardFixture board = BoardFixture.fill(builder, boardSize);
+        for (int i = 0; i < board.taskIds.length; i += 10) {
+            builder.findTaskById(board.taskIds[i]);
+        }
+        builder.save();
+        builder.close();
+        manager = FileBackedTasksManager.loadFromFile(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+        Files.deleteIfExists(file.toPath());
+        Files.deleteIfExists(new File(file.getPath() + ".journal").toPath());
+    }
+
+    @Benchmark
+    public void save() {
+        manager.save();
+    }
+
+    @Benchmark
+    public FileBackedTasksManager loadFromFile() {
+        FileBackedTasksManager loaded = FileBackedTasksManager.loadFromFile(file);
+        loaded.close();
+        return loaded;
+    }
+}
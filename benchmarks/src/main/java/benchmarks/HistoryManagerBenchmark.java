@@ -0,0 +1,71 @@
+package benchmarks;
+
+import manager.HistoryManager;
+import manager.InMemoryHistoryManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tasks.Status;
+import tasks.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Просмотр задачи и получение истории в InMemoryHistoryManager, в которой уже historySize задач.
+ * Просматриваются задачи из вдвое большего набора, так что часть просмотров перемещает задачу
+ * в конец истории, а часть добавляет новую.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryManagerBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int historySize;
+
+    private HistoryManager historyManager;
+    private Task[] tasks;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        historyManager = new InMemoryHistoryManager();
+        tasks = new Task[historySize * 2];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task("Task" + i, "Descr", Status.NEW, null, 0);
+            tasks[i].setId(i + 1);
+        }
+        for (int i = 0; i < historySize; i++) {
+            historyManager.add(tasks[i]);
+        }
+        random = new SplittableRandom(16);
+    }
+
+    @Benchmark
+    public void add() {
+        historyManager.add(tasks[random.nextInt(tasks.length)]);
+    }
+
+    /**
+     * Копия истории, как ее получает HTTP-обработчик перед сериализацией.
+     */
+    @Benchmark
+    public List<Task> getHistory() {
+        return new ArrayList<>(historyManager.getHistory());
+    }
+}
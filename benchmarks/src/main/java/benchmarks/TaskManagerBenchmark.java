@@ -0,0 +1,103 @@
+package benchmarks;
+
+import manager.InMemoryTaskManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Основные операции InMemoryTaskManager на доске из boardSize задач. Создание измеряется вместе
+ * с удалением созданной задачи, чтобы размер доски не менялся между итерациями.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskManagerBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int boardSize;
+
+    private InMemoryTaskManager manager;
+    private BoardFixture board;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        board = BoardFixture.fill(manager, boardSize);
+        random = new SplittableRandom(16);
+    }
+
+    @Benchmark
+    public void createAndDeleteTask() {
+        Task task = new Task("New", "Descr", Status.NEW, board.nextStartTime(), BoardFixture.DURATION_MINUTES);
+        manager.createTask(task);
+        manager.deleteTaskById(task.getId());
+    }
+
+    @Benchmark
+    public void createAndDeleteSubtask() {
+        int epicId = board.epicIds[random.nextInt(board.epicIds.length)];
+        Subtask subtask = new Subtask("New", "Descr", Status.DONE, board.nextStartTime(),
+                BoardFixture.DURATION_MINUTES, epicId);
+        manager.createSubtask(subtask);
+        manager.deleteSubtaskById(subtask.getId());
+    }
+
+    @Benchmark
+    public Task findTaskById() {
+        return manager.findTaskById(board.taskIds[random.nextInt(board.taskIds.length)]);
+    }
+
+    @Benchmark
+    public Subtask findSubtaskById() {
+        return manager.findSubtaskById(board.subtaskIds[random.nextInt(board.subtaskIds.length)]);
+    }
+
+    @Benchmark
+    public Epic findEpicById() {
+        return manager.findEpicById(board.epicIds[random.nextInt(board.epicIds.length)]);
+    }
+
+    /**
+     * Обновление подзадачи с другим статусом: пересчитываются статус и время эпика.
+     */
+    @Benchmark
+    public void updateSubtask() {
+        int index = random.nextInt(board.subtasks.length);
+        Subtask current = board.subtasks[index];
+        Subtask updated = new Subtask(current.getName(), current.getDescription(),
+                Status.values()[(current.getStatus().ordinal() + 1) % 3], current.getStartTime(),
+                current.getDuration(), current.getEpicId());
+        updated.setId(current.getId());
+        manager.updateSubtask(updated);
+        board.subtasks[index] = updated;
+    }
+
+    @Benchmark
+    public void getPrioritizedTasks(Blackhole blackhole) {
+        for (Task task : manager.getPrioritizedTasks()) {
+            blackhole.consume(task);
+        }
+    }
+}
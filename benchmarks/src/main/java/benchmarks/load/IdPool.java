@@ -0,0 +1,44 @@
+package benchmarks.load;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Набор id сущностей одного типа, которые сейчас есть на сервере. Генератор выбирает из него id
+ * для чтения, обновления и удаления и добавляет в него id успешно созданных сущностей.
+ */
+final class IdPool {
+    private int[] ids = new int[1024];
+    private int size;
+
+    synchronized void add(int id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        ids[size++] = id;
+    }
+
+    /**
+     * Случайный id из набора или -1, если набор пуст.
+     */
+    synchronized int pick(SplittableRandom random) {
+        return size == 0 ? -1 : ids[random.nextInt(size)];
+    }
+
+    /**
+     * Забирает случайный id из набора, чтобы его не удалили дважды, или возвращает -1.
+     */
+    synchronized int take(SplittableRandom random) {
+        if (size == 0) {
+            return -1;
+        }
+        int index = random.nextInt(size);
+        int id = ids[index];
+        ids[index] = ids[--size];
+        return id;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+}
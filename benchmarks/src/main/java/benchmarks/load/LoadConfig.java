@@ -0,0 +1,128 @@
+package benchmarks.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Параметры запуска генератора нагрузки. Параметры задаются в виде --name=value, например
+ * --rate=2000 --duration=30 --mix=GET_TASK:50,POST_TASK:20,GET_HISTORY:30 --out=run.json
+ */
+final class LoadConfig {
+    static final String DEFAULT_MIX = "GET_TASK:30,GET_SUBTASK:10,GET_EPIC:10,GET_TASKS:2,GET_SUBTASKS:2,"
+            + "GET_EPICS:2,POST_TASK:10,UPDATE_TASK:5,DELETE_TASK:5,POST_SUBTASK:5,DELETE_SUBTASK:3,"
+            + "POST_EPIC:1,GET_HISTORY:10,GET_PRIORITIES:5";
+
+    String url = "http://localhost:8080";
+    boolean startServers = true;
+    String serverExecutor = "fixed";
+    int serverThreads = Runtime.getRuntime().availableProcessors() * 2;
+    int serverBacklog = 128;
+    int serverMaxQueueDepth = 1000;
+    int rate = 500;
+    int durationSeconds = 30;
+    int warmupSeconds = 5;
+    int boardTasks = 1000;
+    int boardEpics = 100;
+    int subtasksPerEpic = 5;
+    int sessions = 100;
+    int maxInFlight = 1000;
+    int timeoutMillis = 5000;
+    long seed = 17;
+    String mixDefinition = DEFAULT_MIX;
+    Map<Operation, Integer> mix;
+    String out;
+
+    static LoadConfig parse(String[] args) {
+        LoadConfig config = new LoadConfig();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Неизвестный аргумент: " + arg);
+            }
+            String[] parts = arg.substring(2).split("=", 2);
+            String value = parts.length == 2 ? parts[1] : "true";
+            switch (parts[0]) {
+                case "url":
+                    config.url = value;
+                    break;
+                case "no-servers":
+                    config.startServers = !Boolean.parseBoolean(value);
+                    break;
+                case "server-executor":
+                    config.serverExecutor = value;
+                    break;
+                case "server-threads":
+                    config.serverThreads = Integer.parseInt(value);
+                    break;
+                case "server-backlog":
+                    config.serverBacklog = Integer.parseInt(value);
+                    break;
+                case "server-max-queue":
+                    config.serverMaxQueueDepth = Integer.parseInt(value);
+                    break;
+                case "rate":
+                    config.rate = Integer.parseInt(value);
+                    break;
+                case "duration":
+                    config.durationSeconds = Integer.parseInt(value);
+                    break;
+                case "warmup":
+                    config.warmupSeconds = Integer.parseInt(value);
+                    break;
+                case "tasks":
+                    config.boardTasks = Integer.parseInt(value);
+                    break;
+                case "epics":
+                    config.boardEpics = Integer.parseInt(value);
+                    break;
+                case "subtasks-per-epic":
+                    config.subtasksPerEpic = Integer.parseInt(value);
+                    break;
+                case "sessions":
+                    config.sessions = Integer.parseInt(value);
+                    break;
+                case "max-in-flight":
+                    config.maxInFlight = Integer.parseInt(value);
+                    break;
+                case "timeout-ms":
+                    config.timeoutMillis = Integer.parseInt(value);
+                    break;
+                case "seed":
+                    config.seed = Long.parseLong(value);
+                    break;
+                case "mix":
+                    config.mixDefinition = value;
+                    break;
+                case "out":
+                    config.out = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Неизвестный параметр: " + parts[0]);
+            }
+        }
+        if (config.rate <= 0 || config.durationSeconds <= 0 || config.warmupSeconds < 0
+                || config.sessions <= 0 || config.maxInFlight <= 0 || config.boardEpics <= 0) {
+            throw new IllegalArgumentException("Параметры нагрузки должны быть положительными.");
+        }
+        if (!config.serverExecutor.equals("fixed") && !config.serverExecutor.equals("virtual")) {
+            throw new IllegalArgumentException("Исполнитель сервера должен быть fixed или virtual.");
+        }
+        config.mix = parseMix(config.mixDefinition);
+        return config;
+    }
+
+    private static Map<Operation, Integer> parseMix(String definition) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String entry : definition.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int weight = parts.length == 2 ? Integer.parseInt(parts[1]) : 1;
+            if (weight < 0) {
+                throw new IllegalArgumentException("Вес операции не может быть отрицательным: " + entry);
+            }
+            mix.put(Operation.valueOf(parts[0].trim()), weight);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("В нагрузке нет ни одной операции.");
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,412 @@
+package benchmarks.load;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import controllers.HttpServerOptions;
+import controllers.HttpTaskServer;
+import controllers.KVServer;
+import controllers.ServerExecutors;
+import org.HdrHistogram.Histogram;
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Генератор нагрузки на HttpTaskServer с открытой моделью поступления запросов: запросы уходят
+ * по расписанию с заданной частотой независимо от того, успел ли сервер ответить на предыдущие.
+ * Задержка считается от момента отправки по расписанию, поэтому очередь перед сервером и ожидание
+ * свободного слота (--max-in-flight) входят в задержку (поправка на coordinated omission).
+ * <p>
+ * По умолчанию запускает KVServer и HttpTaskServer в этом же процессе, заполняет доску
+ * и печатает отчет в формате JSON (или пишет его в файл --out).
+ * Сервер читает даты из JSON через рефлексию, поэтому JVM запускается с
+ * --add-opens java.base/java.time=ALL-UNNAMED.
+ */
+public class LoadGenerator {
+    private static final String SESSION_HEADER = "X-Session-Id";
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 1, 0, 0);
+    private static final int DURATION_MINUTES = 30;
+    private static final int WEIGHT_TABLE_SIZE = 1000;
+
+    private final LoadConfig config;
+    private final HttpClient client;
+    private final Gson gson = new Gson();
+    private final IdPool tasks = new IdPool();
+    private final IdPool subtasks = new IdPool();
+    private final IdPool epics = new IdPool();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final AtomicLong nextSlot = new AtomicLong();
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final LongAdder skipped = new LongAdder();
+    private final Operation[] schedule;
+
+    LoadGenerator(LoadConfig config) {
+        this.config = config;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(config.timeoutMillis))
+                .build();
+        for (Operation operation : config.mix.keySet()) {
+            stats.put(operation, new OperationStats());
+        }
+        this.schedule = buildSchedule(config.mix);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadConfig config = LoadConfig.parse(args);
+        KVServer kvServer = null;
+        HttpTaskServer httpTaskServer = null;
+        if (config.startServers) {
+            HttpServerOptions.enableNoDelay();
+            kvServer = new KVServer();
+            kvServer.start();
+            ExecutorService executor = config.serverExecutor.equals("virtual")
+                    ? ServerExecutors.virtualThreadPerRequest("http-task-server")
+                    : ServerExecutors.fixed("http-task-server", config.serverThreads);
+            httpTaskServer = new HttpTaskServer(executor, config.serverBacklog, config.serverMaxQueueDepth);
+            httpTaskServer.start();
+        }
+        try {
+            Map<String, Object> report = new LoadGenerator(config).run();
+            String json = new GsonBuilder().setPrettyPrinting().create().toJson(report);
+            if (config.out == null) {
+                System.out.println(json);
+            } else {
+                Files.writeString(Path.of(config.out), json, StandardCharsets.UTF_8);
+                System.out.println("Отчет записан в " + config.out);
+            }
+        } finally {
+            if (httpTaskServer != null) {
+                httpTaskServer.stop();
+            }
+            if (kvServer != null) {
+                kvServer.stop();
+            }
+        }
+    }
+
+    Map<String, Object> run() throws IOException, InterruptedException {
+        seedBoard();
+        SplittableRandom random = new SplittableRandom(config.seed);
+        Semaphore inFlight = new Semaphore(config.maxInFlight);
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.SECONDS.toNanos(config.warmupSeconds);
+        long end = measureStart + TimeUnit.SECONDS.toNanos(config.durationSeconds);
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / (double) config.rate;
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            if (intended >= end) {
+                break;
+            }
+            waitUntil(intended);
+            Operation operation = schedule[random.nextInt(schedule.length)];
+            PreparedRequest prepared = prepare(operation, random);
+            if (prepared == null) {
+                skipped.increment();
+                continue;
+            }
+            inFlight.acquireUninterruptibly();
+            long sent = System.nanoTime();
+            boolean measured = intended >= measureStart;
+            client.sendAsync(prepared.request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        long completed = System.nanoTime();
+                        inFlight.release();
+                        OperationStats operationStats = stats.get(operation);
+                        if (error == null && response.statusCode() / 100 == 2) {
+                            prepared.onSuccess.run();
+                            if (measured) {
+                                operationStats.recordSuccess(intended, sent, completed);
+                            }
+                            return;
+                        }
+                        prepared.onFailure.run();
+                        if (!measured) {
+                            return;
+                        }
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        if (cause instanceof HttpTimeoutException) {
+                            operationStats.recordTimeout();
+                        } else {
+                            operationStats.recordError();
+                        }
+                    });
+        }
+        // ждем ответы на все отправленные запросы
+        if (!inFlight.tryAcquire(config.maxInFlight, config.timeoutMillis * 2L, TimeUnit.MILLISECONDS)) {
+            System.out.println("Не дождались ответов на часть запросов.");
+        }
+        return buildReport();
+    }
+
+    private void seedBoard() throws IOException, InterruptedException {
+        for (int i = 0; i < config.boardTasks; i++) {
+            Task task = newTask();
+            sendSeed(post("/tasks/task", task));
+            tasks.add(task.getId());
+        }
+        List<Integer> epicIds = new ArrayList<>();
+        for (int i = 0; i < config.boardEpics; i++) {
+            Epic epic = newEpic();
+            sendSeed(post("/tasks/epic", epic));
+            epics.add(epic.getId());
+            epicIds.add(epic.getId());
+        }
+        for (int epicId : epicIds) {
+            for (int i = 0; i < config.subtasksPerEpic; i++) {
+                Subtask subtask = newSubtask(epicId);
+                sendSeed(post("/tasks/subtask", subtask));
+                subtasks.add(subtask.getId());
+            }
+        }
+    }
+
+    private void sendSeed(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Не удалось заполнить доску, код ответа " + response.statusCode());
+        }
+    }
+
+    private PreparedRequest prepare(Operation operation, SplittableRandom random) {
+        HttpRequest.Builder builder;
+        Runnable onSuccess = () -> { };
+        Runnable onFailure = () -> { };
+        switch (operation) {
+            case GET_TASK:
+                builder = getById("/tasks/task", tasks.pick(random));
+                break;
+            case GET_SUBTASK:
+                builder = getById("/tasks/subtask", subtasks.pick(random));
+                break;
+            case GET_EPIC:
+                builder = getById("/tasks/epic", epics.pick(random));
+                break;
+            case GET_TASKS:
+                builder = get("/tasks/task");
+                break;
+            case GET_SUBTASKS:
+                builder = get("/tasks/subtask");
+                break;
+            case GET_EPICS:
+                builder = get("/tasks/epic");
+                break;
+            case GET_HISTORY:
+                builder = get("/tasks/history");
+                break;
+            case GET_PRIORITIES:
+                builder = get("/tasks/priorities");
+                break;
+            case POST_TASK: {
+                Task task = newTask();
+                builder = post("/tasks/task", task);
+                onSuccess = () -> tasks.add(task.getId());
+                break;
+            }
+            case POST_EPIC: {
+                Epic epic = newEpic();
+                builder = post("/tasks/epic", epic);
+                onSuccess = () -> epics.add(epic.getId());
+                break;
+            }
+            case POST_SUBTASK: {
+                int epicId = epics.pick(random);
+                if (epicId < 0) {
+                    return null;
+                }
+                Subtask subtask = newSubtask(epicId);
+                builder = post("/tasks/subtask", subtask);
+                onSuccess = () -> subtasks.add(subtask.getId());
+                break;
+            }
+            case UPDATE_TASK: {
+                // задача на время обновления убирается из набора, чтобы ее не удалили параллельно
+                int id = tasks.take(random);
+                if (id < 0) {
+                    return null;
+                }
+                Task task = newTask();
+                task.setId(id);
+                builder = post("/tasks/task?id=" + id, task);
+                onSuccess = () -> tasks.add(id);
+                onFailure = onSuccess;
+                break;
+            }
+            case DELETE_TASK: {
+                int id = tasks.take(random);
+                if (id < 0) {
+                    return null;
+                }
+                builder = request("/tasks/task?id=" + id).DELETE();
+                onFailure = () -> tasks.add(id);
+                break;
+            }
+            case DELETE_SUBTASK: {
+                int id = subtasks.take(random);
+                if (id < 0) {
+                    return null;
+                }
+                builder = request("/tasks/subtask?id=" + id).DELETE();
+                onFailure = () -> subtasks.add(id);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Неизвестная операция " + operation);
+        }
+        if (builder == null) {
+            return null;
+        }
+        builder.header(SESSION_HEADER, "session-" + random.nextInt(config.sessions));
+        return new PreparedRequest(builder.build(), onSuccess, onFailure);
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(config.url + path))
+                .timeout(Duration.ofMillis(config.timeoutMillis));
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return request(path).GET();
+    }
+
+    private HttpRequest.Builder getById(String path, int id) {
+        return id < 0 ? null : request(path + "?id=" + id).GET();
+    }
+
+    private HttpRequest.Builder post(String path, Task task) {
+        return request(path).POST(HttpRequest.BodyPublishers.ofString(gson.toJson(task)));
+    }
+
+    // у каждой новой задачи свой id и свой получасовой слот, поэтому сервер не отклоняет их по времени
+    private Task newTask() {
+        Task task = new Task("Load task", "Descr", Status.NEW, nextStartTime(), DURATION_MINUTES);
+        task.setId(nextId.incrementAndGet());
+        return task;
+    }
+
+    private Epic newEpic() {
+        Epic epic = new Epic("Load epic", "Descr", null, 0);
+        epic.setId(nextId.incrementAndGet());
+        return epic;
+    }
+
+    private Subtask newSubtask(int epicId) {
+        Subtask subtask = new Subtask("Load subtask", "Descr", Status.IN_PROGRESS, nextStartTime(),
+                DURATION_MINUTES, epicId);
+        subtask.setId(nextId.incrementAndGet());
+        return subtask;
+    }
+
+    private LocalDateTime nextStartTime() {
+        return START.plusMinutes(DURATION_MINUTES * nextSlot.getAndIncrement());
+    }
+
+    private Map<String, Object> buildReport() {
+        Map<String, Object> configReport = new LinkedHashMap<>();
+        configReport.put("url", config.url);
+        if (config.startServers) {
+            configReport.put("serverExecutor", config.serverExecutor);
+            configReport.put("serverThreads", config.serverThreads);
+            configReport.put("serverBacklog", config.serverBacklog);
+            configReport.put("serverMaxQueueDepth", config.serverMaxQueueDepth);
+        }
+        configReport.put("rate", config.rate);
+        configReport.put("durationSeconds", config.durationSeconds);
+        configReport.put("warmupSeconds", config.warmupSeconds);
+        configReport.put("tasks", config.boardTasks);
+        configReport.put("epics", config.boardEpics);
+        configReport.put("subtasksPerEpic", config.subtasksPerEpic);
+        configReport.put("sessions", config.sessions);
+        configReport.put("maxInFlight", config.maxInFlight);
+        configReport.put("timeoutMillis", config.timeoutMillis);
+        configReport.put("seed", config.seed);
+        configReport.put("mix", config.mixDefinition);
+
+        Histogram allCorrected = new Histogram(3);
+        Histogram allUncorrected = new Histogram(3);
+        long errors = 0;
+        long timeouts = 0;
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            OperationStats operationStats = entry.getValue();
+            allCorrected.add(operationStats.getCorrected());
+            allUncorrected.add(operationStats.getUncorrected());
+            errors += operationStats.getErrors();
+            timeouts += operationStats.getTimeouts();
+            operations.put(entry.getKey().name(), operationStats.toReport(config.durationSeconds));
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", allCorrected.getTotalCount());
+        summary.put("errors", errors);
+        summary.put("timeouts", timeouts);
+        summary.put("skipped", skipped.sum());
+        summary.put("throughput", allCorrected.getTotalCount() / (double) config.durationSeconds);
+        summary.put("latencyMicros", OperationStats.percentiles(allCorrected));
+        summary.put("uncorrectedLatencyMicros", OperationStats.percentiles(allUncorrected));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", configReport);
+        report.put("summary", summary);
+        report.put("operations", operations);
+        return report;
+    }
+
+    private static Operation[] buildSchedule(Map<Operation, Integer> mix) {
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        List<Operation> table = new ArrayList<>();
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            long slots = Math.round((double) entry.getValue() * WEIGHT_TABLE_SIZE / totalWeight);
+            for (long i = 0; i < Math.max(entry.getValue() > 0 ? 1 : 0, slots); i++) {
+                table.add(entry.getKey());
+            }
+        }
+        return table.toArray(new Operation[0]);
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static final class PreparedRequest {
+        private final HttpRequest request;
+        private final Runnable onSuccess;
+        private final Runnable onFailure;
+
+        private PreparedRequest(HttpRequest request, Runnable onSuccess, Runnable onFailure) {
+            this.request = request;
+            this.onSuccess = onSuccess;
+            this.onFailure = onFailure;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package benchmarks.load;
+
+/**
+ * Операции, из которых составляется нагрузка. Создание и удаление задают id сущностей сами,
+ * поэтому генератор всегда знает, какие сущности есть на сервере.
+ */
+enum Operation {
+    GET_TASK,
+    GET_TASKS,
+    POST_TASK,
+    UPDATE_TASK,
+    DELETE_TASK,
+    GET_SUBTASK,
+    GET_SUBTASKS,
+    POST_SUBTASK,
+    DELETE_SUBTASK,
+    GET_EPIC,
+    GET_EPICS,
+    POST_EPIC,
+    GET_HISTORY,
+    GET_PRIORITIES
+}
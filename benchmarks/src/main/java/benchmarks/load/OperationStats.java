@@ -0,0 +1,82 @@
+package benchmarks.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Статистика одной операции. Задержка с поправкой на coordinated omission считается от момента,
+ * когда запрос должен был уйти по расписанию, без поправки - от фактической отправки.
+ */
+final class OperationStats {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Histogram corrected = new ConcurrentHistogram(1, HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram uncorrected = new ConcurrentHistogram(1, HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    void recordSuccess(long intendedNanos, long sentNanos, long completedNanos) {
+        corrected.recordValue(toMicros(completedNanos - intendedNanos));
+        uncorrected.recordValue(toMicros(completedNanos - sentNanos));
+    }
+
+    void recordError() {
+        errors.increment();
+    }
+
+    void recordTimeout() {
+        timeouts.increment();
+    }
+
+    long getCount() {
+        return corrected.getTotalCount();
+    }
+
+    Histogram getCorrected() {
+        return corrected;
+    }
+
+    Histogram getUncorrected() {
+        return uncorrected;
+    }
+
+    Map<String, Object> toReport(double seconds) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("count", corrected.getTotalCount());
+        report.put("errors", errors.sum());
+        report.put("timeouts", timeouts.sum());
+        report.put("throughput", corrected.getTotalCount() / seconds);
+        report.put("latencyMicros", percentiles(corrected));
+        report.put("uncorrectedLatencyMicros", percentiles(uncorrected));
+        return report;
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    static Map<String, Object> percentiles(Histogram histogram) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("mean", histogram.getMean());
+        values.put("p50", histogram.getValueAtPercentile(50));
+        values.put("p90", histogram.getValueAtPercentile(90));
+        values.put("p99", histogram.getValueAtPercentile(99));
+        values.put("p99.9", histogram.getValueAtPercentile(99.9));
+        values.put("p99.99", histogram.getValueAtPercentile(99.99));
+        values.put("max", histogram.getMaxValue());
+        return values;
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.min(HIGHEST_TRACKABLE_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+}
@@ -4,17 +4,23 @@ import tasks.Task;
 
 import java.util.Comparator;
 
+/**
+ * Порядок по времени начала, задачи без времени - в конце. При равном времени задачи различаются по id и типу,
+ * иначе TreeSet не находит задачу без времени при удалении и отбрасывает задачи с одинаковым началом.
+ */
 public class TaskStartTimeComparator implements Comparator<Task> {
     @Override
     public int compare(Task task1, Task task2) {
-        if (task1.getStartTime() == null || task2.getStartTime() == null) {
-            return 2;
-        } else if (task1.getStartTime().isBefore(task2.getStartTime())) {
-            return -1;
-        } else if (task1.getStartTime().isAfter(task2.getStartTime())) {
+        if (task1.getStartTime() == null && task2.getStartTime() != null) {
             return 1;
+        } else if (task1.getStartTime() != null && task2.getStartTime() == null) {
+            return -1;
+        } else if (task1.getStartTime() != null && !task1.getStartTime().equals(task2.getStartTime())) {
+            return task1.getStartTime().compareTo(task2.getStartTime());
+        } else if (task1.getId() != task2.getId()) {
+            return Integer.compare(task1.getId(), task2.getId());
         } else {
-            return 0;
+            return task1.getTaskType().compareTo(task2.getTaskType());
         }
     }
 }
@@ -0,0 +1,69 @@
+package controllers;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Исполнитель запросов HttpServer с ограниченной очередью. Пока в очереди пула меньше maxQueueDepth
+ * запросов, запрос передается пулу. Иначе он выполняется сразу в потоке HttpServer с признаком отказа,
+ * и обработчик, проверив isRejected(), отвечает 503 без обращения к менеджеру задач.
+ */
+public class BoundedRequestExecutor implements Executor {
+    private static final ThreadLocal<Boolean> REJECTED = new ThreadLocal<>();
+
+    private final ExecutorService delegate;
+    private final int maxQueueDepth;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    public BoundedRequestExecutor(ExecutorService delegate, int maxQueueDepth) {
+        if (maxQueueDepth <= 0) {
+            throw new IllegalArgumentException("Размер очереди должен быть положительным.");
+        }
+        this.delegate = delegate;
+        this.maxQueueDepth = maxQueueDepth;
+    }
+
+    /**
+     * Возвращает true, если текущий запрос не принят в пул и на него нужно ответить 503.
+     */
+    public static boolean isRejected() {
+        return REJECTED.get() != null;
+    }
+
+    @Override
+    public void execute(Runnable exchange) {
+        if (queueDepth.incrementAndGet() > maxQueueDepth) {
+            queueDepth.decrementAndGet();
+            reject(exchange);
+            return;
+        }
+        try {
+            delegate.execute(() -> {
+                queueDepth.decrementAndGet();
+                exchange.run();
+            });
+        } catch (RejectedExecutionException e) {
+            queueDepth.decrementAndGet();
+            reject(exchange);
+        }
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    private void reject(Runnable exchange) {
+        REJECTED.set(Boolean.TRUE);
+        try {
+            exchange.run();
+        } finally {
+            REJECTED.remove();
+        }
+    }
+}
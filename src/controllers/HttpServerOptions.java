@@ -0,0 +1,22 @@
+package controllers;
+
+/**
+ * Общие настройки встроенного HttpServer. Это системные свойства JVM: они действуют на все HttpServer процесса
+ * и читаются при создании первого из них, поэтому их включает только код запуска (main), а не сами серверы.
+ */
+public final class HttpServerOptions {
+    private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private HttpServerOptions() {
+    }
+
+    /**
+     * Включает TCP_NODELAY: без него встроенный HttpServer задерживает ответы алгоритмом Нейгла примерно на 40 мс.
+     * Значение, заданное явно через -Dsun.net.httpserver.nodelay, не меняется. Вызывать до создания серверов.
+     */
+    public static void enableNoDelay() {
+        if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+            System.setProperty(NO_DELAY_PROPERTY, "true");
+        }
+    }
+}
@@ -2,27 +2,43 @@ package controllers;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import exceptions.TaskManagerException;
 import exceptions.TaskTimeValidationException;
+import manager.HistorySession;
 import manager.Managers;
 import manager.TaskManager;
+import manager.TaskPage;
+import manager.TaskQuery;
 import tasks.Epic;
+import tasks.Status;
 import tasks.Subtask;
 import tasks.Task;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.InetSocketAddress;
 import java.net.URL;
-
-import static jdk.internal.util.xml.XMLStreamWriter.DEFAULT_CHARSET;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 public class HttpTaskServer {
     private static final int PORT = 8080;
+    private static final int DEFAULT_BACKLOG = 128;
+    private static final int DEFAULT_MAX_QUEUE_DEPTH = 1000;
     private final static String HTTP_GET = "GET";
     private final static String HTTP_POST = "POST";
     private final static String HTTP_DELETE = "DELETE";
@@ -32,14 +48,45 @@ public class HttpTaskServer {
     private final static String HTTP_TYPE_HISTORY = "history";
     private final static String HTTP_TYPE_PRIORITIES = "priorities";
     private final static String HTTP_TYPE_ALL_TASKS = "all";
+    private final static String QUERY_ID = "id";
+    private final static String QUERY_SESSION = "session";
+    private final static String QUERY_PRETTY = "pretty";
+    private final static String QUERY_LIMIT = "limit";
+    private final static String QUERY_CURSOR = "cursor";
+    private final static String QUERY_ORDER = "order";
+    private final static String QUERY_STATUS = "status";
+    private final static String QUERY_EPIC_ID = "epicId";
+    private final static String QUERY_FROM = "from";
+    private final static String QUERY_TO = "to";
+    private final static String ORDER_BY_ID = "id";
+    private final static String ORDER_BY_START_TIME = "start";
+    private static final int DEFAULT_PAGE_LIMIT = 100;
+    private final static String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final int RESPONSE_BUFFER_SIZE = 16 * 1024;
+    private final static String SESSION_HEADER = "X-Session-Id";
     private final TaskManager taskManager;
     private final HttpServer httpServer;
+    private final BoundedRequestExecutor executor;
     private final Gson gson;
+    private final Gson prettyGson;
 
     public HttpTaskServer() throws IOException {
-        this.taskManager = Managers.getDefault(new URL("http://localhost:8078"));
-        this.httpServer = HttpServer.create(new InetSocketAddress(PORT), 0);
-        gson = new GsonBuilder()
+        this(ServerExecutors.fixed("http-task-server", Runtime.getRuntime().availableProcessors() * 2),
+                DEFAULT_BACKLOG, DEFAULT_MAX_QUEUE_DEPTH);
+    }
+
+    /**
+     * Запросы обрабатываются в переданном пуле потоков (например, ServerExecutors.fixed или
+     * ServerExecutors.virtualThreadPerRequest). backlog - размер очереди входящих соединений,
+     * на запросы сверх maxQueueDepth ожидающих в пуле сервер отвечает 503. Пул закрывается вместе с сервером.
+     */
+    public HttpTaskServer(ExecutorService executor, int backlog, int maxQueueDepth) throws IOException {
+        this.taskManager = Managers.getDefaultConcurrent(new URL("http://localhost:8078"));
+        this.executor = new BoundedRequestExecutor(executor, maxQueueDepth);
+        this.httpServer = HttpServer.create(new InetSocketAddress(PORT), backlog);
+        httpServer.setExecutor(this.executor);
+        gson = new Gson();
+        prettyGson = new GsonBuilder()
                 .setPrettyPrinting()
                 .create();
         httpServer.createContext("/tasks/task", new TasksHandler());
@@ -58,76 +105,127 @@ public class HttpTaskServer {
     public void stop() {
         System.out.println("Остановка сервера на порту " + PORT);
         httpServer.stop(0);
+        executor.shutdown();
     }
 
   class TasksHandler implements HttpHandler {
       @Override
       public void handle(HttpExchange exchange) throws IOException {
-          OutputStream outputStream = exchange.getResponseBody();
+          if (BoundedRequestExecutor.isRejected()) {
+              exchange.getResponseHeaders().set("Retry-After", "1");
+              exchange.sendResponseHeaders(503, -1);
+              exchange.close();
+              return;
+          }
           InputStream inputStream = exchange.getRequestBody();
           String method = exchange.getRequestMethod();
           String requestTaskType = getRequestTaskType(exchange);
-          String rawQuery = exchange.getRequestURI().getRawQuery();
-          switch (method) {
-              case HTTP_GET:
-                  if (rawQuery == null) {
-                      handleGetAllTasksRequest(requestTaskType, exchange, outputStream);
-                  } else {
-                      int requestTaskId = getRequestTaskId(rawQuery);
-                      handleGetByIdRequest(requestTaskId, requestTaskType, exchange, outputStream);
-                  }
-                  break;
-              case HTTP_POST:
-                  if (rawQuery == null) {
-                      handlePostNewTaskRequest(requestTaskType, exchange, inputStream);
-                  } else {
-                      int requestTaskId = getRequestTaskId(rawQuery);
-                      handlePostUpdatedTaskRequest(requestTaskId, requestTaskType, exchange, inputStream);
-                  }
-                  break;
-              case HTTP_DELETE:
-                  if (rawQuery == null) {
-                      handleDeleteAllTasksRequest(requestTaskType, exchange);
-                  } else {
-                      int requestTaskId = getRequestTaskId(rawQuery);
-                      handleDeleteTaskByIdRequest(requestTaskId, requestTaskType, exchange);
-                  }
-                  break;
-              default:
-                  System.out.println("Запрос не обработан");
+          Map<String, String> queryParameters = getQueryParameters(exchange.getRequestURI().getRawQuery());
+          String requestTaskId = queryParameters.get(QUERY_ID);
+          HistorySession.set(getSession(exchange, queryParameters));
+          String pretty = queryParameters.get(QUERY_PRETTY);
+          if (pretty != null && !pretty.equals("false")) {
+              exchange.setAttribute(QUERY_PRETTY, Boolean.TRUE);
+          }
+          try {
+              switch (method) {
+                  case HTTP_GET:
+                      if (requestTaskId == null) {
+                          handleGetAllTasksRequest(requestTaskType, queryParameters, exchange);
+                      } else {
+                          handleGetByIdRequest(Integer.parseInt(requestTaskId), requestTaskType, exchange);
+                      }
+                      break;
+                  case HTTP_POST:
+                      if (requestTaskId == null) {
+                          handlePostNewTaskRequest(requestTaskType, exchange, inputStream);
+                      } else {
+                          handlePostUpdatedTaskRequest(Integer.parseInt(requestTaskId), requestTaskType, exchange,
+                                  inputStream);
+                      }
+                      break;
+                  case HTTP_DELETE:
+                      if (requestTaskId == null) {
+                          handleDeleteAllTasksRequest(requestTaskType, exchange);
+                      } else {
+                          handleDeleteTaskByIdRequest(Integer.parseInt(requestTaskId), requestTaskType, exchange);
+                      }
+                      break;
+                  default:
+                      System.out.println("Запрос не обработан");
+              }
+          } finally {
+              HistorySession.clear();
           }
-          outputStream.close();
-          inputStream.close();
+          // закрывает и тело запроса, и тело ответа
+          exchange.close();
+      }
+
+      private Map<String, String> getQueryParameters(String rawQuery) {
+          Map<String, String> parameters = new HashMap<>();
+          if (rawQuery == null || rawQuery.isEmpty()) {
+              return parameters;
+          }
+          for (String parameter : rawQuery.split("&")) {
+              String[] parts = parameter.split("=", 2);
+              String value = parts.length == 2 ? URLDecoder.decode(parts[1], StandardCharsets.UTF_8) : "";
+              parameters.put(URLDecoder.decode(parts[0], StandardCharsets.UTF_8), value);
+          }
+          return parameters;
+      }
+
+      // история просмотров ведется отдельно для каждой сессии из заголовка или параметра запроса
+      private String getSession(HttpExchange exchange, Map<String, String> queryParameters) {
+          String session = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+          if (session == null) {
+              session = queryParameters.get(QUERY_SESSION);
+          }
+          return session == null ? HistorySession.DEFAULT_SESSION : session;
       }
 
       private String getRequestTaskType(HttpExchange exchange){
           String[] pathParts = exchange.getRequestURI().getPath().split("/");
           return pathParts[pathParts.length - 1];
       }
-      private int getRequestTaskId(String rawQuery){
-          String[] queryParts = rawQuery.split("=");
-          return Integer.parseInt(queryParts[1]);
-      }
 
       private void handleGetAllTasksRequest(
               String requestTaskType,
-              HttpExchange exchange,
-              OutputStream outputStream) throws IOException {
+              Map<String, String> queryParameters,
+              HttpExchange exchange) throws IOException {
+          TaskQuery query;
+          try {
+              query = getTaskQuery(queryParameters);
+          } catch (IllegalArgumentException | DateTimeException e) {
+              sendBadRequest(exchange, e.getMessage());
+              return;
+          }
           switch (requestTaskType) {
               case HTTP_TYPE_TASK:
-                  httpGetTasks(exchange, outputStream);
+                  if (query == null) {
+                      httpGetTasks(exchange);
+                  } else {
+                      httpGetTasksPage(query, exchange);
+                  }
                   break;
               case HTTP_TYPE_SUBTASK:
-                  httpGetSubtasks(exchange, outputStream);
+                  if (query == null) {
+                      httpGetSubtasks(exchange);
+                  } else {
+                      httpGetSubtasksPage(query, exchange);
+                  }
                   break;
               case HTTP_TYPE_EPIC:
-                  httpGetEpics(exchange, outputStream);
+                  if (query == null) {
+                      httpGetEpics(exchange);
+                  } else {
+                      httpGetEpicsPage(query, exchange);
+                  }
                   break;
               case HTTP_TYPE_HISTORY:
-                  httpGetHistory(exchange, outputStream);
+                  httpGetHistory(exchange);
                   break;
               case HTTP_TYPE_PRIORITIES:
-                  httpGetPriorities(exchange, outputStream);
+                  httpGetPriorities(exchange);
                   break;
               default:
                   String response = "Неизвестный запрос. Проверьте URL.";
@@ -138,20 +236,55 @@ public class HttpTaskServer {
           }
       }
 
+      /**
+       * Запрос страницы по параметрам limit, cursor, order (id или start), status, epicId, from и to.
+       * Без этих параметров возвращается null, и список отдается целиком, как раньше.
+       */
+      private TaskQuery getTaskQuery(Map<String, String> queryParameters) {
+          String limit = queryParameters.get(QUERY_LIMIT);
+          String cursor = queryParameters.get(QUERY_CURSOR);
+          String order = queryParameters.get(QUERY_ORDER);
+          String status = queryParameters.get(QUERY_STATUS);
+          String epicId = queryParameters.get(QUERY_EPIC_ID);
+          String from = queryParameters.get(QUERY_FROM);
+          String to = queryParameters.get(QUERY_TO);
+          if (limit == null && cursor == null && order == null && status == null && epicId == null
+                  && from == null && to == null) {
+              return null;
+          }
+          if (order != null && !order.equals(ORDER_BY_ID) && !order.equals(ORDER_BY_START_TIME)) {
+              throw new IllegalArgumentException("Неизвестный порядок обхода: " + order);
+          }
+          int pageLimit = limit == null ? DEFAULT_PAGE_LIMIT : Integer.parseInt(limit);
+          TaskQuery query = ORDER_BY_START_TIME.equals(order)
+                  ? TaskQuery.byStartTime(pageLimit)
+                  : TaskQuery.byId(pageLimit);
+          if (status != null) {
+              query = query.withStatus(Status.valueOf(status));
+          }
+          if (epicId != null) {
+              query = query.withEpicId(Integer.parseInt(epicId));
+          }
+          if (from != null || to != null) {
+              query = query.withStartTimeBetween(from == null ? null : LocalDateTime.parse(from),
+                      to == null ? null : LocalDateTime.parse(to));
+          }
+          return cursor == null ? query : query.after(cursor);
+      }
+
       private void handleGetByIdRequest(
               int requestTaskId,
               String requestTaskType,
-              HttpExchange exchange,
-              OutputStream outputStream) throws IOException { //("http://localhost:8080/tasks/task/id=1")
+              HttpExchange exchange) throws IOException { //("http://localhost:8080/tasks/task/id=1")
           switch (requestTaskType) {
               case HTTP_TYPE_TASK:
-                  httpGetTaskById(requestTaskId, exchange, outputStream);
+                  httpGetTaskById(requestTaskId, exchange);
                   break;
               case HTTP_TYPE_SUBTASK:
-                  httpGetSubtaskById(requestTaskId, exchange, outputStream);
+                  httpGetSubtaskById(requestTaskId, exchange);
                   break;
               case HTTP_TYPE_EPIC:
-                  httpGetEpicById(requestTaskId, exchange, outputStream);
+                  httpGetEpicById(requestTaskId, exchange);
                   break;
               default:
                   String response = "Неизвестный запрос. Проверьте URL.";
@@ -258,19 +391,13 @@ public class HttpTaskServer {
           }
       }
 
-      private void httpGetPriorities(HttpExchange exchange, OutputStream outputStream) throws IOException {
-          String history = gson.toJson(taskManager.getPrioritizedTasks());
-          exchange.sendResponseHeaders(200, 0);
-          outputStream = exchange.getResponseBody();
-          outputStream.write(history.getBytes(DEFAULT_CHARSET));
+      private void httpGetPriorities(HttpExchange exchange) throws IOException {
+          sendJsonList(exchange, taskManager.getPrioritizedTasks());
       }
 
-      private void httpGetHistory(HttpExchange exchange, OutputStream outputStream) throws IOException {
+      private void httpGetHistory(HttpExchange exchange) throws IOException {
           try {
-              String history = gson.toJson(taskManager.getHistory());
-              exchange.sendResponseHeaders(200, 0);
-              outputStream = exchange.getResponseBody();
-              outputStream.write(history.getBytes(DEFAULT_CHARSET));
+              sendJsonList(exchange, taskManager.getHistory());
           } catch (TaskManagerException e) {
               System.out.println(e.getMessage());
           }
@@ -356,7 +483,7 @@ public class HttpTaskServer {
       }
 
       private void httpPostNewEpic(HttpExchange exchange, InputStream inputStream) throws IOException {
-          String body = new String(inputStream.readAllBytes(), DEFAULT_CHARSET);
+          String body = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
           Epic epic = gson.fromJson(body, Epic.class);
           taskManager.createEpic(epic);
           String response = "Эпик успешно создан";
@@ -368,7 +495,7 @@ public class HttpTaskServer {
 
       private void httpUpdateEpic(int id, HttpExchange exchange, InputStream inputStream) throws IOException {
           try {
-              String body = new String(inputStream.readAllBytes(), DEFAULT_CHARSET);
+              String body = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
               Epic epic = gson.fromJson(body, Epic.class);
               epic.setId(id);
               taskManager.updateEpic(epic);
@@ -384,7 +511,7 @@ public class HttpTaskServer {
 
       private void httpUpdateSubtask(int id, HttpExchange exchange, InputStream inputStream) throws IOException {
           try {
-              String body = new String(inputStream.readAllBytes(), DEFAULT_CHARSET);
+              String body = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
               Subtask subtask = gson.fromJson(body, Subtask.class);
               subtask.setId(id);
               taskManager.updateSubtask(subtask);
@@ -400,7 +527,7 @@ public class HttpTaskServer {
 
       private void httpPostNewSubtask(HttpExchange exchange, InputStream inputStream) throws IOException {
           try {
-              String body = new String(inputStream.readAllBytes(), DEFAULT_CHARSET);
+              String body = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
               Subtask subtask = gson.fromJson(body, Subtask.class);
               taskManager.createSubtask(subtask);
               String response = "Подзадача успешно создана";
@@ -415,7 +542,7 @@ public class HttpTaskServer {
 
       private void httpPostNewTask(HttpExchange exchange, InputStream inputStream) throws IOException {
           try {
-              String body = new String(inputStream.readAllBytes(), DEFAULT_CHARSET);
+              String body = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
               Task task = gson.fromJson(body, Task.class);
               taskManager.createTask(task);
               String response = "Задача успешно создана";
@@ -430,7 +557,7 @@ public class HttpTaskServer {
 
       private void httpUpdateTask(int id, HttpExchange exchange, InputStream inputStream) throws IOException {
           try {
-              String body = new String(inputStream.readAllBytes(), DEFAULT_CHARSET);
+              String body = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
               Task task = gson.fromJson(body, Task.class);
               task.setId(id);
               taskManager.updateTask(task);
@@ -444,57 +571,130 @@ public class HttpTaskServer {
           }
       }
 
-      private void httpGetTasks(HttpExchange exchange, OutputStream outputStream) throws IOException {
-          String jsonTask = gson.toJson(taskManager.getTasks());
-          exchange.sendResponseHeaders(200, 0);
-          outputStream = exchange.getResponseBody();
-          outputStream.write(jsonTask.getBytes(DEFAULT_CHARSET));
+      private void httpGetTasks(HttpExchange exchange) throws IOException {
+          sendJsonList(exchange, taskManager.getTasks());
       }
 
-      private void httpGetSubtasks(HttpExchange exchange, OutputStream outputStream) throws IOException {
-          String jsonTask = gson.toJson(taskManager.getSubtasks());
-          exchange.sendResponseHeaders(200, 0);
-          outputStream.write(jsonTask.getBytes(DEFAULT_CHARSET));
+      private void httpGetSubtasks(HttpExchange exchange) throws IOException {
+          sendJsonList(exchange, taskManager.getSubtasks());
+      }
+
+      private void httpGetTasksPage(TaskQuery query, HttpExchange exchange) throws IOException {
+          try {
+              sendJsonPage(exchange, taskManager.getTasks(query));
+          } catch (TaskManagerException e) {
+              sendBadRequest(exchange, e.getMessage());
+          }
+      }
+
+      private void httpGetSubtasksPage(TaskQuery query, HttpExchange exchange) throws IOException {
+          try {
+              sendJsonPage(exchange, taskManager.getSubtasks(query));
+          } catch (TaskManagerException e) {
+              sendBadRequest(exchange, e.getMessage());
+          }
       }
 
-      private void httpGetTaskById(int id, HttpExchange exchange, OutputStream outputStream) throws IOException {
+      private void httpGetEpicsPage(TaskQuery query, HttpExchange exchange) throws IOException {
           try {
-              String jsonTask = gson.toJson(taskManager.findTaskById(id));
-              exchange.sendResponseHeaders(200, 0);
-              outputStream = exchange.getResponseBody();
-              outputStream.write(jsonTask.getBytes(DEFAULT_CHARSET));
+              sendJsonPage(exchange, taskManager.getEpics(query));
+          } catch (TaskManagerException e) {
+              sendBadRequest(exchange, e.getMessage());
+          }
+      }
+
+      private void httpGetTaskById(int id, HttpExchange exchange) throws IOException {
+          try {
+              sendJson(exchange, taskManager.findTaskById(id));
           } catch (TaskManagerException e) {
               System.out.println(e.getMessage());
           }
       }
 
-      private void httpGetSubtaskById(int id, HttpExchange exchange, OutputStream outputStream) throws IOException {
+      private void httpGetSubtaskById(int id, HttpExchange exchange) throws IOException {
           try {
-              String jsonTask = gson.toJson(taskManager.findSubtaskById(id));
-              exchange.sendResponseHeaders(200, 0);
-              outputStream = exchange.getResponseBody();
-              outputStream.write(jsonTask.getBytes(DEFAULT_CHARSET));
+              sendJson(exchange, taskManager.findSubtaskById(id));
           } catch (TaskManagerException e) {
               System.out.println(e.getMessage());
           }
       }
 
-      private void httpGetEpics(HttpExchange exchange, OutputStream outputStream) throws IOException {
-          String jsonTask = gson.toJson(taskManager.getEpics());
-          exchange.sendResponseHeaders(200, 0);
-          outputStream = exchange.getResponseBody();
-          outputStream.write(jsonTask.getBytes(DEFAULT_CHARSET));
+      private void httpGetEpics(HttpExchange exchange) throws IOException {
+          sendJsonList(exchange, taskManager.getEpics());
       }
 
-      private void httpGetEpicById(int id, HttpExchange exchange, OutputStream outputStream) throws IOException {
-          try{
-              String jsonTask = gson.toJson(taskManager.findEpicById(id));
-              exchange.sendResponseHeaders(200, 0);
-              outputStream = exchange.getResponseBody();
-              outputStream.write(jsonTask.getBytes(DEFAULT_CHARSET));
+      private void httpGetEpicById(int id, HttpExchange exchange) throws IOException {
+          try {
+              sendJson(exchange, taskManager.findEpicById(id));
           } catch (TaskManagerException e) {
               System.out.println(e.getMessage());
           }
       }
+
+      /**
+       * Пишет список сущностей в ответ по одной, не собирая весь JSON в памяти.
+       * Длина ответа заранее неизвестна, поэтому он передается частями (chunked).
+       */
+      private void sendJsonList(HttpExchange exchange, Collection<? extends Task> entities) throws IOException {
+          exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+          exchange.sendResponseHeaders(200, 0);
+          try (JsonWriter writer = newJsonWriter(exchange)) {
+              writer.beginArray();
+              for (Task entity : entities) {
+                  getGson(exchange).toJson(entity, entity.getClass(), writer);
+              }
+              writer.endArray();
+          }
+      }
+
+      /**
+       * Страница отдается объектом {"items": [...], "nextCursor": "..."}, на последней странице nextCursor нет.
+       */
+      private void sendJsonPage(HttpExchange exchange, TaskPage<? extends Task> page) throws IOException {
+          exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+          exchange.sendResponseHeaders(200, 0);
+          try (JsonWriter writer = newJsonWriter(exchange)) {
+              writer.beginObject();
+              writer.name("items");
+              writer.beginArray();
+              for (Task entity : page.getItems()) {
+                  getGson(exchange).toJson(entity, entity.getClass(), writer);
+              }
+              writer.endArray();
+              if (page.hasNext()) {
+                  writer.name("nextCursor").value(page.getNextCursor());
+              }
+              writer.endObject();
+          }
+      }
+
+      private void sendBadRequest(HttpExchange exchange, String message) throws IOException {
+          System.out.println(message);
+          byte[] response = message.getBytes(StandardCharsets.UTF_8);
+          exchange.sendResponseHeaders(400, response.length);
+          try (OutputStream os = exchange.getResponseBody()) {
+              os.write(response);
+          }
+      }
+
+      private void sendJson(HttpExchange exchange, Task entity) throws IOException {
+          exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+          exchange.sendResponseHeaders(200, 0);
+          try (JsonWriter writer = newJsonWriter(exchange)) {
+              getGson(exchange).toJson(entity, entity.getClass(), writer);
+          }
+      }
+
+      private JsonWriter newJsonWriter(HttpExchange exchange) throws IOException {
+          // JsonWriter пишет мелкими кусками, поэтому символы буферизуются до кодирования в UTF-8
+          Writer writer = new BufferedWriter(
+                  new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), RESPONSE_BUFFER_SIZE);
+          return getGson(exchange).newJsonWriter(writer);
+      }
+
+      // форматированный JSON отдается только по запросу с параметром pretty
+      private Gson getGson(HttpExchange exchange) {
+          return exchange.getAttribute(QUERY_PRETTY) != null ? prettyGson : gson;
+      }
   }
 }
@@ -2,26 +2,65 @@ package controllers;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Type;
 import java.net.InetSocketAddress;
-import java.util.HashMap;
+import java.net.URLDecoder;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
+import controllers.storage.KVStore;
+import controllers.storage.LsmKVStore;
+import controllers.storage.StripedKVStore;
 
 public class KVServer {
     public static final int PORT = 8078;
+    /**
+     * Каталог данных сервера. Если свойство задано, данные хранятся на диске в LsmKVStore
+     * и переживают перезапуск, иначе - только в памяти.
+     */
+    public static final String DATA_DIR_PROPERTY = "kv.dataDir";
+    private static final Type BATCH_TYPE = new TypeToken<Map<String, String>>() {}.getType();
     private final String apiToken;
     private final HttpServer server;
-    private final Map<String, String> data = new HashMap<>();
+    private static final int STRIPES = 64;
+    private static final String LEASE_PREFIX = "lease/";
+    private final KVStore data;
+    private final Gson gson = new Gson();
+    private final ExecutorService executor;
 
     public KVServer() throws IOException {
+        this(ServerExecutors.fixed("kv-server", Runtime.getRuntime().availableProcessors() * 2));
+    }
+
+    public KVServer(ExecutorService executor) throws IOException {
+        this(executor, createStore(System.getProperty(DATA_DIR_PROPERTY)));
+    }
+
+    /**
+     * Запросы обрабатываются в переданном пуле потоков, данные хранятся в store.
+     * Пул и хранилище закрываются вместе с сервером.
+     */
+    public KVServer(ExecutorService executor, KVStore store) throws IOException {
         apiToken = generateApiToken();
+        this.executor = executor;
+        this.data = store;
         server = HttpServer.create(new InetSocketAddress("localhost", PORT), 0);
+        server.setExecutor(executor);
         server.createContext("/register", this::register);
         server.createContext("/save", this::save);
         server.createContext("/load", this::load);
+        server.createContext("/save-batch", this::saveBatch);
+        server.createContext("/load-batch", this::loadBatch);
+        server.createContext("/load-prefix", this::loadPrefix);
+        server.createContext("/lease", this::lease);
     }
 
     private void load(HttpExchange h) throws IOException {
@@ -90,6 +129,126 @@ public class KVServer {
         }
     }
 
+    private void saveBatch(HttpExchange h) throws IOException {
+        try {
+            System.out.println("\n/save-batch");
+            if (!hasAuth(h)) {
+                System.out.println("Запрос неавторизован, нужен параметр в query API_TOKEN со значением апи-ключа");
+                h.sendResponseHeaders(403, 0);
+                return;
+            }
+            if ("POST".equals(h.getRequestMethod())) {
+                Map<String, String> values;
+                try {
+                    values = gson.fromJson(readText(h), BATCH_TYPE);
+                } catch (JsonParseException e) {
+                    values = null;
+                }
+                if (values == null || values.isEmpty() || values.containsKey("")) {
+                    System.out.println("Пакет для сохранения пустой или некорректный. Ожидается JSON-объект {key: value}");
+                    h.sendResponseHeaders(400, 0);
+                    return;
+                }
+                // пакет применяется целиком, пустое значение удаляет ключ
+                data.putAll(values);
+                System.out.println("Значения для " + values.size() + " ключей успешно обновлены!");
+                h.sendResponseHeaders(200, 0);
+            } else {
+                System.out.println("/save-batch ждёт POST-запрос, а получил: " + h.getRequestMethod());
+                h.sendResponseHeaders(405, 0);
+            }
+        } finally {
+            h.close();
+        }
+    }
+
+    private void loadBatch(HttpExchange h) throws IOException {
+        try {
+            System.out.println("\n/load-batch");
+            if (!hasAuth(h)) {
+                System.out.println("Запрос неавторизован, нужен параметр в query API_TOKEN со значением апи-ключа");
+                h.sendResponseHeaders(403, 0);
+                return;
+            }
+            if ("GET".equals(h.getRequestMethod())) {
+                String keys = getQueryParameter(h, "keys");
+                if (keys == null || keys.isEmpty()) {
+                    System.out.println("Список ключей пустой. Ключи указываются в query: keys=key1,key2");
+                    h.sendResponseHeaders(400, 0);
+                    return;
+                }
+                Map<String, String> values = data.getAll(Arrays.asList(keys.split(",")));
+                sendText(h, gson.toJson(values));
+            } else {
+                System.out.println("/load-batch ждёт GET-запрос, а получил: " + h.getRequestMethod());
+                h.sendResponseHeaders(405, 0);
+            }
+        } finally {
+            h.close();
+        }
+    }
+
+    private void loadPrefix(HttpExchange h) throws IOException {
+        try {
+            System.out.println("\n/load-prefix");
+            if (!hasAuth(h)) {
+                System.out.println("Запрос неавторизован, нужен параметр в query API_TOKEN со значением апи-ключа");
+                h.sendResponseHeaders(403, 0);
+                return;
+            }
+            if ("GET".equals(h.getRequestMethod())) {
+                String prefixes = getQueryParameter(h, "prefix");
+                if (prefixes == null || prefixes.isEmpty()) {
+                    System.out.println("Префикс пустой. Префиксы указываются в query: prefix=prefix1,prefix2");
+                    h.sendResponseHeaders(400, 0);
+                    return;
+                }
+                Map<String, String> values = data.getByPrefix(Arrays.asList(prefixes.split(",")));
+                sendText(h, gson.toJson(values));
+            } else {
+                System.out.println("/load-prefix ждёт GET-запрос, а получил: " + h.getRequestMethod());
+                h.sendResponseHeaders(405, 0);
+            }
+        } finally {
+            h.close();
+        }
+    }
+
+    private void lease(HttpExchange h) throws IOException {
+        try {
+            System.out.println("\n/lease");
+            if (!hasAuth(h)) {
+                System.out.println("Запрос неавторизован, нужен параметр в query API_TOKEN со значением апи-ключа");
+                h.sendResponseHeaders(403, 0);
+                return;
+            }
+            if ("POST".equals(h.getRequestMethod())) {
+                String key = h.getRequestURI().getPath().substring("/lease/".length());
+                Integer size = getIntQueryParameter(h, "size");
+                Integer minId = getIntQueryParameter(h, "min");
+                if (key.isEmpty() || size == null || size <= 0) {
+                    System.out.println("Для аренды номеров нужны key в пути /lease/{key} и параметр size");
+                    h.sendResponseHeaders(400, 0);
+                    return;
+                }
+                sendText(h, String.valueOf(leaseIds(key, size, minId == null ? 1 : minId)));
+            } else {
+                System.out.println("/lease ждёт POST-запрос, а получил: " + h.getRequestMethod());
+                h.sendResponseHeaders(405, 0);
+            }
+        } finally {
+            h.close();
+        }
+    }
+
+    private synchronized int leaseIds(String key, int size, int minId) {
+        // счетчик хранится вместе с данными, чтобы выданные блоки не повторялись после перезапуска
+        String leased = data.get(LEASE_PREFIX + key);
+        int start = Math.max(leased == null ? 1 : Integer.parseInt(leased), minId);
+        data.put(LEASE_PREFIX + key, String.valueOf(start + size));
+        return start;
+    }
+
     private void register(HttpExchange h) throws IOException {
         try {
             System.out.println("\n/register");
@@ -104,6 +263,30 @@ public class KVServer {
         }
     }
 
+    /**
+     * Запуск сервера: java controllers.KVServer [каталог данных]. Каталог можно задать и свойством kv.dataDir.
+     */
+    public static void main(String[] args) throws IOException {
+        HttpServerOptions.enableNoDelay();
+        String dataDir = args.length > 0 ? args[0] : System.getProperty(DATA_DIR_PROPERTY);
+        KVServer kvServer = new KVServer(
+                ServerExecutors.fixed("kv-server", Runtime.getRuntime().availableProcessors() * 2),
+                createStore(dataDir));
+        Runtime.getRuntime().addShutdownHook(new Thread(kvServer::stop));
+        kvServer.start();
+    }
+
+    /**
+     * Хранилище в каталоге dataDir или в памяти, если каталог не задан.
+     */
+    public static KVStore createStore(String dataDir) {
+        if (dataDir == null || dataDir.isBlank()) {
+            return new StripedKVStore(STRIPES);
+        }
+        System.out.println("Данные KV-сервера хранятся в каталоге " + dataDir);
+        return new LsmKVStore(new File(dataDir));
+    }
+
     public void start() {
         System.out.println("Запускаем сервер на порту " + PORT);
         System.out.println("Открой в браузере http://localhost:" + PORT + "/");
@@ -114,6 +297,8 @@ public class KVServer {
     public void stop() {
         System.out.println("Остановка сервера на порту " + PORT);
         server.stop(0);
+        executor.shutdown();
+        data.close();
     }
 
     private String generateApiToken() {
@@ -125,6 +310,32 @@ public class KVServer {
         return rawQuery != null && (rawQuery.contains("API_TOKEN=" + apiToken) || rawQuery.contains("API_TOKEN=DEBUG"));
     }
 
+    protected String getQueryParameter(HttpExchange h, String name) {
+        String rawQuery = h.getRequestURI().getRawQuery();
+        if (rawQuery == null) {
+            return null;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            String[] parts = parameter.split("=", 2);
+            if (parts.length == 2 && parts[0].equals(name)) {
+                return URLDecoder.decode(parts[1], UTF_8);
+            }
+        }
+        return null;
+    }
+
+    protected Integer getIntQueryParameter(HttpExchange h, String name) {
+        String value = getQueryParameter(h, name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     protected String readText(HttpExchange h) throws IOException {
         return new String(h.getRequestBody().readAllBytes(), UTF_8);
     }
@@ -1,20 +1,31 @@
 package controllers;
 
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
 import java.io.IOException;
+import java.lang.reflect.Type;
 import java.net.URI;
 import java.net.URL;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
 
 public class KVTaskClient {
+    private static final Type BATCH_TYPE = new TypeToken<Map<String, String>>() {}.getType();
     private final URL url;
     private final HttpClient client;
     private final String apiToken;
+    private final Gson gson;
 
     public KVTaskClient(URL url) {
         this.url = url;
         client = HttpClient.newHttpClient();
+        gson = new Gson();
         apiToken = register();
     }
 
@@ -44,6 +55,70 @@ public class KVTaskClient {
         }
     }
 
+    /**
+     * Сохраняет все значения одним запросом. Сервер применяет пакет атомарно,
+     * пустое значение удаляет ключ.
+     */
+    public void putAll(Map<String, String> values) throws IOException, InterruptedException {
+        URI uri = URI.create(url + "/save-batch?API_TOKEN=" + apiToken);
+        final HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.ofString(gson.toJson(values));
+        HttpRequest request = HttpRequest.newBuilder().uri(uri).POST(body).build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Сервер не сохранил пакет значений, код ответа " + response.statusCode());
+        }
+    }
+
+    public Map<String, String> loadAll(Collection<String> keys) {
+        String joinedKeys = URLEncoder.encode(String.join(",", keys), StandardCharsets.UTF_8);
+        URI uri = URI.create(url + "/load-batch?API_TOKEN=" + apiToken + "&keys=" + joinedKeys);
+        HttpRequest request = HttpRequest.newBuilder().uri(uri).GET().build();
+        HttpResponse<String> response = null;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException | InterruptedException e) {
+            System.out.println("Ошибка в методе loadAll()" + e.getMessage());
+        }
+        if (response == null || response.statusCode() != 200) {
+            throw new RuntimeException("Не удалось загрузить значения в методе loadAll()");
+        }
+        return gson.fromJson(response.body(), BATCH_TYPE);
+    }
+
+    /**
+     * Загружает одним запросом все значения, ключи которых начинаются с одного из префиксов.
+     */
+    public Map<String, String> loadByPrefix(Collection<String> prefixes) {
+        String joinedPrefixes = URLEncoder.encode(String.join(",", prefixes), StandardCharsets.UTF_8);
+        URI uri = URI.create(url + "/load-prefix?API_TOKEN=" + apiToken + "&prefix=" + joinedPrefixes);
+        HttpRequest request = HttpRequest.newBuilder().uri(uri).GET().build();
+        HttpResponse<String> response = null;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException | InterruptedException e) {
+            System.out.println("Ошибка в методе loadByPrefix()" + e.getMessage());
+        }
+        if (response == null || response.statusCode() != 200) {
+            throw new RuntimeException("Не удалось загрузить значения в методе loadByPrefix()");
+        }
+        return gson.fromJson(response.body(), BATCH_TYPE);
+    }
+
+    public int lease(String key, int size, int minId) {
+        URI uri = URI.create(url + "/lease/" + key + "?API_TOKEN=" + apiToken + "&size=" + size + "&min=" + minId);
+        HttpRequest request = HttpRequest.newBuilder().uri(uri).POST(HttpRequest.BodyPublishers.noBody()).build();
+        HttpResponse<String> response = null;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException | InterruptedException e) {
+            System.out.println("Ошибка в методе lease()" + e.getMessage());
+        }
+        if (response == null || response.statusCode() != 200) {
+            throw new RuntimeException("Не удалось получить диапазон номеров в методе lease()");
+        }
+        return Integer.parseInt(response.body());
+    }
+
     public String load(String key) {
         URI uri = URI.create(url + "/load/" + key + "?API_TOKEN=" + apiToken);
         HttpRequest request = HttpRequest.newBuilder().uri(uri).header("Accept", "text/html").GET().build();
@@ -0,0 +1,46 @@
+package controllers;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пулы потоков для обработки запросов HTTP-серверов.
+ */
+public final class ServerExecutors {
+
+    private ServerExecutors() {
+    }
+
+    public static ExecutorService fixed(String name, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Количество потоков должно быть положительным.");
+        }
+        return Executors.newFixedThreadPool(threads, namedDaemonThreads(name));
+    }
+
+    /**
+     * Отдельный виртуальный поток на каждый запрос. На JDK без виртуальных потоков
+     * используется кэширующий пул обычных потоков.
+     */
+    public static ExecutorService virtualThreadPerRequest(String name) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Виртуальные потоки недоступны, используется кэширующий пул потоков.");
+            return Executors.newCachedThreadPool(namedDaemonThreads(name));
+        }
+    }
+
+    private static ThreadFactory namedDaemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
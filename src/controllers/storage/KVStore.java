@@ -0,0 +1,26 @@
+package controllers.storage;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Хранилище данных KVServer. Пакетные операции атомарны: другой запрос видит пакет целиком или не видит вовсе.
+ */
+public interface KVStore extends AutoCloseable {
+
+    String get(String key);
+
+    void put(String key, String value);
+
+    /**
+     * Применяет пакет атомарно: пустое значение удаляет ключ.
+     */
+    void putAll(Map<String, String> batch);
+
+    Map<String, String> getAll(Collection<String> keys);
+
+    Map<String, String> getByPrefix(Collection<String> prefixes);
+
+    @Override
+    void close();
+}
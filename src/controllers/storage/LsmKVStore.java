@@ -0,0 +1,577 @@
+package controllers.storage;
+
+import exceptions.KVStoreException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Хранилище KVServer на диске в виде LSM-дерева.
+ * <p>
+ * Пакет записей дописывается в журнал (wal-N.log) и применяется к таблице в памяти. Когда таблица
+ * превышает memtableLimitBytes, она замораживается, запись продолжается в новый журнал, а фоновый
+ * поток сохраняет замороженную таблицу в отсортированный сегмент (segment-N.seg) и удаляет ее журнал.
+ * Когда сегментов становится больше maxSegments, фоновый поток сливает их в один, отбрасывая
+ * перезаписанные значения и удаленные ключи.
+ * <p>
+ * При открытии индексы сегментов загружаются сразу, а журналы сначала быстро просматриваются
+ * для сбора ключей и затем воспроизводятся в фоне. Чтение ключа, которого нет в журналах,
+ * не ждет окончания воспроизведения.
+ */
+public class LsmKVStore implements KVStore {
+    public static final long DEFAULT_MEMTABLE_LIMIT_BYTES = 4L * 1024 * 1024;
+    public static final int DEFAULT_MAX_SEGMENTS = 4;
+    private static final String WAL_PREFIX = "wal-";
+    private static final String WAL_SUFFIX = ".log";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final File directory;
+    private final long memtableLimitBytes;
+    private final int maxSegments;
+    private final boolean syncWrites;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ExecutorService background;
+    private final CountDownLatch recovered = new CountDownLatch(1);
+    private final LinkedList<Memtable> frozen = new LinkedList<>();
+    private List<Segment> segments;
+    private Memtable active;
+    private WriteAheadLog wal;
+    private long nextSequence;
+    private volatile Set<String> recoveringKeys;
+    private boolean closed;
+
+    public LsmKVStore(File directory) {
+        this(directory, DEFAULT_MEMTABLE_LIMIT_BYTES, DEFAULT_MAX_SEGMENTS, true);
+    }
+
+    /**
+     * @param syncWrites выполнять fsync журнала после каждого пакета; без него пакет, подтвержденный
+     *                   клиенту, может потеряться при сбое питания, но не при падении процесса.
+     */
+    public LsmKVStore(File directory, long memtableLimitBytes, int maxSegments, boolean syncWrites) {
+        if (memtableLimitBytes <= 0 || maxSegments <= 0) {
+            throw new IllegalArgumentException("Размер таблицы и количество сегментов должны быть положительными.");
+        }
+        this.directory = directory;
+        this.memtableLimitBytes = memtableLimitBytes;
+        this.maxSegments = maxSegments;
+        this.syncWrites = syncWrites;
+        this.background = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lsm-store-" + directory.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            open();
+        } catch (IOException e) {
+            background.shutdownNow();
+            throw new KVStoreException("Ошибка открытия хранилища " + directory + ". " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String get(String key) {
+        awaitRecovery(Collections.singleton(key));
+        lock.readLock().lock();
+        try {
+            return visible(lookup(key));
+        } catch (IOException e) {
+            throw new KVStoreException("Ошибка чтения ключа " + key + ". " + e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(String key, String value) {
+        putAll(Collections.singletonMap(key, value));
+    }
+
+    @Override
+    public void putAll(Map<String, String> batch) {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                throw new KVStoreException("Хранилище закрыто.");
+            }
+            wal.append(batch);
+            for (Map.Entry<String, String> entry : batch.entrySet()) {
+                active.put(entry.getKey(), entry.getValue() == null ? "" : entry.getValue());
+            }
+            if (active.sizeBytes >= memtableLimitBytes) {
+                rollover();
+            }
+        } catch (IOException e) {
+            throw new KVStoreException("Ошибка записи в журнал. " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, String> getAll(Collection<String> keys) {
+        awaitRecovery(keys);
+        Map<String, String> result = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (String key : keys) {
+                String value = visible(lookup(key));
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+        } catch (IOException e) {
+            throw new KVStoreException("Ошибка чтения ключей. " + e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, String> getByPrefix(Collection<String> prefixes) {
+        awaitRecovery(null);
+        Map<String, String> result = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (String prefix : prefixes) {
+                Iterator<Map.Entry<String, String>> entries = merged(prefix);
+                while (entries.hasNext()) {
+                    Map.Entry<String, String> entry = entries.next();
+                    if (!entry.getKey().startsWith(prefix)) {
+                        break;
+                    }
+                    result.put(entry.getKey(), entry.getValue());
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw new KVStoreException("Ошибка чтения по префиксу. " + e.getCause().getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Дожидается фоновых сохранения таблиц и слияния сегментов и закрывает файлы.
+     * Незаписанная в сегмент таблица будет восстановлена из журнала при следующем открытии.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        background.shutdown();
+        try {
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.writeLock().lock();
+        try {
+            wal.close();
+            for (Segment segment : segments) {
+                segment.close();
+            }
+        } catch (IOException e) {
+            throw new KVStoreException("Ошибка закрытия журнала. " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void open() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Не удалось создать каталог.");
+        }
+        List<Segment> openedSegments = new ArrayList<>();
+        List<Long> walSequences = new ArrayList<>();
+        File[] files = directory.listFiles();
+        for (File file : files == null ? new File[0] : files) {
+            String name = file.getName();
+            if (name.endsWith(".tmp")) {
+                // недописанный сегмент: его данные остались в журнале или во входных сегментах слияния
+                Files.deleteIfExists(file.toPath());
+            } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                openedSegments.add(Segment.open(file, sequenceOf(name, SEGMENT_PREFIX, SEGMENT_SUFFIX)));
+            } else if (name.startsWith(WAL_PREFIX) && name.endsWith(WAL_SUFFIX)) {
+                walSequences.add(sequenceOf(name, WAL_PREFIX, WAL_SUFFIX));
+            }
+        }
+        openedSegments.sort(Comparator.comparingLong(Segment::getSequence).reversed());
+        segments = new ArrayList<>();
+        for (Segment segment : openedSegments) {
+            Segment newer = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (newer != null && segment.getSequence() >= newer.getMinSequence()) {
+                // входной сегмент прерванного слияния, его данные уже есть в результате слияния
+                segment.close();
+                Files.deleteIfExists(segment.getFile().toPath());
+            } else {
+                segments.add(segment);
+            }
+        }
+        long flushedSequence = segments.isEmpty() ? 0 : segments.get(0).getSequence();
+        Collections.sort(walSequences);
+        List<File> walFiles = new ArrayList<>();
+        for (long sequence : walSequences) {
+            File walFile = walFile(sequence);
+            if (sequence <= flushedSequence) {
+                // таблица этого журнала уже сохранена в сегмент
+                Files.deleteIfExists(walFile.toPath());
+            } else {
+                walFiles.add(walFile);
+            }
+        }
+        long lastSequence = flushedSequence;
+        if (!walSequences.isEmpty()) {
+            lastSequence = Math.max(lastSequence, walSequences.get(walSequences.size() - 1));
+        }
+        nextSequence = lastSequence + 1;
+        active = new Memtable(nextSequence, nextSequence);
+        wal = new WriteAheadLog(walFile(nextSequence), syncWrites);
+        nextSequence++;
+        if (walFiles.isEmpty()) {
+            recovered.countDown();
+            return;
+        }
+        Set<String> keys = new HashSet<>();
+        for (File walFile : walFiles) {
+            WriteAheadLog.scan(walFile, false, (key, value) -> keys.add(key));
+        }
+        recoveringKeys = keys;
+        Memtable recovering = new Memtable(walSequences.get(0), lastSequence);
+        recovering.walFiles.addAll(walFiles);
+        frozen.addFirst(recovering);
+        background.submit(() -> recover(recovering));
+    }
+
+    private void recover(Memtable recovering) {
+        TreeMap<String, String> values = new TreeMap<>();
+        try {
+            for (File walFile : recovering.walFiles) {
+                WriteAheadLog.scan(walFile, true, values::put);
+            }
+        } catch (IOException e) {
+            // журналы не удаляются, пока таблица не сохранена в сегмент
+            System.out.println("Ошибка воспроизведения журнала. " + e.getMessage());
+            recovering.flushable = false;
+        }
+        lock.writeLock().lock();
+        try {
+            recovering.values.putAll(values);
+            recoveringKeys = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        recovered.countDown();
+        flushOldest();
+    }
+
+    private void awaitRecovery(Collection<String> keys) {
+        Set<String> pending = recoveringKeys;
+        if (pending == null) {
+            return;
+        }
+        boolean needed = keys == null;
+        if (!needed) {
+            for (String key : keys) {
+                if (pending.contains(key)) {
+                    needed = true;
+                    break;
+                }
+            }
+        }
+        if (!needed) {
+            return;
+        }
+        try {
+            recovered.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KVStoreException("Ожидание восстановления хранилища прервано.");
+        }
+    }
+
+    private String lookup(String key) throws IOException {
+        String value = active.values.get(key);
+        if (value != null) {
+            return value;
+        }
+        for (Memtable memtable : frozen) {
+            value = memtable.values.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        for (Segment segment : segments) {
+            value = segment.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static String visible(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private void rollover() throws IOException {
+        wal.close();
+        active.walFiles.add(wal.getFile());
+        frozen.addFirst(active);
+        active = new Memtable(nextSequence, nextSequence);
+        wal = new WriteAheadLog(walFile(nextSequence), syncWrites);
+        nextSequence++;
+        background.submit(this::flushOldest);
+    }
+
+    private void flushOldest() {
+        Memtable memtable;
+        lock.readLock().lock();
+        try {
+            memtable = frozen.peekLast();
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (memtable == null || !memtable.flushable) {
+            return;
+        }
+        try {
+            Segment segment = Segment.write(segmentFile(memtable.sequence), memtable.sequence,
+                    memtable.minSequence, memtable.values.entrySet().iterator());
+            lock.writeLock().lock();
+            try {
+                List<Segment> updated = new ArrayList<>();
+                updated.add(segment);
+                updated.addAll(segments);
+                segments = updated;
+                frozen.removeLast();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            for (File walFile : memtable.walFiles) {
+                Files.deleteIfExists(walFile.toPath());
+            }
+            if (segments.size() > maxSegments) {
+                compact();
+            }
+        } catch (IOException | RuntimeException e) {
+            // журналы таблицы не удалены, данные будут восстановлены при следующем открытии
+            System.out.println("Ошибка сохранения таблицы в сегмент. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Сливает все сегменты в один. Выполняется только в фоновом потоке, поэтому список сегментов
+     * во время слияния не меняется. Результат заменяет самый новый входной сегмент атомарным
+     * переименованием, а minSequence в его футере позволяет при открытии удалить оставшиеся входные
+     * сегменты, если сбой произошел до их удаления.
+     */
+    private void compact() throws IOException {
+        List<Segment> inputs = segments;
+        if (inputs.size() <= 1) {
+            return;
+        }
+        Segment newest = inputs.get(0);
+        Segment oldest = inputs.get(inputs.size() - 1);
+        Segment compacted;
+        try {
+            // входные сегменты не меняются, поэтому читаются без блокировки и не мешают записи
+            compacted = Segment.write(newest.getFile(), newest.getSequence(), oldest.getMinSequence(),
+                    mergeSegments(inputs));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        lock.writeLock().lock();
+        try {
+            segments = new ArrayList<>(Collections.singletonList(compacted));
+            for (Segment input : inputs) {
+                input.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (Segment input : inputs) {
+            if (input != newest) {
+                Files.deleteIfExists(input.getFile().toPath());
+            }
+        }
+    }
+
+    private Iterator<Map.Entry<String, String>> merged(String fromKey) {
+        List<Iterator<Map.Entry<String, String>>> sources = new ArrayList<>();
+        sources.add(active.values.tailMap(fromKey, true).entrySet().iterator());
+        for (Memtable memtable : frozen) {
+            sources.add(memtable.values.tailMap(fromKey, true).entrySet().iterator());
+        }
+        for (Segment segment : segments) {
+            sources.add(segment.iterator(fromKey));
+        }
+        return new MergingIterator(sources, false);
+    }
+
+    /**
+     * Слияние всех сегментов, начиная с самого старого, поэтому удаленные ключи можно отбросить.
+     */
+    private static Iterator<Map.Entry<String, String>> mergeSegments(List<Segment> inputs) {
+        List<Iterator<Map.Entry<String, String>>> sources = new ArrayList<>();
+        for (Segment segment : inputs) {
+            sources.add(segment.iterator(""));
+        }
+        return new MergingIterator(sources, false);
+    }
+
+    private File walFile(long sequence) {
+        return new File(directory, WAL_PREFIX + sequence + WAL_SUFFIX);
+    }
+
+    private File segmentFile(long sequence) {
+        return new File(directory, SEGMENT_PREFIX + sequence + SEGMENT_SUFFIX);
+    }
+
+    private static long sequenceOf(String name, String prefix, String suffix) throws IOException {
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            throw new IOException("Неизвестный файл в каталоге хранилища: " + name);
+        }
+    }
+
+    private static class Memtable {
+        private final long minSequence;
+        private final long sequence;
+        private final TreeMap<String, String> values = new TreeMap<>();
+        private final List<File> walFiles = new ArrayList<>();
+        private long sizeBytes;
+        private boolean flushable = true;
+
+        private Memtable(long minSequence, long sequence) {
+            this.minSequence = minSequence;
+            this.sequence = sequence;
+        }
+
+        private void put(String key, String value) {
+            String previous = values.put(key, value);
+            sizeBytes += 2L * (value.length() - (previous == null ? -key.length() : previous.length()));
+        }
+    }
+
+    /**
+     * Слияние отсортированных источников, упорядоченных от новых к старым: для каждого ключа
+     * возвращается значение из самого нового источника.
+     */
+    private static class MergingIterator implements Iterator<Map.Entry<String, String>> {
+        private final PriorityQueue<Source> queue = new PriorityQueue<>();
+        private final boolean keepTombstones;
+        private Map.Entry<String, String> next;
+
+        private MergingIterator(List<Iterator<Map.Entry<String, String>>> sources, boolean keepTombstones) {
+            this.keepTombstones = keepTombstones;
+            for (int i = 0; i < sources.size(); i++) {
+                Source source = new Source(sources.get(i), i);
+                if (source.advance()) {
+                    queue.add(source);
+                }
+            }
+            findNext();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String, String> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, String> result = next;
+            findNext();
+            return result;
+        }
+
+        private void findNext() {
+            next = null;
+            while (next == null && !queue.isEmpty()) {
+                Source newest = queue.poll();
+                Map.Entry<String, String> candidate = newest.current;
+                while (!queue.isEmpty() && queue.peek().current.getKey().equals(candidate.getKey())) {
+                    Source shadowed = queue.poll();
+                    if (shadowed.advance()) {
+                        queue.add(shadowed);
+                    }
+                }
+                if (newest.advance()) {
+                    queue.add(newest);
+                }
+                if (keepTombstones || !candidate.getValue().isEmpty()) {
+                    next = candidate;
+                }
+            }
+        }
+
+        private static class Source implements Comparable<Source> {
+            private final Iterator<Map.Entry<String, String>> entries;
+            private final int rank;
+            private Map.Entry<String, String> current;
+
+            private Source(Iterator<Map.Entry<String, String>> entries, int rank) {
+                this.entries = entries;
+                this.rank = rank;
+            }
+
+            private boolean advance() {
+                if (!entries.hasNext()) {
+                    return false;
+                }
+                current = entries.next();
+                return true;
+            }
+
+            @Override
+            public int compareTo(Source other) {
+                int byKey = current.getKey().compareTo(other.current.getKey());
+                return byKey != 0 ? byKey : Integer.compare(rank, other.rank);
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package controllers.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Неизменяемый файл LsmKVStore с записями, отсортированными по ключу.
+ * Формат: MAGIC, записи (длина ключа, ключ, длина значения или -1 для удаленного ключа, значение),
+ * индекс (количество, затем ключ, смещение и длина значения) и футер (minSequence, смещение индекса, MAGIC).
+ * Индекс целиком загружается в память, поэтому поиск по ключу требует одного чтения с диска.
+ */
+final class Segment {
+    private static final int MAGIC = 0x4C534D31;
+    private static final int FOOTER_SIZE = Long.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int TOMBSTONE = -1;
+
+    private final File file;
+    private final long sequence;
+    private final long minSequence;
+    private final FileChannel channel;
+    private final NavigableMap<String, ValuePosition> index;
+
+    private Segment(File file, long sequence, long minSequence, FileChannel channel,
+                    NavigableMap<String, ValuePosition> index) {
+        this.file = file;
+        this.sequence = sequence;
+        this.minSequence = minSequence;
+        this.channel = channel;
+        this.index = index;
+    }
+
+    /**
+     * Записывает отсортированные записи во временный файл, выполняет fsync и атомарно
+     * переименовывает его в file, заменяя существующий файл.
+     */
+    static Segment write(File file, long sequence, long minSequence,
+                         Iterator<Map.Entry<String, String>> entries) throws IOException {
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fileOutputStream = new FileOutputStream(tmpFile);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOutputStream))) {
+            TreeMap<String, ValuePosition> positions = new TreeMap<>();
+            long offset = 0;
+            out.writeInt(MAGIC);
+            offset += Integer.BYTES;
+            while (entries.hasNext()) {
+                Map.Entry<String, String> entry = entries.next();
+                byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(key.length);
+                out.write(key);
+                offset += Integer.BYTES + key.length;
+                String value = entry.getValue();
+                if (value.isEmpty()) {
+                    out.writeInt(TOMBSTONE);
+                    positions.put(entry.getKey(), new ValuePosition(offset + Integer.BYTES, TOMBSTONE));
+                    offset += Integer.BYTES;
+                } else {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                    positions.put(entry.getKey(), new ValuePosition(offset + Integer.BYTES, bytes.length));
+                    offset += Integer.BYTES + bytes.length;
+                }
+            }
+            long indexOffset = offset;
+            out.writeInt(positions.size());
+            for (Map.Entry<String, ValuePosition> position : positions.entrySet()) {
+                byte[] key = position.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeLong(position.getValue().offset);
+                out.writeInt(position.getValue().length);
+            }
+            out.writeLong(minSequence);
+            out.writeLong(indexOffset);
+            out.writeInt(MAGIC);
+            out.flush();
+            fileOutputStream.getChannel().force(true);
+        }
+        Files.move(tmpFile.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return open(file, sequence);
+    }
+
+    static Segment open(File file, long sequence) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < Integer.BYTES + Integer.BYTES + FOOTER_SIZE) {
+                throw new IOException("Файл сегмента " + file.getName() + " поврежден.");
+            }
+            ByteBuffer footer = read(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+            long minSequence = footer.getLong();
+            long indexOffset = footer.getLong();
+            if (footer.getInt() != MAGIC || indexOffset < Integer.BYTES || indexOffset > size - FOOTER_SIZE) {
+                throw new IOException("Файл сегмента " + file.getName() + " поврежден.");
+            }
+            ByteBuffer indexBuffer = read(channel, indexOffset, (int) (size - FOOTER_SIZE - indexOffset));
+            int count = indexBuffer.getInt();
+            TreeMap<String, ValuePosition> index = new TreeMap<>();
+            for (int i = 0; i < count; i++) {
+                byte[] key = new byte[indexBuffer.getInt()];
+                indexBuffer.get(key);
+                long offset = indexBuffer.getLong();
+                int length = indexBuffer.getInt();
+                index.put(new String(key, StandardCharsets.UTF_8), new ValuePosition(offset, length));
+            }
+            return new Segment(file, sequence, minSequence, channel, index);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e instanceof IOException ? (IOException) e
+                    : new IOException("Файл сегмента " + file.getName() + " поврежден.");
+        }
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    long getMinSequence() {
+        return minSequence;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Возвращает значение, пустую строку для удаленного ключа или null, если ключа в сегменте нет.
+     */
+    String get(String key) throws IOException {
+        ValuePosition position = index.get(key);
+        if (position == null) {
+            return null;
+        }
+        return readValue(position);
+    }
+
+    /**
+     * Записи в порядке ключей, значения читаются с диска по мере обхода.
+     */
+    Iterator<Map.Entry<String, String>> iterator(String fromKey) {
+        Iterator<Map.Entry<String, ValuePosition>> positions = index.tailMap(fromKey, true).entrySet().iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return positions.hasNext();
+            }
+
+            @Override
+            public Map.Entry<String, String> next() {
+                Map.Entry<String, ValuePosition> position = positions.next();
+                try {
+                    return new AbstractMap.SimpleImmutableEntry<>(position.getKey(), readValue(position.getValue()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("Ошибка закрытия сегмента " + file.getName() + ". " + e.getMessage());
+        }
+    }
+
+    private String readValue(ValuePosition position) throws IOException {
+        if (position.length == TOMBSTONE) {
+            return "";
+        }
+        ByteBuffer buffer = read(channel, position.offset, position.length);
+        return new String(buffer.array(), 0, position.length, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Неожиданный конец файла сегмента.");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static class ValuePosition {
+        private final long offset;
+        private final int length;
+
+        private ValuePosition(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package controllers.storage;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Хранилище KVServer, разделенное на секции по хэшу ключа. Каждая секция защищена своей блокировкой
+ * чтения/записи, поэтому запросы к разным ключам не мешают друг другу. Пакетные операции захватывают
+ * блокировки затронутых секций в порядке возрастания номера и видны другим запросам целиком.
+ */
+public class StripedKVStore implements KVStore {
+    private final Stripe[] stripes;
+
+    public StripedKVStore(int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Количество секций должно быть положительным.");
+        }
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public String get(String key) {
+        Stripe stripe = stripes[stripeIndex(key)];
+        stripe.lock.readLock().lock();
+        try {
+            return stripe.values.get(key);
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(String key, String value) {
+        Stripe stripe = stripes[stripeIndex(key)];
+        stripe.lock.writeLock().lock();
+        try {
+            stripe.values.put(key, value);
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void putAll(Map<String, String> batch) {
+        int[] indexes = stripeIndexes(batch.keySet());
+        for (int index : indexes) {
+            stripes[index].lock.writeLock().lock();
+        }
+        try {
+            for (Map.Entry<String, String> entry : batch.entrySet()) {
+                Map<String, String> values = stripes[stripeIndex(entry.getKey())].values;
+                if (entry.getValue() == null || entry.getValue().isEmpty()) {
+                    values.remove(entry.getKey());
+                } else {
+                    values.put(entry.getKey(), entry.getValue());
+                }
+            }
+        } finally {
+            for (int i = indexes.length - 1; i >= 0; i--) {
+                stripes[indexes[i]].lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, String> getAll(Collection<String> keys) {
+        int[] indexes = stripeIndexes(keys);
+        Map<String, String> result = new HashMap<>();
+        for (int index : indexes) {
+            stripes[index].lock.readLock().lock();
+        }
+        try {
+            for (String key : keys) {
+                String value = stripes[stripeIndex(key)].values.get(key);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+        } finally {
+            for (int i = indexes.length - 1; i >= 0; i--) {
+                stripes[indexes[i]].lock.readLock().unlock();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, String> getByPrefix(Collection<String> prefixes) {
+        Map<String, String> result = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+        }
+        try {
+            for (Stripe stripe : stripes) {
+                for (Map.Entry<String, String> entry : stripe.values.entrySet()) {
+                    for (String prefix : prefixes) {
+                        if (entry.getKey().startsWith(prefix)) {
+                            result.put(entry.getKey(), entry.getValue());
+                            break;
+                        }
+                    }
+                }
+            }
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].lock.readLock().unlock();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private int stripeIndex(String key) {
+        int hash = key.hashCode();
+        return ((hash ^ (hash >>> 16)) & 0x7fffffff) % stripes.length;
+    }
+
+    private int[] stripeIndexes(Collection<String> keys) {
+        boolean[] used = new boolean[stripes.length];
+        int count = 0;
+        for (String key : keys) {
+            int index = stripeIndex(key);
+            if (!used[index]) {
+                used[index] = true;
+                count++;
+            }
+        }
+        int[] indexes = new int[count];
+        int position = 0;
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) {
+                indexes[position++] = i;
+            }
+        }
+        return indexes;
+    }
+
+    private static class Stripe {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, String> values = new HashMap<>();
+    }
+}
@@ -0,0 +1,164 @@
+package controllers.storage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал упреждающей записи LsmKVStore. Каждый пакет - одна запись: длина, CRC32 и содержимое
+ * (количество пар, затем длина ключа, ключ, длина значения или -1 для удаления, значение).
+ * Оборванная при сбое последняя запись при восстановлении отбрасывается.
+ */
+final class WriteAheadLog {
+    private static final int TOMBSTONE = -1;
+
+    private final File file;
+    private final FileChannel channel;
+    private final boolean syncWrites;
+
+    WriteAheadLog(File file, boolean syncWrites) throws IOException {
+        this.file = file;
+        this.syncWrites = syncWrites;
+        this.channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    void append(Map<String, String> batch) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        payload.writeInt(batch.size());
+        for (Map.Entry<String, String> entry : batch.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            payload.writeInt(key.length);
+            payload.write(key);
+            if (entry.getValue() == null || entry.getValue().isEmpty()) {
+                payload.writeInt(TOMBSTONE);
+            } else {
+                byte[] value = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                payload.writeInt(value.length);
+                payload.write(value);
+            }
+        }
+        byte[] content = payloadBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + Integer.BYTES + content.length);
+        record.putInt(content.length).putInt((int) crc.getValue()).put(content).flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        if (syncWrites) {
+            channel.force(false);
+        }
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Читает все целые записи журнала. При withValues = false значения не декодируются и в consumer
+     * передается null, что позволяет быстро собрать ключи журнала. Хвост после последней целой записи
+     * обрезается: запись с длиной меньше заголовка пакета или больше остатка файла, неверной суммой
+     * или неразбираемым содержимым (например, нули после сбоя питания) считается концом журнала.
+     */
+    static void scan(File file, boolean withValues, BiConsumer<String, String> consumer) throws IOException {
+        long fileLength = file.length();
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int length;
+                int expectedCrc;
+                byte[] content;
+                try {
+                    length = in.readInt();
+                    expectedCrc = in.readInt();
+                    long remaining = fileLength - validLength - Integer.BYTES - Integer.BYTES;
+                    if (length < Integer.BYTES || length > remaining) {
+                        break;
+                    }
+                    content = new byte[length];
+                    in.readFully(content);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                if ((int) crc.getValue() != expectedCrc) {
+                    break;
+                }
+                List<String[]> entries = readRecord(ByteBuffer.wrap(content), withValues);
+                if (entries == null) {
+                    break;
+                }
+                for (String[] entry : entries) {
+                    consumer.accept(entry[0], entry[1]);
+                }
+                validLength += Integer.BYTES + Integer.BYTES + length;
+            }
+        }
+        if (validLength < fileLength) {
+            System.out.println("Журнал " + file.getName() + " обрезан до последней целой записи.");
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+                channel.force(false);
+            }
+        }
+    }
+
+    /**
+     * Пары пакета целиком или null, если содержимое не разбирается: пакет применяется только полностью.
+     */
+    private static List<String[]> readRecord(ByteBuffer content, boolean withValues) {
+        try {
+            int count = content.getInt();
+            if (count < 0 || count > content.remaining() / Integer.BYTES) {
+                return null;
+            }
+            List<String[]> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int keyLength = content.getInt();
+                if (keyLength < 0 || keyLength > content.remaining()) {
+                    return null;
+                }
+                String key = new String(content.array(), content.position(), keyLength, StandardCharsets.UTF_8);
+                content.position(content.position() + keyLength);
+                int valueLength = content.getInt();
+                String value = null;
+                if (valueLength == TOMBSTONE) {
+                    value = withValues ? "" : null;
+                } else if (valueLength < 0 || valueLength > content.remaining()) {
+                    return null;
+                } else {
+                    if (withValues) {
+                        value = new String(content.array(), content.position(), valueLength, StandardCharsets.UTF_8);
+                    }
+                    content.position(content.position() + valueLength);
+                }
+                entries.add(new String[]{key, value});
+            }
+            return content.hasRemaining() ? null : entries;
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+}
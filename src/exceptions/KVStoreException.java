@@ -0,0 +1,8 @@
+package exceptions;
+
+public class KVStoreException extends RuntimeException {
+
+    public KVStoreException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,25 @@
+package manager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AtomicIdAllocator implements IdAllocator {
+
+    private final AtomicInteger lastId;
+
+    public AtomicIdAllocator() {
+        this.lastId = new AtomicInteger();
+    }
+
+    @Override
+    public int nextId() {
+        return lastId.incrementAndGet();
+    }
+
+    @Override
+    public void observe(int id) {
+        int current = lastId.get();
+        while (current < id && !lastId.compareAndSet(current, id)) {
+            current = lastId.get();
+        }
+    }
+}
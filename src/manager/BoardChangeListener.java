@@ -0,0 +1,19 @@
+package manager;
+
+import tasks.Task;
+
+/**
+ * Изменения доски, по которым ConcurrentTaskManager обновляет BoardSnapshot без полного копирования.
+ * Вызывается менеджером в потоке изменения.
+ */
+interface BoardChangeListener {
+
+    void changed(Task entity);
+
+    void removed(Task entity);
+
+    /**
+     * Доска заполнена заново, отдельные изменения не перечисляются.
+     */
+    void reset();
+}
@@ -0,0 +1,147 @@
+package manager;
+
+import comparators.TaskStartTimeComparator;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * Неизменяемая версия доски задач: списки задач, подзадач, эпиков и приоритетных задач,
+ * снятые одновременно. Задачи и подзадачи при изменении заменяются новыми объектами и не копируются,
+ * а эпики копируются, потому что менеджер меняет их агрегаты на месте.
+ * <p>
+ * Списки хранятся в ChunkedList: следующая версия копирует только блоки с измененными сущностями,
+ * остальные блоки общие с предыдущей версией. Поэтому версия после k изменений стоит
+ * O(N / ChunkedList.CHUNK_SIZE + k * ChunkedList.CHUNK_SIZE), а не полного копирования доски.
+ */
+public final class BoardSnapshot {
+    private static final TaskStartTimeComparator START_TIME_ORDER = new TaskStartTimeComparator();
+    private static final Comparator<Task> ID_ORDER = Comparator.comparingInt(Task::getId);
+
+    private final long version;
+    private final ChunkedList<Task> tasks;
+    private final ChunkedList<Subtask> subtasks;
+    private final ChunkedList<Epic> epics;
+    private final ChunkedList<Task> prioritizedTasks;
+    private final Set<Task> prioritizedView;
+
+    BoardSnapshot(long version, InMemoryTaskManager taskManager) {
+        this.version = version;
+        this.tasks = ChunkedList.of(taskManager.tasks.values());
+        this.subtasks = ChunkedList.of(taskManager.subtasks.values());
+        List<Epic> epics = new ArrayList<>(taskManager.epics.size());
+        for (Epic epic : taskManager.epics.values()) {
+            epics.add(epic.copy());
+        }
+        this.epics = ChunkedList.of(epics);
+        this.prioritizedTasks = ChunkedList.of(taskManager.prioritizedTasks);
+        this.prioritizedView = prioritizedView(prioritizedTasks);
+    }
+
+    private BoardSnapshot(long version, ChunkedList<Task> tasks, ChunkedList<Subtask> subtasks,
+                          ChunkedList<Epic> epics, ChunkedList<Task> prioritizedTasks) {
+        this.version = version;
+        this.tasks = tasks;
+        this.subtasks = subtasks;
+        this.epics = epics;
+        this.prioritizedTasks = prioritizedTasks;
+        this.prioritizedView = prioritizedView(prioritizedTasks);
+    }
+
+    /**
+     * Следующая версия доски. changed* - сущности с измененными после этой версии id в порядке id:
+     * текущая задача или подзадача, копия эпика или null, если сущность удалена. Версия собирается
+     * без блокировки менеджера и делит с этой версией все незатронутые блоки списков.
+     */
+    BoardSnapshot next(long version, SortedMap<Integer, Task> changedTasks,
+                       SortedMap<Integer, Subtask> changedSubtasks, SortedMap<Integer, Epic> changedEpics) {
+        List<Task> replaced = new ArrayList<>(changedTasks.size() + changedSubtasks.size());
+        List<Task> added = new ArrayList<>(changedTasks.size() + changedSubtasks.size());
+        ChunkedList<Task> nextTasks = patch(tasks, changedTasks, replaced, added);
+        ChunkedList<Subtask> nextSubtasks = patch(subtasks, changedSubtasks, replaced, added);
+        ChunkedList<Epic> nextEpics = patch(epics, changedEpics, new ArrayList<>(), new ArrayList<>());
+        added.sort(START_TIME_ORDER);
+        return new BoardSnapshot(version, nextTasks, nextSubtasks, nextEpics,
+                prioritizedTasks.patch(START_TIME_ORDER, replaced, added));
+    }
+
+    // прежние версии измененных сущностей попадают в replaced, новые - в added
+    private static <T extends Task> ChunkedList<T> patch(ChunkedList<T> previous, SortedMap<Integer, T> changed,
+                                                         List<Task> replaced, List<Task> added) {
+        List<T> removed = new ArrayList<>(changed.size());
+        List<T> current = new ArrayList<>(changed.size());
+        for (Map.Entry<Integer, T> change : changed.entrySet()) {
+            int id = change.getKey();
+            T entity = previous.search(candidate -> Integer.compare(candidate.getId(), id));
+            if (entity != null) {
+                removed.add(entity);
+                replaced.add(entity);
+            }
+            if (change.getValue() != null) {
+                current.add(change.getValue());
+                added.add(change.getValue());
+            }
+        }
+        return previous.patch(ID_ORDER, removed, current);
+    }
+
+    int size() {
+        return tasks.size() + subtasks.size() + epics.size();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    public List<Subtask> getSubtasks() {
+        return subtasks;
+    }
+
+    public List<Epic> getEpics() {
+        return epics;
+    }
+
+    public Set<Task> getPrioritizedTasks() {
+        return prioritizedView;
+    }
+
+    /**
+     * Задачи и подзадачи по времени начала. Как и у TreeSet менеджера, contains ищет задачу по этому порядку.
+     */
+    private static Set<Task> prioritizedView(ChunkedList<Task> prioritizedTasks) {
+        return Collections.unmodifiableSet(new AbstractSet<>() {
+            @Override
+            public Iterator<Task> iterator() {
+                return prioritizedTasks.iterator();
+            }
+
+            @Override
+            public int size() {
+                return prioritizedTasks.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof Task)) {
+                    return false;
+                }
+                Task task = (Task) o;
+                return prioritizedTasks.search(candidate -> START_TIME_ORDER.compare(candidate, task)) != null;
+            }
+        });
+    }
+}
@@ -0,0 +1,171 @@
+package manager;
+
+import tasks.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Потокобезопасная история просмотров, в которой просмотр не блокирует другие потоки.
+ * add кладет задачу в кольцевой буфер своей секции (секция выбирается по потоку) без блокировок,
+ * а накопленные просмотры переносятся в упорядоченную историю delegate фоновой задачей.
+ * getHistory, remove и clear сначала переносят все накопленные просмотры.
+ * <p>
+ * Порядок просмотров одного потока сохраняется, просмотры разных потоков, сделанные почти одновременно,
+ * могут попасть в историю в другом порядке.
+ */
+public class BufferedHistoryManager implements HistoryManager {
+    private static final int BUFFER_SIZE = 128;
+    private static final int DRAIN_THRESHOLD = BUFFER_SIZE / 4;
+
+    private final HistoryManager delegate;
+    private final Executor drainExecutor;
+    private final RingBuffer[] buffers;
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    public BufferedHistoryManager(HistoryManager delegate) {
+        this(delegate, ForkJoinPool.commonPool());
+    }
+
+    public BufferedHistoryManager(HistoryManager delegate, Executor drainExecutor) {
+        this.delegate = delegate;
+        this.drainExecutor = drainExecutor;
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+        this.buffers = new RingBuffer[stripes];
+        for (int i = 0; i < stripes; i++) {
+            buffers[i] = new RingBuffer(BUFFER_SIZE);
+        }
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            return;
+        }
+        RingBuffer buffer = buffers[stripeIndex()];
+        while (!buffer.offer(task)) {
+            // буфер переполнен: переносим просмотры сами, чтобы не потерять ни одного
+            drainLock.lock();
+            try {
+                drainBuffers();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+        if (buffer.size() >= DRAIN_THRESHOLD && drainScheduled.compareAndSet(false, true)) {
+            drainExecutor.execute(this::scheduledDrain);
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        drainLock.lock();
+        try {
+            drainBuffers();
+            delegate.remove(id);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        drainLock.lock();
+        try {
+            drainBuffers();
+            delegate.clear();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        drainLock.lock();
+        try {
+            drainBuffers();
+            return new ArrayList<>(delegate.getHistory());
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void scheduledDrain() {
+        drainScheduled.set(false);
+        if (drainLock.tryLock()) {
+            try {
+                drainBuffers();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    private void drainBuffers() {
+        for (RingBuffer buffer : buffers) {
+            buffer.drainTo(delegate);
+        }
+    }
+
+    private int stripeIndex() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (buffers.length - 1);
+    }
+
+    /**
+     * Кольцевой буфер для нескольких писателей и одного читателя: писатель занимает позицию через CAS
+     * и публикует задачу в ячейке, читатель (под drainLock) забирает опубликованные задачи по порядку.
+     */
+    private static final class RingBuffer {
+        private final AtomicReferenceArray<Task> slots;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head;
+
+        private RingBuffer(int size) {
+            this.slots = new AtomicReferenceArray<>(size);
+            this.mask = size - 1;
+        }
+
+        private boolean offer(Task task) {
+            while (true) {
+                long position = tail.get();
+                if (position - head >= slots.length()) {
+                    return false;
+                }
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set((int) (position & mask), task);
+                    return true;
+                }
+            }
+        }
+
+        private long size() {
+            return tail.get() - head;
+        }
+
+        private void drainTo(HistoryManager target) {
+            long position = head;
+            while (true) {
+                int index = (int) (position & mask);
+                Task task = slots.get(index);
+                if (task == null) {
+                    // позиция свободна или занята писателем, который еще не опубликовал задачу
+                    break;
+                }
+                slots.lazySet(index, null);
+                target.add(task);
+                position++;
+            }
+            head = position;
+        }
+    }
+}
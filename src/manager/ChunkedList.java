@@ -0,0 +1,235 @@
+package manager;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.function.ToIntFunction;
+
+/**
+ * Неизменяемый упорядоченный список из блоков по CHUNK_SIZE элементов для версий доски:
+ * методы изменения AbstractList выбрасывают UnsupportedOperationException.
+ * patch возвращает новый список, в котором скопированы только затронутые изменением блоки,
+ * остальные блоки общие с исходным списком: новая версия стоит O(N / CHUNK_SIZE + k * CHUNK_SIZE)
+ * для k изменений вместо копирования всех N элементов.
+ */
+final class ChunkedList<T> extends AbstractList<T> implements RandomAccess {
+    static final int CHUNK_SIZE = 256;
+
+    private final List<List<T>> chunks;
+    // starts[i] - индекс первого элемента блока i, starts[chunks.size()] - размер списка
+    private final int[] starts;
+
+    private ChunkedList(List<List<T>> chunks) {
+        this.chunks = chunks;
+        this.starts = new int[chunks.size() + 1];
+        for (int i = 0; i < chunks.size(); i++) {
+            starts[i + 1] = starts[i] + chunks.get(i).size();
+        }
+    }
+
+    /**
+     * Список из items в порядке их обхода.
+     */
+    static <T> ChunkedList<T> of(Collection<? extends T> items) {
+        List<List<T>> chunks = new ArrayList<>(items.size() / CHUNK_SIZE + 1);
+        List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (T item : items) {
+            chunk.add(item);
+            if (chunk.size() == CHUNK_SIZE) {
+                chunks.add(Collections.unmodifiableList(chunk));
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(Collections.unmodifiableList(chunk));
+        }
+        return new ChunkedList<>(chunks);
+    }
+
+    /**
+     * Новый список без removed (элементы этого списка, сравниваются по ссылке) и с added.
+     * Список и added упорядочены по order.
+     */
+    ChunkedList<T> patch(Comparator<? super T> order, Collection<? extends T> removed, List<? extends T> added) {
+        if (removed.isEmpty() && added.isEmpty()) {
+            return this;
+        }
+        if (chunks.isEmpty()) {
+            return of(added);
+        }
+        List<List<T>> changedChunks = new ArrayList<>(Collections.nCopies(chunks.size(), null));
+        for (T item : removed) {
+            int chunk = chunkOf(order, item);
+            if (chunk == chunks.size() || !containsSame(chunks.get(chunk), item)) {
+                // элемент изменен на месте и больше не стоит на своем месте по order
+                chunk = chunkContaining(item);
+            }
+            if (chunk >= 0) {
+                removeSame(editable(changedChunks, chunk), item);
+            }
+        }
+        for (T item : added) {
+            // элементы после последнего блока попадают в его конец
+            int chunk = Math.min(chunkOf(order, item), chunks.size() - 1);
+            insert(editable(changedChunks, chunk), item, order);
+        }
+        List<List<T>> patched = new ArrayList<>(chunks.size() + 1);
+        for (int i = 0; i < chunks.size(); i++) {
+            List<T> chunk = changedChunks.get(i);
+            if (chunk == null) {
+                patched.add(chunks.get(i));
+            } else {
+                patched.addAll(split(chunk));
+            }
+        }
+        return new ChunkedList<>(patched);
+    }
+
+    /**
+     * Элемент, для которого direction возвращает 0, или null. direction отрицательна для элементов до искомого
+     * и положительна после него в порядке списка.
+     */
+    T search(ToIntFunction<? super T> direction) {
+        int low = 0;
+        int high = chunks.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            List<T> chunk = chunks.get(middle);
+            if (direction.applyAsInt(chunk.get(chunk.size() - 1)) < 0) {
+                low = middle + 1;
+            } else if (direction.applyAsInt(chunk.get(0)) > 0) {
+                high = middle - 1;
+            } else {
+                int index = Collections.binarySearch(chunk, null, (item, ignored) -> direction.applyAsInt(item));
+                return index >= 0 ? chunk.get(index) : null;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        int low = 0;
+        int high = chunks.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (starts[middle] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return chunks.get(low).get(index - starts[low]);
+    }
+
+    @Override
+    public int size() {
+        return starts[chunks.size()];
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int chunk;
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return chunk < chunks.size();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<T> current = chunks.get(chunk);
+                T item = current.get(index++);
+                if (index == current.size()) {
+                    chunk++;
+                    index = 0;
+                }
+                return item;
+            }
+        };
+    }
+
+    // первый блок, последний элемент которого не меньше item, или chunks.size(), если таких нет
+    private int chunkOf(Comparator<? super T> order, T item) {
+        int low = 0;
+        int high = chunks.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            List<T> chunk = chunks.get(middle);
+            if (order.compare(chunk.get(chunk.size() - 1), item) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int chunkContaining(T item) {
+        for (int i = 0; i < chunks.size(); i++) {
+            if (containsSame(chunks.get(i), item)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private List<T> editable(List<List<T>> changedChunks, int chunk) {
+        List<T> copy = changedChunks.get(chunk);
+        if (copy == null) {
+            copy = new ArrayList<>(chunks.get(chunk));
+            changedChunks.set(chunk, copy);
+        }
+        return copy;
+    }
+
+    private static <T> boolean containsSame(List<T> chunk, T item) {
+        for (T element : chunk) {
+            if (element == item) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> void removeSame(List<T> chunk, T item) {
+        for (int i = 0; i < chunk.size(); i++) {
+            if (chunk.get(i) == item) {
+                chunk.remove(i);
+                return;
+            }
+        }
+    }
+
+    private static <T> void insert(List<T> chunk, T item, Comparator<? super T> order) {
+        int index = Collections.binarySearch(chunk, item, order);
+        chunk.add(index >= 0 ? index + 1 : -index - 1, item);
+    }
+
+    // пустой блок удаляется, слишком большой делится на блоки по CHUNK_SIZE
+    private static <T> List<List<T>> split(List<T> chunk) {
+        if (chunk.size() <= 2 * CHUNK_SIZE) {
+            return chunk.isEmpty() ? List.of() : List.of(Collections.unmodifiableList(chunk));
+        }
+        List<List<T>> parts = new ArrayList<>(chunk.size() / CHUNK_SIZE + 1);
+        for (int from = 0; from < chunk.size(); from += CHUNK_SIZE) {
+            parts.add(Collections.unmodifiableList(
+                    new ArrayList<>(chunk.subList(from, Math.min(from + CHUNK_SIZE, chunk.size())))));
+        }
+        return parts;
+    }
+}
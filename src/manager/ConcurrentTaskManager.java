@@ -0,0 +1,339 @@
+package manager;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Потокобезопасная обертка над InMemoryTaskManager и его наследниками.
+ * Чтения выполняются параллельно под блокировкой чтения, изменения - по одному под блокировкой записи:
+ * проверка пересечения по времени затрагивает все задачи, поэтому запись нельзя разделить по эпикам
+ * без общей блокировки индекса времени.
+ * <p>
+ * Списки задач отдаются из неизменяемой версии доски (BoardSnapshot). Изменение только запоминает id
+ * измененных сущностей. Первый следующий читатель под блокировкой чтения забирает эти сущности,
+ * а новую версию собирает из предыдущей уже без блокировки, поэтому писатели не ждут копирования доски.
+ * Остальные читатели получают готовую версию без блокировки и копирования.
+ * <p>
+ * Запись изменений на диск или KV-сервер выполняется после снятия блокировки записи: под блокировкой
+ * делегат только собирает записываемые данные. Записи выполняются строго в порядке версий, поэтому
+ * медленный сервер задерживает лишь писателей, ожидающих своей очереди записи, но не читателей.
+ */
+public class ConcurrentTaskManager implements TaskManager {
+    private final InMemoryTaskManager delegate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ChangeLog changes = new ChangeLog();
+    private final Object snapshotBuild = new Object();
+    private volatile BoardSnapshot snapshot;
+    private volatile long version;
+    private final Object persistOrder = new Object();
+    // последняя версия, изменения которой записаны; меняется под persistOrder
+    private long persistedVersion;
+
+    public ConcurrentTaskManager(InMemoryTaskManager delegate) {
+        this.delegate = delegate;
+        // просмотр задачи меняет историю: просмотры копятся в буферах без блокировок и не мешают параллельным чтениям.
+        // История по сессиям уже потокобезопасна и должна получать просмотр в потоке запроса
+        if (!(delegate.historyManager instanceof PartitionedHistoryManager)) {
+            delegate.historyManager = new BufferedHistoryManager(delegate.historyManager);
+        }
+        delegate.setChangeListener(changes);
+    }
+
+    @Override
+    public void createTask(Task task) {
+        write(() -> delegate.createTask(task));
+    }
+
+    @Override
+    public void createEpic(Epic epic) {
+        write(() -> delegate.createEpic(epic));
+    }
+
+    @Override
+    public void createSubtask(Subtask subtask) {
+        write(() -> delegate.createSubtask(subtask));
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return getSnapshot().getTasks();
+    }
+
+    @Override
+    public List<Subtask> getSubtasks() {
+        return getSnapshot().getSubtasks();
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return getSnapshot().getEpics();
+    }
+
+    @Override
+    public TaskPage<Task> getTasks(TaskQuery query) {
+        return read(() -> delegate.getTasks(query));
+    }
+
+    @Override
+    public TaskPage<Subtask> getSubtasks(TaskQuery query) {
+        return read(() -> delegate.getSubtasks(query));
+    }
+
+    @Override
+    public TaskPage<Epic> getEpics(TaskQuery query) {
+        return read(() -> {
+            TaskPage<Epic> page = delegate.getEpics(query);
+            List<Epic> epics = new ArrayList<>(page.getItems().size());
+            for (Epic epic : page.getItems()) {
+                epics.add(epic.copy());
+            }
+            return new TaskPage<>(epics, page.getNextCursor());
+        });
+    }
+
+    /**
+     * Текущая версия доски. Все ее списки согласованы между собой.
+     */
+    public BoardSnapshot getSnapshot() {
+        BoardSnapshot current = snapshot;
+        if (current != null && current.getVersion() == version) {
+            return current;
+        }
+        synchronized (snapshotBuild) {
+            current = snapshot;
+            long currentVersion;
+            SortedMap<Integer, Task> changedTasks = new TreeMap<>();
+            SortedMap<Integer, Subtask> changedSubtasks = new TreeMap<>();
+            SortedMap<Integer, Epic> changedEpics = new TreeMap<>();
+            lock.readLock().lock();
+            try {
+                currentVersion = version;
+                if (current != null && current.getVersion() == currentVersion) {
+                    return current;
+                }
+                if (current == null || changes.reset || changes.size() > current.size() / 4) {
+                    // изменений много: полная копия дешевле слияния
+                    current = new BoardSnapshot(currentVersion, delegate);
+                    changes.clear();
+                    snapshot = current;
+                    return current;
+                }
+                for (Integer id : changes.tasks) {
+                    changedTasks.put(id, delegate.tasks.get(id));
+                }
+                for (Integer id : changes.subtasks) {
+                    changedSubtasks.put(id, delegate.subtasks.get(id));
+                }
+                for (Integer id : changes.epics) {
+                    // эпик меняется на месте, поэтому копируется под блокировкой
+                    Epic epic = delegate.epics.get(id);
+                    changedEpics.put(id, epic == null ? null : epic.copy());
+                }
+                changes.clear();
+            } finally {
+                lock.readLock().unlock();
+            }
+            current = current.next(currentVersion, changedTasks, changedSubtasks, changedEpics);
+            snapshot = current;
+            return current;
+        }
+    }
+
+    public List<Subtask> getAllSubtasksByEpic(int epicId) {
+        return read(() -> delegate.getAllSubtasksByEpic(epicId));
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        write(delegate::deleteAllTasks);
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        write(delegate::deleteAllSubtasks);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        write(delegate::deleteAllEpics);
+    }
+
+    @Override
+    public void deleteAllTaskTypes() {
+        write(delegate::deleteAllTaskTypes);
+    }
+
+    @Override
+    public Task findTaskById(int taskId) {
+        return read(() -> delegate.findTaskById(taskId));
+    }
+
+    @Override
+    public Subtask findSubtaskById(int subtaskId) {
+        return read(() -> delegate.findSubtaskById(subtaskId));
+    }
+
+    @Override
+    public Epic findEpicById(int epicId) {
+        // эпик меняется на месте при изменении подзадач, поэтому наружу отдается копия
+        return read(() -> delegate.findEpicById(epicId).copy());
+    }
+
+    @Override
+    public void updateTask(Task updatedTask) {
+        write(() -> delegate.updateTask(updatedTask));
+    }
+
+    @Override
+    public void updateEpic(Epic updatedEpic) {
+        write(() -> delegate.updateEpic(updatedEpic));
+    }
+
+    @Override
+    public void updateSubtask(Subtask updatedSubtask) {
+        write(() -> delegate.updateSubtask(updatedSubtask));
+    }
+
+    @Override
+    public void deleteTaskById(int taskId) {
+        write(() -> delegate.deleteTaskById(taskId));
+    }
+
+    @Override
+    public void deleteSubtaskById(int subtaskId) {
+        write(() -> delegate.deleteSubtaskById(subtaskId));
+    }
+
+    @Override
+    public void deleteEpicById(int epicId) {
+        write(() -> delegate.deleteEpicById(epicId));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return read(() -> {
+            List<Task> history = new ArrayList<>(delegate.getHistory());
+            history.replaceAll(task -> task instanceof Epic ? ((Epic) task).copy() : task);
+            return history;
+        });
+    }
+
+    @Override
+    public Set<Task> getPrioritizedTasks() {
+        return getSnapshot().getPrioritizedTasks();
+    }
+
+    @Override
+    public List<Task> getOverlappingTasks(LocalDateTime start, LocalDateTime end) {
+        return read(() -> delegate.getOverlappingTasks(start, end));
+    }
+
+    private void write(Runnable operation) {
+        Runnable persistence = null;
+        long writeVersion;
+        lock.writeLock().lock();
+        try {
+            persistence = delegate.applyDeferringPersistence(operation);
+        } finally {
+            writeVersion = ++version;
+            lock.writeLock().unlock();
+            persist(writeVersion, persistence);
+        }
+    }
+
+    /**
+     * Выполняет запись версии writeVersion после записей всех предыдущих версий.
+     */
+    private void persist(long writeVersion, Runnable persistence) {
+        synchronized (persistOrder) {
+            boolean interrupted = false;
+            while (persistedVersion != writeVersion - 1) {
+                try {
+                    persistOrder.wait();
+                } catch (InterruptedException e) {
+                    // пропуск своей очереди остановил бы запись следующих версий
+                    interrupted = true;
+                }
+            }
+            try {
+                if (persistence != null) {
+                    persistence.run();
+                }
+            } finally {
+                persistedVersion = writeVersion;
+                persistOrder.notifyAll();
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private <R> R read(Supplier<R> operation) {
+        lock.readLock().lock();
+        try {
+            return operation.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * id сущностей, измененных после последней собранной версии доски. Пополняется под блокировкой записи,
+     * забирается под блокировкой чтения одним сборщиком версии.
+     */
+    private static class ChangeLog implements BoardChangeListener {
+        private final Set<Integer> tasks = new TreeSet<>();
+        private final Set<Integer> subtasks = new TreeSet<>();
+        private final Set<Integer> epics = new TreeSet<>();
+        private boolean reset;
+
+        @Override
+        public void changed(Task entity) {
+            idsOf(entity).add(entity.getId());
+        }
+
+        @Override
+        public void removed(Task entity) {
+            idsOf(entity).add(entity.getId());
+        }
+
+        @Override
+        public void reset() {
+            reset = true;
+        }
+
+        private Set<Integer> idsOf(Task entity) {
+            switch (entity.getTaskType()) {
+                case EPIC:
+                    return epics;
+                case SUBTASK:
+                    return subtasks;
+                default:
+                    return tasks;
+            }
+        }
+
+        private int size() {
+            return tasks.size() + subtasks.size() + epics.size();
+        }
+
+        private void clear() {
+            tasks.clear();
+            subtasks.clear();
+            epics.clear();
+            reset = false;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package manager;
+
+/**
+ * Политика записи снимков и журнала FileBackedTasksManager на диск.
+ * <ul>
+ *     <li>writeThrough - запись в потоке вызывающего без fsync (поведение по умолчанию);</li>
+ *     <li>fsyncEach - вызывающий ждет записи и fsync своей операции, одновременные операции
+ *     объединяются фоновым потоком в одну запись;</li>
+ *     <li>groupCommit - фоновый поток пишет и выполняет fsync раз в intervalMillis мс или
+ *     после operations операций, вызывающий не ждет;</li>
+ *     <li>async - фоновый поток пишет как можно скорее без fsync, вызывающий не ждет.</li>
+ * </ul>
+ * Снимок всегда заменяется атомарно, вместе с ним хранится DEFAULT_GENERATIONS - 1 предыдущих,
+ * количество задается withGenerations.
+ */
+public final class DurabilityPolicy {
+
+    public enum Mode {
+        WRITE_THROUGH,
+        FSYNC_EACH,
+        GROUP_COMMIT,
+        ASYNC
+    }
+
+    public static final int DEFAULT_GENERATIONS = 2;
+
+    private final Mode mode;
+    private final long commitIntervalMillis;
+    private final int commitOperations;
+    private final int generations;
+
+    private DurabilityPolicy(Mode mode, long commitIntervalMillis, int commitOperations, int generations) {
+        this.mode = mode;
+        this.commitIntervalMillis = commitIntervalMillis;
+        this.commitOperations = commitOperations;
+        this.generations = generations;
+    }
+
+    private DurabilityPolicy(Mode mode, long commitIntervalMillis, int commitOperations) {
+        this(mode, commitIntervalMillis, commitOperations, DEFAULT_GENERATIONS);
+    }
+
+    public static DurabilityPolicy writeThrough() {
+        return new DurabilityPolicy(Mode.WRITE_THROUGH, 0, 1);
+    }
+
+    public static DurabilityPolicy fsyncEach() {
+        return new DurabilityPolicy(Mode.FSYNC_EACH, 0, 1);
+    }
+
+    public static DurabilityPolicy groupCommit(long intervalMillis, int operations) {
+        if (intervalMillis <= 0 || operations <= 0) {
+            throw new IllegalArgumentException("Интервал и количество операций должны быть положительными.");
+        }
+        return new DurabilityPolicy(Mode.GROUP_COMMIT, intervalMillis, operations);
+    }
+
+    public static DurabilityPolicy async() {
+        return new DurabilityPolicy(Mode.ASYNC, 0, 1);
+    }
+
+    /**
+     * Та же политика, но хранится generations снимков: текущий и generations - 1 предыдущих.
+     */
+    public DurabilityPolicy withGenerations(int generations) {
+        if (generations <= 0) {
+            throw new IllegalArgumentException("Количество поколений снимка должно быть положительным.");
+        }
+        return new DurabilityPolicy(mode, commitIntervalMillis, commitOperations, generations);
+    }
+
+    public int getGenerations() {
+        return generations;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long getCommitIntervalMillis() {
+        return commitIntervalMillis;
+    }
+
+    public int getCommitOperations() {
+        return commitOperations;
+    }
+
+    public boolean isFsync() {
+        return mode == Mode.FSYNC_EACH || mode == Mode.GROUP_COMMIT;
+    }
+
+    public boolean isBackground() {
+        return mode != Mode.WRITE_THROUGH;
+    }
+
+    public boolean isCallerWaiting() {
+        return mode == Mode.WRITE_THROUGH || mode == Mode.FSYNC_EACH;
+    }
+}
@@ -0,0 +1,162 @@
+package manager;
+
+import tasks.Task;
+import tasks.TaskType;
+
+/**
+ * Общий индекс задач, подзадач и эпиков по id: хэш-таблица с открытой адресацией на примитивных массивах.
+ * Рядом с задачей хранится ее тип, поэтому поиск задачи нужного типа выполняется одним проходом
+ * по таблице без упаковки id в Integer.
+ */
+public class EntityIndex {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] ids;
+    private Task[] entities;
+    private byte[] types;
+    private int size;
+    private int resizeThreshold;
+
+    public EntityIndex() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Возвращает сущность с данным id, если она имеет тип type, иначе null.
+     */
+    public Task get(int id, TaskType type) {
+        int mask = ids.length - 1;
+        for (int i = indexFor(id); entities[i] != null; i = (i + 1) & mask) {
+            if (ids[i] == id) {
+                return types[i] == type.ordinal() ? entities[i] : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Добавляет сущность или заменяет сущность с тем же id.
+     */
+    public void put(Task task) {
+        if (size >= resizeThreshold) {
+            resize(ids.length * 2);
+        }
+        int mask = ids.length - 1;
+        int i = indexFor(task.getId());
+        while (entities[i] != null) {
+            if (ids[i] == task.getId()) {
+                entities[i] = task;
+                types[i] = (byte) task.getTaskType().ordinal();
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        ids[i] = task.getId();
+        entities[i] = task;
+        types[i] = (byte) task.getTaskType().ordinal();
+        size++;
+    }
+
+    /**
+     * Удаляет сущность с данным id, если она имеет тип type.
+     */
+    public void remove(int id, TaskType type) {
+        int mask = ids.length - 1;
+        int i = indexFor(id);
+        while (entities[i] != null && ids[i] != id) {
+            i = (i + 1) & mask;
+        }
+        if (entities[i] == null || types[i] != type.ordinal()) {
+            return;
+        }
+        entities[i] = null;
+        size--;
+        // сдвигаем следующие записи цепочки, чтобы поиск не останавливался на образовавшейся дыре
+        for (int j = (i + 1) & mask; entities[j] != null; j = (j + 1) & mask) {
+            int home = indexFor(ids[j]);
+            boolean reachable = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (!reachable) {
+                ids[i] = ids[j];
+                entities[i] = entities[j];
+                types[i] = types[j];
+                entities[j] = null;
+                i = j;
+            }
+        }
+    }
+
+    /**
+     * Удаляет все сущности типа type.
+     */
+    public void removeAll(TaskType type) {
+        int[] oldIds = ids;
+        Task[] oldEntities = entities;
+        byte[] oldTypes = types;
+        allocate(oldIds.length);
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldEntities[i] != null && oldTypes[i] != type.ordinal()) {
+                insertNew(oldIds[i], oldEntities[i], oldTypes[i]);
+            }
+        }
+    }
+
+    public void clear() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Заранее увеличивает таблицу под expectedSize сущностей, чтобы массовая загрузка обошлась без промежуточных
+     * перестроений.
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = ids.length;
+        while (capacity / 3 * 2 <= expectedSize) {
+            capacity *= 2;
+        }
+        if (capacity > ids.length) {
+            resize(capacity);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void allocate(int capacity) {
+        ids = new int[capacity];
+        entities = new Task[capacity];
+        types = new byte[capacity];
+        size = 0;
+        // заполнение не больше 2/3, чтобы цепочки проб оставались короткими
+        resizeThreshold = capacity / 3 * 2;
+    }
+
+    private void resize(int capacity) {
+        int[] oldIds = ids;
+        Task[] oldEntities = entities;
+        byte[] oldTypes = types;
+        allocate(capacity);
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldEntities[i] != null) {
+                insertNew(oldIds[i], oldEntities[i], oldTypes[i]);
+            }
+        }
+    }
+
+    private void insertNew(int id, Task entity, byte type) {
+        int mask = ids.length - 1;
+        int i = indexFor(id);
+        while (entities[i] != null) {
+            i = (i + 1) & mask;
+        }
+        ids[i] = id;
+        entities[i] = entity;
+        types[i] = type;
+        size++;
+    }
+
+    private int indexFor(int id) {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (ids.length - 1);
+    }
+}
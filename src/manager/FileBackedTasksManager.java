@@ -1,270 +1,706 @@
 package manager;
 
 import exceptions.ManagerSaveException;
+import exceptions.TaskManagerException;
+import exceptions.TaskTimeValidationException;
+import manager.snapshot.BinarySnapshotReader;
+import manager.snapshot.BinarySnapshotWriter;
+import manager.snapshot.BoardData;
+import manager.snapshot.BulkLoader;
+import manager.snapshot.CsvRecords;
+import manager.snapshot.LoadReport;
+import manager.snapshot.SnapshotFormat;
+import manager.snapshot.SnapshotStore;
 import tasks.*;
 
 import java.io.*;
-import java.time.LocalDateTime;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
 
 public class FileBackedTasksManager extends InMemoryTaskManager implements TaskManager {
+    private static final String DEFAULT_FILE_NAME = "taskFile.csv";
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String HISTORY_SUFFIX = ".history";
+    private static final int HISTORY_FLUSH_VIEWS = 256;
+    private static final long HISTORY_FLUSH_MILLIS = 1000;
+    protected final File file;
+    private final File journalFile;
+    private final File historyFile;
+    private final int checkpointInterval;
+    private final DurabilityPolicy durabilityPolicy;
+    private final PersistenceWriter persistenceWriter;
+    protected final HistoryLog historyLog;
+    private SnapshotFormat snapshotFormat;
+    private LoadReport loadReport;
+    private int journalEntries;
+    // операция, после которой пишется снимок при checkpointInterval = 0
+    private String snapshotEntry;
+    // полная история из снимка и <file>.history во время загрузки: менеджер истории может хранить лишь ее часть
+    private LinkedHashSet<Integer> loadedHistory = new LinkedHashSet<>();
+    private final List<Runnable> deferredWrites = new ArrayList<>();
+    protected boolean restoring;
 
     public FileBackedTasksManager(File file) {
+        this(file, 0);
     }
 
     public FileBackedTasksManager() {
+        this(new File(DEFAULT_FILE_NAME));
+    }
+
+    /**
+     * При checkpointInterval > 0 менеджер работает в режиме журнала: каждая операция дописывается
+     * в файл <file>.journal, а полный снимок в file записывается раз в checkpointInterval операций,
+     * после чего журнал становится сегментом <file>.journal.1 (см. PersistenceWriter). При checkpointInterval = 0
+     * снимок пишется после каждой операции, а сама операция - в сегмент журнала.
+     * Просмотры снимок не записывают: они копятся в HistoryLog и дописываются в <file>.history
+     * пачками раз в секунду или после 256 просмотров.
+     */
+    public FileBackedTasksManager(File file, int checkpointInterval) {
+        this(file, checkpointInterval, DurabilityPolicy.writeThrough());
+    }
+
+    public FileBackedTasksManager(File file, int checkpointInterval, DurabilityPolicy durabilityPolicy) {
+        this(file, checkpointInterval, durabilityPolicy, SnapshotFormat.CSV);
+    }
+
+    /**
+     * snapshotFormat задает формат полного снимка, журнал всегда текстовый.
+     * loadFromFile определяет формат по содержимому файла и сохраняет снимки в нем же.
+     */
+    public FileBackedTasksManager(File file,
+                                  int checkpointInterval,
+                                  DurabilityPolicy durabilityPolicy,
+                                  SnapshotFormat snapshotFormat) {
+        if (checkpointInterval < 0) {
+            throw new IllegalArgumentException("Интервал записи снимка не может быть отрицательным.");
+        }
+        this.file = file;
+        this.journalFile = new File(file.getPath() + JOURNAL_SUFFIX);
+        this.historyFile = new File(file.getPath() + HISTORY_SUFFIX);
+        this.checkpointInterval = checkpointInterval;
+        this.durabilityPolicy = durabilityPolicy;
+        this.snapshotFormat = snapshotFormat;
+        this.persistenceWriter = new PersistenceWriter(file, journalFile, durabilityPolicy);
+        this.historyLog = new HistoryLog(this::writeHistory, HISTORY_FLUSH_VIEWS, HISTORY_FLUSH_MILLIS);
     }
 
     public static FileBackedTasksManager loadFromFile(File file) {
-        FileBackedTasksManager fileBackedTasksManager = new FileBackedTasksManager(file);
-        fileBackedTasksManager.readFile(file);
+        return loadFromFile(file, 0);
+    }
+
+    public static FileBackedTasksManager loadFromFile(File file, int checkpointInterval) {
+        return loadFromFile(file, checkpointInterval, DurabilityPolicy.writeThrough());
+    }
+
+    public static FileBackedTasksManager loadFromFile(File file,
+                                                      int checkpointInterval,
+                                                      DurabilityPolicy durabilityPolicy) {
+        FileBackedTasksManager fileBackedTasksManager =
+                new FileBackedTasksManager(file, checkpointInterval, durabilityPolicy);
+        fileBackedTasksManager.restoring = true;
+        try {
+            LoadReport report = new LoadReport();
+            long start = System.nanoTime();
+            SnapshotStore snapshotStore = new SnapshotStore(file.toPath(), durabilityPolicy.getGenerations(), false);
+            ByteBuffer content = readSnapshot(snapshotStore);
+            report.record(LoadReport.READ, System.nanoTime() - start);
+            if (content != null && BinarySnapshotReader.isBinarySnapshot(content)) {
+                fileBackedTasksManager.snapshotFormat = SnapshotFormat.BINARY;
+                fileBackedTasksManager.readBinarySnapshot(content, report);
+            } else if (content != null) {
+                fileBackedTasksManager.restoreBoard(new BulkLoader().loadCsv(content, report), report);
+            } else if (!fileBackedTasksManager.journalFile.exists()) {
+                throw new ManagerSaveException("Ошибка чтения данных из файла. " + file.getPath());
+            }
+            fileBackedTasksManager.replayJournalSegments(snapshotStore.getReadGeneration());
+            fileBackedTasksManager.replayJournal(fileBackedTasksManager.journalFile);
+            fileBackedTasksManager.historyLog.restore(fileBackedTasksManager.loadedHistoryIds(),
+                    fileBackedTasksManager.replayHistoryLog());
+        } finally {
+            fileBackedTasksManager.restoring = false;
+        }
+        if (fileBackedTasksManager.journalEntries > 0) {
+            fileBackedTasksManager.checkpoint();
+        }
         return fileBackedTasksManager;
     }
 
-    private static String toString(HistoryManager manager) {
+    /**
+     * Содержимое самого нового целого поколения снимка или null, если снимка нет. Файл отображается в память
+     * и проверяется на месте, содержимое не копируется.
+     */
+    private static ByteBuffer readSnapshot(SnapshotStore snapshotStore) {
+        try {
+            return snapshotStore.read();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения данных из файла. " + e.getMessage());
+        }
+    }
+
+    public SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    private static String toString(List<Integer> history) {
         StringBuilder sb = new StringBuilder();
-        for (Task task : manager.getHistory()) {
-            sb.append(task.getId()).append(",");
+        for (Integer id : history) {
+            sb.append(id).append(",");
         }
         return sb.toString();
     }
 
     public Task taskFromString(String value) {
-        String[] taskLine = value.split(",");
-        Task task = null;
-        int id;
-        switch (TaskType.valueOf(taskLine[1])) {
-            case TASK:
-                id = Integer.parseInt(taskLine[0]);
-                if (taskLine[5].equals("null")) {
-                    task = new Task(taskLine[2], taskLine[4], Status.valueOf(taskLine[3]), null,
-                            Optional.of(Integer.parseInt(taskLine[6])).orElse(0));
-                } else {
-                    task = new Task(taskLine[2], taskLine[4], Status.valueOf(taskLine[3]), LocalDateTime.parse(taskLine[5]),
-                            Integer.parseInt(taskLine[6]));
-                }
-                task.setId(id);
-                break;
-            case SUBTASK:
-                id = Integer.parseInt(taskLine[0]);
-                if (taskLine[5].equals("null")) {
-                    task = new Subtask(taskLine[2], taskLine[4], Status.valueOf(taskLine[3]),
-                            null, Optional.of(Integer.parseInt(taskLine[6])).orElse(0),
-                            Integer.parseInt(taskLine[8]));
-                } else {
-                    task = new Subtask(taskLine[2], taskLine[4], Status.valueOf(taskLine[3]),
-                            LocalDateTime.parse(taskLine[5]), Integer.parseInt(taskLine[6]),
-                            Integer.parseInt(taskLine[8]));
+        return CsvRecords.parseTask(value);
+    }
+
+    public List<Integer> historyFromString(String value) {
+        return CsvRecords.parseHistory(value);
+    }
+
+    public void save() {
+        if (snapshotFormat == SnapshotFormat.BINARY) {
+            syncHistory();
+            byte[] snapshot = toBinarySnapshot();
+            String entry = takeSnapshotEntry();
+            submitWrite(() -> persistenceWriter.writeSnapshot(snapshot, entry));
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("id,type,name,status,description,epic,startTime,duration").append("\n");
+        for (Task value : tasks.values()) {
+            sb.append(CsvRecords.formatTask(value)).append("\n");
+        }
+        for (Epic value : epics.values()) {
+            sb.append(CsvRecords.formatTask(value)).append("\n");
+        }
+        for (Subtask value : subtasks.values()) {
+            sb.append(CsvRecords.formatTask(value)).append("\n");
+        }
+        sb.append("\n");
+
+        syncHistory();
+        List<Integer> history = historyIds();
+        if (!history.isEmpty()) {
+            sb.append(toString(history));
+        }
+        String snapshot = sb.toString();
+        String entry = takeSnapshotEntry();
+        submitWrite(() -> persistenceWriter.writeSnapshot(snapshot, entry));
+    }
+
+    /**
+     * Выполняет запись сразу или, если запись отложена (persistenceDeferred), запоминает ее до
+     * takeDeferredPersistence. Все записываемые данные должны быть собраны до вызова.
+     */
+    protected void submitWrite(Runnable write) {
+        if (persistenceDeferred) {
+            deferredWrites.add(write);
+        } else {
+            write.run();
+        }
+    }
+
+    @Override
+    protected Runnable takeDeferredPersistence() {
+        if (deferredWrites.isEmpty()) {
+            return null;
+        }
+        List<Runnable> writes = new ArrayList<>(deferredWrites);
+        deferredWrites.clear();
+        return () -> writes.forEach(Runnable::run);
+    }
+
+    private byte[] toBinarySnapshot() {
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        try {
+            BinarySnapshotWriter.write(Channels.newChannel(snapshot),
+                    new BoardData(tasks.values(), epics.values(), subtasks.values(), historyIds()));
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения данных. " + e.getMessage());
+        }
+        return snapshot.toByteArray();
+    }
+
+    /**
+     * Сохраняемая история: просмотры из всех сессий, которые накапливает HistoryLog.
+     */
+    protected List<Integer> historyIds() {
+        return historyLog.ids();
+    }
+
+    /**
+     * Убирает из сохраняемой истории удаленные задачи.
+     */
+    protected void syncHistory() {
+        historyLog.sync(id -> tasks.containsKey(id) || subtasks.containsKey(id) || epics.containsKey(id));
+    }
+
+    /**
+     * Вся загруженная история без удаленных задач, для начального состояния HistoryLog. Берется не из менеджера
+     * истории: у ограниченного или разбитого на сессии менеджера там только часть просмотров.
+     */
+    protected List<Integer> loadedHistoryIds() {
+        List<Integer> history = new ArrayList<>(loadedHistory.size());
+        for (Integer id : loadedHistory) {
+            if (tasks.containsKey(id) || subtasks.containsKey(id) || epics.containsKey(id)) {
+                history.add(id);
+            }
+        }
+        loadedHistory = new LinkedHashSet<>();
+        return history;
+    }
+
+    /**
+     * Записывает просмотры из HistoryLog в <file>.history: каждая пачка - строка id через запятую.
+     * При rewrite текущая история пишется во временный файл, который затем атомарно заменяет <file>.history,
+     * поэтому сбой во время замены не оставляет файл пустым.
+     */
+    protected void writeHistory(List<Integer> views, Collection<Integer> history, boolean rewrite)
+            throws IOException, InterruptedException {
+        StringBuilder sb = new StringBuilder();
+        for (Integer id : rewrite ? history : views) {
+            sb.append(id).append(",");
+        }
+        if (sb.length() > 0) {
+            sb.append("\n");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        if (!rewrite) {
+            writeFully(historyFile.toPath(), buffer, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            return;
+        }
+        Path live = historyFile.toPath().toAbsolutePath();
+        Path temp = Files.createTempFile(live.getParent(), live.getFileName() + ".", ".tmp");
+        try {
+            writeFully(temp, buffer, StandardOpenOption.WRITE);
+            Files.move(temp, live, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void writeFully(Path path, ByteBuffer buffer, StandardOpenOption... options) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (durabilityPolicy.isFsync()) {
+                channel.force(false);
+            }
+        }
+    }
+
+    /**
+     * Повторяет просмотры из <file>.history поверх снимка и журнала и возвращает их количество.
+     * Просмотры, уже учтенные в снимке, повторно не меняют порядок истории.
+     */
+    private int replayHistoryLog() {
+        if (!historyFile.exists()) {
+            return 0;
+        }
+        int views = 0;
+        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(historyFile, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
                 }
-                task.setId(id);
-                break;
-            case EPIC:
-                id = Integer.parseInt(taskLine[0]);
-                if (taskLine[5].equals("null")) {
-                    task = new Epic(taskLine[2], taskLine[4], null, Integer.parseInt(taskLine[6]));
-                } else {
-                    task = new Epic(taskLine[2], taskLine[4], LocalDateTime.parse(taskLine[5]),
-                            Integer.parseInt(taskLine[6]));
-                    task.setStartTime(LocalDateTime.parse(taskLine[5]));
-                    task.setDuration(Integer.parseInt(taskLine[6]));
-                    ((Epic) task).setEndTime(LocalDateTime.parse(taskLine[7]));
+                for (Integer id : historyFromString(line)) {
+                    addToHistory(id);
+                    views++;
                 }
-                task.setId(id);
-                task.setStatus(Status.valueOf(taskLine[3]));
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения истории просмотров. " + e.getMessage());
+        }
+        return views;
+    }
 
-                break;
-            default:
-                System.out.println("Не удается восстановить задачу из файла.");
+    private void addToHistory(int id) {
+        if (tasks.containsKey(id) || subtasks.containsKey(id) || epics.containsKey(id)) {
+            loadedHistory.remove(id);
+            loadedHistory.add(id);
+        }
+        if (tasks.containsKey(id)) {
+            historyManager.add(tasks.get(id));
+        } else if (subtasks.containsKey(id)) {
+            historyManager.add(subtasks.get(id));
+        } else if (epics.containsKey(id)) {
+            historyManager.add(epics.get(id));
         }
-        return task;
     }
 
-    public List<Integer> historyFromString(String value) {
-        List<Integer> historyList = new ArrayList<>();
-        String[] list = value.split(",");
-        for (String s : list) {
-            historyList.add(Integer.parseInt(s));
+    /**
+     * Ожидает, пока все операции, выполненные к моменту вызова, будут записаны согласно политике.
+     */
+    public void awaitPersistence() {
+        historyLog.flush();
+        persistenceWriter.awaitCommit(persistenceWriter.getSubmittedSequence());
+    }
+
+    public void close() {
+        historyLog.flush();
+        persistenceWriter.close();
+    }
+
+    private void persist(JournalOperation operation, String value) {
+        if (restoring) {
+            return;
+        }
+        if (checkpointInterval == 0) {
+            snapshotEntry = operation + "," + value;
+            save();
+            return;
+        }
+        String entry = operation + "," + value;
+        submitWrite(() -> persistenceWriter.append(entry));
+        journalEntries++;
+        if (journalEntries >= checkpointInterval) {
+            checkpoint();
         }
-        return historyList;
     }
 
-    public void save() {
-        try (FileWriter fileWriter = new FileWriter("taskFile.csv")) {
-            fileWriter.write("id,type,name,status,description,epic,startTime,duration" + "\n");
-            for (Task value : tasks.values()) {
-                fileWriter.write(value.toString() + "\n");
+    private String takeSnapshotEntry() {
+        String entry = snapshotEntry;
+        snapshotEntry = null;
+        return entry;
+    }
+
+    private void recordView(int id) {
+        if (!restoring) {
+            historyLog.record(id);
+        }
+    }
+
+    private void checkpoint() {
+        // после снимка журнал становится сегментом предыдущего поколения
+        save();
+        journalEntries = 0;
+    }
+
+    /**
+     * Загружено предыдущее поколение снимка: операции после него повторяются из сегментов журнала
+     * от давних к новым. Без какого-либо сегмента эти операции потеряны, и загрузка прерывается.
+     */
+    private void replayJournalSegments(int generation) {
+        for (int number = generation; number > 0; number--) {
+            File segment = persistenceWriter.journalSegment(number);
+            if (!segment.exists()) {
+                throw new ManagerSaveException("Снимок " + file.getName() + " поврежден, а операции после поколения "
+                        + generation + " не сохранены: нет журнала " + segment.getName() + ".");
             }
-            for (Epic value : epics.values()) {
-                fileWriter.write(value.toString() + "\n");
+            replayJournal(segment);
+        }
+    }
+
+    /**
+     * Повторяет записи журнала. Последняя строка без перевода строки или не разбирающаяся последняя строка -
+     * оборванная при сбое запись: журнал обрезается до последней целой записи. Неразбираемая строка
+     * в середине журнала означает его повреждение, загрузка прерывается.
+     */
+    private void replayJournal(File journalFile) {
+        if (!journalFile.exists()) {
+            return;
+        }
+        byte[] content;
+        try {
+            content = Files.readAllBytes(journalFile.toPath());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения журнала. " + e.getMessage());
+        }
+        int lineStart = 0;
+        int lineNumber = 0;
+        while (lineStart < content.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < content.length && content[lineEnd] != '\n') {
+                lineEnd++;
             }
-            for (Subtask value : subtasks.values()) {
-                fileWriter.write(value.toString() + "\n");
+            boolean complete = lineEnd < content.length;
+            int next = complete ? lineEnd + 1 : lineEnd;
+            String line = new String(content, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+            lineNumber++;
+            if (!line.isBlank()) {
+                JournalEntry entry = complete ? parseJournalEntry(line) : null;
+                if (entry == null) {
+                    if (!isBlank(content, next)) {
+                        throw new ManagerSaveException("Журнал " + journalFile.getName()
+                                + " поврежден в строке " + lineNumber + ".");
+                    }
+                    truncateJournal(journalFile, lineStart);
+                    System.out.println("Оборванная запись журнала отброшена: " + line);
+                    return;
+                }
+                try {
+                    replayEntry(entry);
+                } catch (TaskManagerException | TaskTimeValidationException e) {
+                    // запись уже учтена в снимке, если сбой произошел между записью снимка и очисткой журнала
+                    System.out.println("Запись журнала пропущена: " + line + ". " + e.getMessage());
+                }
+                journalEntries++;
             }
-            fileWriter.write("\n");
+            lineStart = next;
+        }
+    }
 
-            if (historyManager.getHistory().size() != 0) {
-                fileWriter.write(toString(historyManager));
+    private static boolean isBlank(byte[] content, int from) {
+        for (int i = from; i < content.length; i++) {
+            if (!Character.isWhitespace(content[i])) {
+                return false;
             }
+        }
+        return true;
+    }
+
+    private static void truncateJournal(File journalFile, long size) {
+        try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(size);
         } catch (IOException e) {
-            e.printStackTrace();
-            throw new ManagerSaveException("Ошибка сохранения данных. " + e.getMessage());
+            throw new ManagerSaveException("Ошибка записи журнала. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Разбирает строку журнала без изменения менеджера, null - если строка не разбирается.
+     */
+    private JournalEntry parseJournalEntry(String line) {
+        String[] parts = line.split(",", 2);
+        if (parts.length != 2) {
+            return null;
+        }
+        try {
+            JournalOperation operation = JournalOperation.valueOf(parts[0]);
+            switch (operation) {
+                case PUT:
+                    Task task = taskFromString(parts[1]);
+                    return task == null ? null : new JournalEntry(operation, task, 0, null);
+                case DELETE:
+                case VIEW:
+                    return new JournalEntry(operation, null, Integer.parseInt(parts[1]), null);
+                case DELETE_ALL:
+                    if (!parts[1].equals("ALL")) {
+                        TaskType.valueOf(parts[1]);
+                    }
+                    return new JournalEntry(operation, null, 0, parts[1]);
+                default:
+                    return null;
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeException e) {
+            return null;
         }
     }
 
-    private void readFile(File file) {
-        try (FileReader fileReader = new FileReader(file)) {
-            BufferedReader bufferedReader = new BufferedReader(fileReader);
-            bufferedReader.readLine();
-            while (bufferedReader.ready()) {
-                String line = bufferedReader.readLine();
-                String[] lineSeparated = line.split(",");
-                if (!line.isBlank()) {
-                    Task task;
-                    switch (TaskType.valueOf(lineSeparated[1])) {
-                        case TASK:
-                            task = taskFromString(line);
-                            int taskId = task.getId();
+    private void replayEntry(JournalEntry entry) {
+        switch (entry.operation) {
+            case PUT:
+                Task task = entry.task;
+                switch (task.getTaskType()) {
+                    case TASK:
+                        if (tasks.containsKey(task.getId())) {
+                            updateTask(task);
+                        } else {
                             createTask(task);
-                            task.setId(taskId);
-                            break;
-                        case SUBTASK:
-                            task = taskFromString(line);
-                            int subtaskId = task.getId();
+                        }
+                        break;
+                    case SUBTASK:
+                        if (subtasks.containsKey(task.getId())) {
+                            updateSubtask((Subtask) task);
+                        } else {
                             createSubtask((Subtask) task);
-                            task.setId(subtaskId);
-                            break;
-                        case EPIC:
-                            task = taskFromString(line);
-                            LocalDateTime endTime = task.getEndTime();
-                            int epicId = task.getId();
+                        }
+                        break;
+                    case EPIC:
+                        if (epics.containsKey(task.getId())) {
+                            updateEpic((Epic) task);
+                        } else {
                             createEpic((Epic) task);
-                            task.setId(epicId);
-                            ((Epic) task).setEndTime(endTime);
-                            break;
-                        default:
-                            System.out.println("Не удается прочитать задачу из файла.");
-                    }
-                } else if (line.isBlank()) {
-                    line = bufferedReader.readLine();
-                    if (line == null) {
-                        return;
-                    } else {
-                        for (Integer id : historyFromString(line)) {
-                            if (tasks.containsKey(id)) {
-                                Task task = tasks.get(id);
-                                historyManager.add(task);
-                            } else if (epics.containsKey(id)) {
-                                Epic epic = epics.get(id);
-                                historyManager.add(epic);
-                            } else {
-                                Subtask subtask = subtasks.get(id);
-                                historyManager.add(subtask);
-                            }
                         }
-                    }
+                        break;
                 }
-            }
-        } catch (IOException ex) {
-            throw new ManagerSaveException("Ошибка чтения данных из файла. " + ex.getMessage());
+                break;
+            case DELETE:
+                int id = entry.id;
+                if (tasks.containsKey(id)) {
+                    deleteTaskById(id);
+                } else if (subtasks.containsKey(id)) {
+                    deleteSubtaskById(id);
+                } else if (epics.containsKey(id)) {
+                    deleteEpicById(id);
+                }
+                break;
+            case DELETE_ALL:
+                if (entry.value.equals(String.valueOf(TaskType.TASK))) {
+                    deleteAllTasks();
+                } else if (entry.value.equals(String.valueOf(TaskType.SUBTASK))) {
+                    deleteAllSubtasks();
+                } else if (entry.value.equals(String.valueOf(TaskType.EPIC))) {
+                    deleteAllEpics();
+                } else {
+                    deleteAllTaskTypes();
+                }
+                break;
+            case VIEW:
+                // просмотры пишутся в <file>.history, такие записи остаются только в журналах старых версий
+                addToHistory(entry.id);
+                break;
         }
     }
 
+    private void readBinarySnapshot(ByteBuffer content, LoadReport report) {
+        long start = System.nanoTime();
+        BoardData board;
+        try {
+            board = BinarySnapshotReader.read(content);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения данных из файла. " + e.getMessage());
+        }
+        report.record(LoadReport.PARSE, System.nanoTime() - start);
+        restoreBoard(board, report);
+    }
+
+    /**
+     * Заполняет менеджер разобранным снимком одним построением структур (bulkLoad), без проверок
+     * и записи на диск: снимок записан этим менеджером и уже прошел проверки.
+     */
+    protected void restoreBoard(BoardData board, LoadReport report) {
+        long start = System.nanoTime();
+        bulkLoad(board.getTasks(), board.getEpics(), board.getSubtasks());
+        report.record(LoadReport.BUILD, System.nanoTime() - start);
+        start = System.nanoTime();
+        for (Integer id : board.getHistory()) {
+            addToHistory(id);
+        }
+        report.record(LoadReport.HISTORY, System.nanoTime() - start);
+        report.setEntities(board.getTasks().size() + board.getEpics().size() + board.getSubtasks().size());
+        loadReport = report;
+    }
+
+    /**
+     * Время этапов последней загрузки снимка или null, если менеджер не загружался.
+     */
+    public LoadReport getLoadReport() {
+        return loadReport;
+    }
+
     @Override
     public void createTask(Task task){
         super.createTask(task);
-        save();
+        persist(JournalOperation.PUT, CsvRecords.formatTask(task));
     }
 
     @Override
     public void createEpic(Epic epic){
         super.createEpic(epic);
-        save();
+        persist(JournalOperation.PUT, CsvRecords.formatTask(epic));
     }
 
     @Override
     public void createSubtask(Subtask subtask){
         super.createSubtask(subtask);
-        save();
+        persist(JournalOperation.PUT, CsvRecords.formatTask(subtask));
     }
 
     @Override
     public void deleteAllTasks(){
         super.deleteAllTasks();
-        save();
+        persist(JournalOperation.DELETE_ALL, String.valueOf(TaskType.TASK));
     }
 
     @Override
     public void deleteAllSubtasks() {
         super.deleteAllSubtasks();
-        save();
+        persist(JournalOperation.DELETE_ALL, String.valueOf(TaskType.SUBTASK));
     }
 
     @Override
     public void deleteAllEpics(){
         super.deleteAllEpics();
-        save();
+        persist(JournalOperation.DELETE_ALL, String.valueOf(TaskType.EPIC));
     }
 
     @Override
     public void deleteAllTaskTypes(){
         super.deleteAllTaskTypes();
-        save();
+        persist(JournalOperation.DELETE_ALL, "ALL");
     }
 
     @Override
     public Task findTaskById(int taskId){
         Task task = super.findTaskById(taskId);
-        save();
+        recordView(taskId);
         return task;
     }
     @Override
     public Subtask findSubtaskById(int subtaskId){
         Subtask subtask = super.findSubtaskById(subtaskId);
-        save();
+        recordView(subtaskId);
         return subtask;
     }
 
     @Override
     public Epic findEpicById(int epicId){
         Epic epic = super.findEpicById(epicId);
-        save();
+        recordView(epicId);
         return epic;
     }
     @Override
     public void updateTask(Task updatedTask){
         super.updateTask(updatedTask);
-        save();
+        persist(JournalOperation.PUT, CsvRecords.formatTask(updatedTask));
     }
 
     @Override
     public void updateEpic(Epic updatedEpic){
         super.updateEpic(updatedEpic);
-        save();
+        persist(JournalOperation.PUT, CsvRecords.formatTask(updatedEpic));
     }
 
     @Override
     public void updateSubtask(Subtask updatedSubtask){
         super.updateSubtask(updatedSubtask);
-        save();
+        persist(JournalOperation.PUT, CsvRecords.formatTask(updatedSubtask));
     }
 
     @Override
     public void deleteTaskById(int taskId){
         super.deleteTaskById(taskId);
-        save();
+        persist(JournalOperation.DELETE, String.valueOf(taskId));
     }
 
     @Override
     public void deleteSubtaskById(int subtaskId){
         super.deleteSubtaskById(subtaskId);
-        save();
+        persist(JournalOperation.DELETE, String.valueOf(subtaskId));
     }
 
     @Override
     public void deleteEpicById(int epicId){
         super.deleteEpicById(epicId);
-        save();
+        persist(JournalOperation.DELETE, String.valueOf(epicId));
+    }
+
+    private static class JournalEntry {
+        private final JournalOperation operation;
+        private final Task task;
+        private final int id;
+        private final String value;
+
+        private JournalEntry(JournalOperation operation, Task task, int id, String value) {
+            this.operation = operation;
+            this.task = task;
+            this.id = id;
+            this.value = value;
+        }
     }
 }
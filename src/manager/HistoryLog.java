@@ -0,0 +1,188 @@
+package manager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+/**
+ * Запись просмотров отдельно от снимка доски. Просмотр только кладет id в неблокирующую очередь без монитора
+ * журнала, поэтому одновременные чтения доски не выстраиваются друг за другом. В sink просмотры уходят одной записью
+ * после flushViews просмотров или через flushIntervalMillis мс после первого незаписанного просмотра.
+ * Когда записанных просмотров становится вдвое больше, чем id в истории, записанное заменяется текущей историей.
+ * <p>
+ * История журнала общая для всех сессий PartitionedHistoryManager: в нее попадают просмотры из любой сессии,
+ * а при сверке с доской из нее убираются только удаленные задачи.
+ */
+public class HistoryLog {
+    private static final int MIN_COMPACT_VIEWS = 1024;
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "history-log-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public interface Sink {
+        /**
+         * views - новые просмотры по порядку, history - id истории с учетом этих просмотров, от давних к новым.
+         * При rewrite записанное ранее заменяется историей, иначе дописываются views.
+         */
+        void write(List<Integer> views, Collection<Integer> history, boolean rewrite)
+                throws IOException, InterruptedException;
+    }
+
+    private final Sink sink;
+    private final int flushViews;
+    private final long flushIntervalMillis;
+    private final Object sinkLock = new Object();
+    private final ConcurrentLinkedQueue<Integer> recorded = new ConcurrentLinkedQueue<>();
+    // просмотры в recorded, еще не перенесенные в pending; на время переноса может кратко расходиться с очередью
+    private final AtomicInteger recordedCount = new AtomicInteger();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final LinkedHashSet<Integer> history = new LinkedHashSet<>();
+    private List<Integer> pending = new ArrayList<>();
+    private int writtenViews;
+    // пока журнал не восстановлен, записанное в sink может относиться к прежней доске
+    private boolean rewritePending = true;
+    private boolean restored;
+    private ScheduledFuture<?> scheduledFlush;
+
+    public HistoryLog(Sink sink, int flushViews, long flushIntervalMillis) {
+        if (flushViews <= 0 || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Интервал и количество просмотров должны быть положительными.");
+        }
+        this.sink = sink;
+        this.flushViews = flushViews;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    /**
+     * Запоминает просмотр. Заполненная пачка записывается в потоке таймера, а не в потоке просмотра,
+     * который может удерживать блокировки менеджера.
+     */
+    public void record(int id) {
+        recorded.add(id);
+        int count = recordedCount.incrementAndGet();
+        if (count >= flushViews) {
+            if (flushQueued.compareAndSet(false, true)) {
+                TIMER.execute(this::flush);
+            }
+        } else if (count == 1) {
+            // лишний запуск по таймеру после записи пачки ничего не пишет
+            TIMER.schedule(this::flush, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Состояние после загрузки: ids - восстановленная история, writtenViews - сколько просмотров уже записано.
+     */
+    public synchronized void restore(Collection<Integer> ids, int writtenViews) {
+        history.clear();
+        history.addAll(ids);
+        pending = new ArrayList<>();
+        this.writtenViews = writtenViews;
+        rewritePending = false;
+        restored = true;
+    }
+
+    /**
+     * id истории от давних просмотров к новым.
+     */
+    public synchronized List<Integer> ids() {
+        drainRecorded();
+        return new ArrayList<>(history);
+    }
+
+    /**
+     * Сверяет журнал с доской после ее изменения: id, для которых exists ложно, убираются из истории,
+     * и при следующей записи записанное заменяется историей целиком. Журнал без restore при первой сверке
+     * сразу заменяет записанное: в sink могут оставаться просмотры прежней доски.
+     */
+    public void sync(IntPredicate exists) {
+        synchronized (this) {
+            drainRecorded();
+            boolean removed = history.removeIf(id -> !exists.test(id));
+            if (restored && !removed) {
+                return;
+            }
+            rewritePending = true;
+            if (restored) {
+                if (scheduledFlush == null) {
+                    scheduledFlush = TIMER.schedule(this::flush, flushIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+            restored = true;
+        }
+        flush();
+    }
+
+    /**
+     * Записывает накопленное. Запись в sink идет вне монитора журнала, поэтому просмотры во время записи
+     * не ждут ее окончания; записи в sink выполняются по одной.
+     */
+    public void flush() {
+        synchronized (sinkLock) {
+            List<Integer> views;
+            List<Integer> snapshot;
+            boolean rewrite;
+            synchronized (this) {
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+                flushQueued.set(false);
+                drainRecorded();
+                if (pending.isEmpty() && !rewritePending) {
+                    return;
+                }
+                rewrite = rewritePending
+                        || writtenViews + pending.size() > Math.max(MIN_COMPACT_VIEWS, 2 * history.size());
+                views = pending;
+                snapshot = new ArrayList<>(history);
+                pending = new ArrayList<>();
+                rewritePending = false;
+            }
+            boolean written = false;
+            try {
+                sink.write(Collections.unmodifiableList(views), Collections.unmodifiableList(snapshot), rewrite);
+                written = true;
+            } catch (IOException e) {
+                System.out.println("Ошибка записи истории просмотров. " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                if (written) {
+                    writtenViews = rewrite ? snapshot.size() : writtenViews + views.size();
+                } else {
+                    // незаписанные просмотры уже учтены в history
+                    rewritePending = true;
+                }
+            }
+        }
+    }
+
+    // вызывается под монитором журнала
+    private void drainRecorded() {
+        int drained = 0;
+        Integer id;
+        while ((id = recorded.poll()) != null) {
+            history.remove(id);
+            history.add(id);
+            pending.add(id);
+            drained++;
+        }
+        recordedCount.addAndGet(-drained);
+    }
+}
@@ -0,0 +1,26 @@
+package manager;
+
+/**
+ * Ключ сессии текущего потока, по которому PartitionedHistoryManager выбирает историю пользователя.
+ * Устанавливается обработчиком запроса перед обращением к менеджеру задач и сбрасывается после.
+ */
+public final class HistorySession {
+    public static final String DEFAULT_SESSION = "";
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private HistorySession() {
+    }
+
+    public static void set(String session) {
+        CURRENT.set(session);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public static String current() {
+        String session = CURRENT.get();
+        return session == null ? DEFAULT_SESSION : session;
+    }
+}
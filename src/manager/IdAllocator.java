@@ -0,0 +1,13 @@
+package manager;
+
+/**
+ * Источник номеров для задач, эпиков и подзадач.
+ * observe(id) сообщает о номере, присвоенном вне аллокатора (например, при восстановлении из файла),
+ * чтобы новые номера с ним не совпадали.
+ */
+public interface IdAllocator {
+
+    int nextId();
+
+    void observe(int id);
+}
@@ -4,16 +4,47 @@ import tasks.Task;
 
 import java.util.*;
 
-public class InMemoryHistoryManager implements HistoryManager{
+/**
+ * История просмотров на примитивных массивах: двусвязный список задач хранится в массивах previous/next
+ * по номерам ячеек, а поиск ячейки по id выполняется в хэш-таблице с открытой адресацией.
+ * add и remove выполняются за O(1) без создания объектов. В ограниченном режиме при переполнении
+ * из истории вытесняется самый давний просмотр.
+ * <p>
+ * getHistory возвращает представление только для чтения, которое отражает текущее состояние истории.
+ */
+public class InMemoryHistoryManager implements HistoryManager {
+    private static final int NIL = -1;
+    private static final int INITIAL_CAPACITY = 16;
 
-    private final Map<Integer, Node> historyList;
-    private Node firstTask;
-    private Node lastTask;
+    private final int capacity;
+    private final List<Task> view = new HistoryView();
+    private Task[] tasks;
+    private int[] ids;
+    private int[] previous;
+    private int[] next;
+    private int[] tableIds;
+    private int[] tableSlots;
+    private int head = NIL;
+    private int tail = NIL;
+    private int freeSlot = NIL;
+    private int usedSlots;
+    private int size;
+    private int modCount;
 
     public InMemoryHistoryManager() {
-        this.historyList = new HashMap<>();
-        this.firstTask = null;
-        this.lastTask = null;
+        this.capacity = 0;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * История хранит не больше capacity последних просмотров.
+     */
+    public InMemoryHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным.");
+        }
+        this.capacity = capacity;
+        allocate(capacity);
     }
 
     @Override
@@ -21,98 +52,218 @@ public class InMemoryHistoryManager implements HistoryManager{
         if (task == null) {
             return;
         }
-        if (historyList.containsKey(task.getId())) {
-            Node node = historyList.get(task.getId());
-            removeNode(node);
-            linkLast(task);
-            return;
+        int slot = findSlot(task.getId());
+        if (slot != NIL) {
+            unlink(slot);
+        } else {
+            if (capacity > 0 && size == capacity) {
+                removeSlot(head);
+            }
+            slot = takeFreeSlot();
+            ids[slot] = task.getId();
+            putSlot(task.getId(), slot);
+            size++;
         }
-        linkLast(task);
+        tasks[slot] = task;
+        linkLast(slot);
+        modCount++;
     }
 
-    private void linkLast(Task task) {
-        if (firstTask == null) {
-            Node newNode = new Node(null, task, null);
-            firstTask = newNode;
-            lastTask = firstTask;
-            historyList.put(task.getId(), newNode);
-        } else {
-            Node lastButOneTask = lastTask;
-            Node newNode = new Node(lastButOneTask, task, null);
-            lastTask = newNode;
-            lastButOneTask.nextTask = newNode;
-            historyList.put(task.getId(), newNode);
+    @Override
+    public void remove(int id) {
+        int slot = findSlot(id);
+        if (slot != NIL) {
+            removeSlot(slot);
         }
     }
 
-    private void removeNode(Node node) {
-        if (node.nextTask == null && node.previousTask == null) {
-            historyList.clear();
-            firstTask = null;
-            lastTask = null;
-            return;
-        } else if (node.previousTask == null) {
-            firstTask = node.nextTask;
-            firstTask.previousTask = null;
-            historyList.remove(node.taskValue.getId());
-            return;
-        } else if (node.nextTask == null) {
-            lastTask = node.previousTask;
-            node.previousTask.nextTask = null;
-            return;
+    @Override
+    public void clear() {
+        Arrays.fill(tasks, 0, usedSlots, null);
+        Arrays.fill(tableSlots, 0);
+        head = NIL;
+        tail = NIL;
+        freeSlot = NIL;
+        usedSlots = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return view;
+    }
+
+    private void allocate(int slots) {
+        tasks = new Task[slots];
+        ids = new int[slots];
+        previous = new int[slots];
+        next = new int[slots];
+        int tableSize = Integer.highestOneBit(Math.max(2, slots * 2 - 1)) << 1;
+        tableIds = new int[tableSize];
+        tableSlots = new int[tableSize];
+    }
+
+    private int takeFreeSlot() {
+        if (freeSlot != NIL) {
+            int slot = freeSlot;
+            freeSlot = next[slot];
+            return slot;
+        }
+        if (usedSlots == tasks.length) {
+            grow();
         }
-        node.previousTask.nextTask = node.nextTask;
-        node.nextTask.previousTask = node.previousTask;
-        historyList.remove(node.taskValue.getId());
+        return usedSlots++;
     }
 
-    private List<Task> getTasks() {
-       ArrayList<Task> historyTaskList= new ArrayList<>();
-       Node node = firstTask;
-       if (firstTask != null) {
-           while (node.nextTask != null) {
-               historyTaskList.add(node.taskValue);
-               node = node.nextTask;
-           }
-       }
-       if (lastTask != null) {
-           historyTaskList.add(lastTask.taskValue);
-       }
-       return historyTaskList;
+    private void grow() {
+        Task[] oldTasks = tasks;
+        int[] oldIds = ids;
+        int[] oldPrevious = previous;
+        int[] oldNext = next;
+        allocate(oldTasks.length * 2);
+        System.arraycopy(oldTasks, 0, tasks, 0, usedSlots);
+        System.arraycopy(oldIds, 0, ids, 0, usedSlots);
+        System.arraycopy(oldPrevious, 0, previous, 0, usedSlots);
+        System.arraycopy(oldNext, 0, next, 0, usedSlots);
+        for (int slot = head; slot != NIL; slot = next[slot]) {
+            putSlot(ids[slot], slot);
+        }
     }
 
-    @Override
-    public void remove(int id) {
-        if (historyList.containsKey(id)) {
-            Node node = historyList.get(id);
-            removeNode(node);
+    private void removeSlot(int slot) {
+        unlink(slot);
+        removeFromTable(ids[slot]);
+        tasks[slot] = null;
+        next[slot] = freeSlot;
+        freeSlot = slot;
+        size--;
+        modCount++;
+    }
+
+    private void linkLast(int slot) {
+        previous[slot] = tail;
+        next[slot] = NIL;
+        if (tail == NIL) {
+            head = slot;
         } else {
-            return;
+            next[tail] = slot;
         }
+        tail = slot;
     }
 
-    @Override
-    public void clear() {
-        getHistory().clear();
-        historyList.clear();
-        firstTask = null;
-        lastTask = null;
+    private void unlink(int slot) {
+        int before = previous[slot];
+        int after = next[slot];
+        if (before == NIL) {
+            head = after;
+        } else {
+            next[before] = after;
+        }
+        if (after == NIL) {
+            tail = before;
+        } else {
+            previous[after] = before;
+        }
     }
 
-    @Override
-    public List<Task> getHistory() {
-        return getTasks();
+    private int indexFor(int id) {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (tableIds.length - 1);
+    }
+
+    // в tableSlots хранится номер ячейки + 1, ноль означает пустую позицию
+    private int findSlot(int id) {
+        int mask = tableIds.length - 1;
+        for (int i = indexFor(id); tableSlots[i] != 0; i = (i + 1) & mask) {
+            if (tableIds[i] == id) {
+                return tableSlots[i] - 1;
+            }
+        }
+        return NIL;
     }
 
-    private static class Node {
-        private Node previousTask;
-        private final Task taskValue;
-        private Node nextTask;
+    private void putSlot(int id, int slot) {
+        int mask = tableIds.length - 1;
+        int i = indexFor(id);
+        while (tableSlots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        tableIds[i] = id;
+        tableSlots[i] = slot + 1;
+    }
+
+    private void removeFromTable(int id) {
+        int mask = tableIds.length - 1;
+        int i = indexFor(id);
+        while (tableIds[i] != id || tableSlots[i] == 0) {
+            i = (i + 1) & mask;
+        }
+        tableSlots[i] = 0;
+        // сдвигаем следующие записи цепочки, чтобы поиск не останавливался на образовавшейся дыре
+        for (int j = (i + 1) & mask; tableSlots[j] != 0; j = (j + 1) & mask) {
+            int home = indexFor(tableIds[j]);
+            boolean reachable = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (!reachable) {
+                tableIds[i] = tableIds[j];
+                tableSlots[i] = tableSlots[j];
+                tableSlots[j] = 0;
+                i = j;
+            }
+        }
+    }
+
+    private class HistoryView extends AbstractList<Task> {
+
+        @Override
+        public Task get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Индекс " + index + ", размер истории " + size);
+            }
+            int slot;
+            if (index < size / 2) {
+                slot = head;
+                for (int i = 0; i < index; i++) {
+                    slot = next[slot];
+                }
+            } else {
+                slot = tail;
+                for (int i = size - 1; i > index; i--) {
+                    slot = previous[slot];
+                }
+            }
+            return tasks[slot];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<Task> iterator() {
+            return new Iterator<>() {
+                private final int expectedModCount = modCount;
+                private int slot = head;
+
+                @Override
+                public boolean hasNext() {
+                    return slot != NIL;
+                }
 
-        public Node(Node previousTask, Task taskValue, Node nextTask) {
-            this.previousTask = previousTask;
-            this.taskValue = taskValue;
-            this.nextTask = nextTask;
+                @Override
+                public Task next() {
+                    if (modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if (slot == NIL) {
+                        throw new NoSuchElementException();
+                    }
+                    Task task = tasks[slot];
+                    slot = next[slot];
+                    return task;
+                }
+            };
         }
     }
 }
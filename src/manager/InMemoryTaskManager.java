@@ -1,102 +1,136 @@
 package manager;
 
-import comparators.TaskIdComparator;
 import comparators.TaskStartTimeComparator;
 import exceptions.TaskManagerException;
 import exceptions.TaskTimeValidationException;
 import tasks.*;
 
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.function.Predicate;
 
 public class InMemoryTaskManager implements TaskManager {
-    protected int id;
-    protected HashMap<Integer, Task> tasks;
-    protected HashMap<Integer, Subtask> subtasks;
-    protected HashMap<Integer, Epic> epics;
+    protected TreeMap<Integer, Task> tasks;
+    protected TreeMap<Integer, Subtask> subtasks;
+    protected TreeMap<Integer, Epic> epics;
+    private final EntityIndex entityIndex;
     private final TaskStartTimeComparator taskStartTimeComparator;
-    private final TaskIdComparator taskIdComparator;
-    protected Set<Task> prioritizedTasks;
-    protected Set<Task> allTasks;
+    protected TreeSet<Task> prioritizedTasks;
     protected HistoryManager historyManager;
+    protected TimeSlotIndex timeSlotIndex;
+    protected IdAllocator idAllocator;
+    private boolean epicAggregatesVerification;
+    private BoardChangeListener changeListener;
+    // запись изменений откладывается до снятия блокировки ConcurrentTaskManager
+    protected boolean persistenceDeferred;
 
     public InMemoryTaskManager() {
-        this.id = 1;
-        this.tasks = new HashMap<>();
-        this.subtasks = new HashMap<>();
-        this.epics = new HashMap<>();
+        this.tasks = new TreeMap<>();
+        this.subtasks = new TreeMap<>();
+        this.epics = new TreeMap<>();
+        this.entityIndex = new EntityIndex();
         this.taskStartTimeComparator = new TaskStartTimeComparator();
-        this.taskIdComparator = new TaskIdComparator();
         this.prioritizedTasks = new TreeSet<>(taskStartTimeComparator);
-        this.allTasks = new TreeSet<>(taskIdComparator);
         this.historyManager = Managers.getDefaultHistory();
+        this.timeSlotIndex = Managers.getDefaultTimeSlotIndex();
+        this.idAllocator = Managers.getDefaultIdAllocator();
     }
 
-    private int generateId() {
-        return id++;
+    /**
+     * Включает сверку инкрементально поддерживаемых агрегатов эпика (статус, время, длительность)
+     * с полным пересчетом по подзадачам после каждого изменения. Предназначено для тестов.
+     */
+    public void setEpicAggregatesVerification(boolean enabled) {
+        this.epicAggregatesVerification = enabled;
+    }
+
+    /**
+     * Вызывается после создания или изменения задачи, подзадачи или эпика, в том числе когда
+     * у эпика изменились агрегаты из-за его подзадач. Используется наследниками для отслеживания изменений.
+     */
+    protected void onEntityChanged(Task task) {
+    }
+
+    /**
+     * Вызывается после удаления задачи, подзадачи или эпика, в том числе каскадного.
+     */
+    protected void onEntityRemoved(Task task) {
+    }
+
+    void setChangeListener(BoardChangeListener changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    /**
+     * Записи на диск или сервер, отложенные при persistenceDeferred, одним действием или null, если их нет.
+     * Данные для записи уже собраны, поэтому действие не обращается к состоянию менеджера.
+     */
+    protected Runnable takeDeferredPersistence() {
+        return null;
+    }
+
+    /**
+     * Выполняет изменение, откладывая его запись, и возвращает отложенную запись (или null).
+     */
+    Runnable applyDeferringPersistence(Runnable operation) {
+        persistenceDeferred = true;
+        try {
+            operation.run();
+        } finally {
+            persistenceDeferred = false;
+        }
+        return takeDeferredPersistence();
+    }
+
+    private void entityChanged(Task task) {
+        onEntityChanged(task);
+        if (changeListener != null) {
+            changeListener.changed(task);
+        }
+    }
+
+    private void entityRemoved(Task task) {
+        onEntityRemoved(task);
+        if (changeListener != null) {
+            changeListener.removed(task);
+        }
+    }
+
+    private void assignId(Task task) {
+        if (task.getId() == 0) {
+            task.setId(idAllocator.nextId());
+        } else {
+            idAllocator.observe(task.getId());
+        }
     }
 
     @Override
     public void createTask(Task task) {
         validateTaskTime(task);
-        if (task.getId() == 0) {
-            int id;
-            if (!tasks.isEmpty() || !subtasks.isEmpty() || !epics.isEmpty()) {
-                id = 0;
-                Optional<Task> t = allTasks.stream().findFirst();
-                if (t.isPresent()) {
-                    id = t.get().getId() + 1;
-                }
-            } else {
-                id = generateId();
-            }
-            task.setId(id);
-        }
+        assignId(task);
         tasks.put(task.getId(), task);
+        entityIndex.put(task);
         addToPrioritizedList(task);
-        allTasks.add(task);
+        entityChanged(task);
     }
 
     @Override
     public void createEpic(Epic epic) {
-        if (epic.getId() == 0) {
-            int id;
-            if (!tasks.isEmpty() || !subtasks.isEmpty() || !epics.isEmpty()) {
-                id = 0;
-                Optional<Task> t = allTasks.stream().findFirst();
-                if (t.isPresent()) {
-                    id = t.get().getId() + 1;
-                }
-            } else {
-                id = generateId();
-            }
-            epic.setId(id);
-        }
+        assignId(epic);
         if (epic.getStatus() == null) {
             epic.setStatus(Status.NEW);
         }
         epics.put(epic.getId(), epic);
+        entityIndex.put(epic);
         epic.setEndTime(null);
-        allTasks.add(epic);
+        entityChanged(epic);
     }
 
     @Override
     public void createSubtask(Subtask subtask) {
         validateTaskTime(subtask);
-        if (subtask.getId() == 0) {
-            int id;
-            if (!tasks.isEmpty() || !subtasks.isEmpty() || !epics.isEmpty()) {
-                id = 0;
-                Optional<Task> t = allTasks.stream().findFirst();
-                if (t.isPresent()) {
-                    id = t.get().getId() + 1;
-                }
-            } else {
-                id = generateId();
-            }
-            subtask.setId(id);
-        }
+        assignId(subtask);
         subtasks.put(subtask.getId(), subtask);
+        entityIndex.put(subtask);
         addToPrioritizedList(subtask);
         int epicId = subtask.getEpicId();
         Epic epic = epics.get(epicId);
@@ -104,44 +138,77 @@ public class InMemoryTaskManager implements TaskManager {
             throw new TaskManagerException("Для данной подзадачи еще не создан эпик.");
         }
         epic.addSubtask(subtask.getId());
-        computeEpicStatus(epic);
-        computeEpicStartEndTime(epic);
-        computeEpicDuration(epic);
-        allTasks.add(subtask);
+        epic.addSubtaskAggregates(subtask);
+        verifyEpicAggregates(epic);
+        entityChanged(subtask);
+        entityChanged(epic);
     }
 
-    private void computeEpicStartEndTime(Epic epic) {
-        Predicate<Subtask> filter = t -> t.getStartTime() != null;
-        List<Subtask> subtasksInEpic = getAllSubtasksByEpic(epic.getId());
-        if (subtasksInEpic.isEmpty()) {
-            return;
+    /**
+     * Заполняет пустой менеджер сущностями из снимка без проверки пересечений по времени и без вызова
+     * onEntityChanged. Пересечения проверяются одним проходом по отсортированному списку, а не поиском
+     * в индексе времени для каждой задачи, агрегаты эпиков считаются по их подзадачам.
+     * Снимок должен быть согласованным: у каждой подзадачи есть эпик, интервалы задач не пересекаются.
+     * Пересекающиеся интервалы не загружаются: выбрасывается TaskTimeValidationException.
+     */
+    public void bulkLoad(Collection<Task> tasks, Collection<Epic> epics, Collection<Subtask> subtasks) {
+        if (!this.tasks.isEmpty() || !this.epics.isEmpty() || !this.subtasks.isEmpty()) {
+            throw new TaskManagerException("Массовая загрузка возможна только в пустой менеджер.");
+        }
+        if (changeListener != null) {
+            changeListener.reset();
+        }
+        putAll(this.tasks, tasks);
+        putAll(this.epics, epics);
+        putAll(this.subtasks, subtasks);
+        entityIndex.ensureCapacity(this.tasks.size() + this.epics.size() + this.subtasks.size());
+        List<Task> prioritized = new ArrayList<>(this.tasks.size() + this.subtasks.size());
+        for (Task task : this.tasks.values()) {
+            entityIndex.put(task);
+            prioritized.add(task);
         }
-        subtasksInEpic.sort(taskStartTimeComparator);
-        List<Subtask> sortedSubtasks = new ArrayList<>();
-        for (Subtask subtask : subtasksInEpic){
-            if (filter.test(subtask)){
-                sortedSubtasks.add(subtask);
+        for (Epic epic : this.epics.values()) {
+            if (epic.getStatus() == null) {
+                epic.setStatus(Status.NEW);
             }
+            if (epic.getSubtasks() == null || !epic.getSubtasks().isEmpty()) {
+                epic.setSubtasks(new ArrayList<>());
+            }
+            entityIndex.put(epic);
         }
-        if (sortedSubtasks.isEmpty()) {
-            return;
+        for (Subtask subtask : this.subtasks.values()) {
+            Epic epic = this.epics.get(subtask.getEpicId());
+            if (epic == null) {
+                throw new TaskManagerException("Для данной подзадачи еще не создан эпик.");
+            }
+            entityIndex.put(subtask);
+            prioritized.add(subtask);
+            epic.addSubtask(subtask.getId());
+            epic.addSubtaskAggregates(subtask);
+        }
+        prioritized.sort(taskStartTimeComparator);
+        try {
+            timeSlotIndex.addAll(prioritized);
+        } catch (TaskTimeValidationException e) {
+            // пересечения в снимке обнаруживаются только здесь, менеджер остается пустым
+            this.tasks.clear();
+            this.epics.clear();
+            this.subtasks.clear();
+            entityIndex.clear();
+            throw e;
+        }
+        prioritizedTasks.addAll(prioritized);
+        for (TreeMap<Integer, ? extends Task> entities : List.of(this.tasks, this.epics, this.subtasks)) {
+            if (!entities.isEmpty()) {
+                idAllocator.observe(entities.lastKey());
+            }
         }
-        Subtask firstSubtask = sortedSubtasks.get(0);
-        Subtask lastSubtask = sortedSubtasks.get(sortedSubtasks.size() - 1);
-        epic.setStartTime(firstSubtask.getStartTime());
-        epic.setEndTime(lastSubtask.getEndTime());
     }
 
-    private void computeEpicDuration(Epic epic) {
-        int epicDuration = 0;
-        List<Subtask> subtasksInEpic = getAllSubtasksByEpic(epic.getId());
-        if (subtasksInEpic == null) {
-            throw new TaskManagerException("У эпика отсутствуют подзадачи. Установить длительность эпика невозможно.");
-        }
-        for (Subtask subtask : subtasksInEpic) {
-            epicDuration = epicDuration + subtask.getDuration();
+    private static <T extends Task> void putAll(TreeMap<Integer, T> entities, Collection<T> loaded) {
+        for (T entity : loaded) {
+            entities.put(entity.getId(), entity);
         }
-        epic.setDuration(epicDuration);
     }
 
     public List<Subtask> getAllSubtasksByEpic(int epicId) {
@@ -160,31 +227,46 @@ public class InMemoryTaskManager implements TaskManager {
         return subtasksInEpic;
     }
 
-    private void computeEpicStatus(Epic epic) {
+    private void verifyEpicAggregates(Epic epic) {
+        if (!epicAggregatesVerification) {
+            return;
+        }
         int counterNew = 0;
         int counterDone = 0;
-        List<Integer> subtasks = epic.getSubtasks();
-        if (subtasks == null) {
-            throw new TaskManagerException("В данном эпике нет указанной подзадачи.");
-        }
-        for (Integer sub : subtasks) {
-            Subtask subtask = this.subtasks.get(sub);
+        int duration = 0;
+        LocalDateTime startTime = null;
+        LocalDateTime endTime = null;
+        List<Subtask> subtasksInEpic = getAllSubtasksByEpic(epic.getId());
+        for (Subtask subtask : subtasksInEpic) {
             if (subtask.getStatus() == Status.NEW) {
                 counterNew++;
             } else if (subtask.getStatus() == Status.DONE) {
                 counterDone++;
             }
+            duration = duration + subtask.getDuration();
+            if (subtask.getStartTime() == null) {
+                continue;
+            }
+            if (startTime == null || subtask.getStartTime().isBefore(startTime)) {
+                startTime = subtask.getStartTime();
+            }
+            if (endTime == null || subtask.getEndTime().isAfter(endTime)) {
+                endTime = subtask.getEndTime();
+            }
         }
-        if (subtasks.size() == 0) {
-            epic.setStatus(Status.NEW);
-            return;
-        }
-        if (counterNew == subtasks.size()) {
-            epic.setStatus(Status.NEW);
-        } else if (counterDone == subtasks.size()) {
-            epic.setStatus(Status.DONE);
+        Status status;
+        if (counterNew == subtasksInEpic.size()) {
+            status = Status.NEW;
+        } else if (counterDone == subtasksInEpic.size()) {
+            status = Status.DONE;
         } else {
-            epic.setStatus(Status.IN_PROGRESS);
+            status = Status.IN_PROGRESS;
+        }
+        if (epic.getStatus() != status
+                || epic.getDuration() != duration
+                || !Objects.equals(epic.getStartTime(), startTime)
+                || !Objects.equals(epic.getEndTime(), endTime)) {
+            throw new TaskManagerException("Агрегаты эпика " + epic.getId() + " расходятся с полным пересчетом.");
         }
     }
 
@@ -215,15 +297,161 @@ public class InMemoryTaskManager implements TaskManager {
         return tasks;
     }
 
+    @Override
+    public TaskPage<Task> getTasks(TaskQuery query) {
+        if (query.getEpicId() != null) {
+            throw new TaskManagerException("Фильтр по эпику применим только к подзадачам.");
+        }
+        if (query.getOrder() == TaskQuery.Order.BY_ID) {
+            return page(walkById(tasks, query), query);
+        }
+        return page(walkByStartTime(TaskType.TASK, query), query);
+    }
+
+    @Override
+    public TaskPage<Subtask> getSubtasks(TaskQuery query) {
+        if (query.getEpicId() != null) {
+            Epic epic = epics.get(query.getEpicId());
+            if (epic == null) {
+                throw new TaskManagerException("Эпик не найден по id.");
+            }
+            // подзадач у эпика немного, поэтому они сортируются целиком
+            List<Subtask> subtasksInEpic = new ArrayList<>();
+            if (epic.getSubtasks() != null) {
+                for (Integer subtaskId : epic.getSubtasks()) {
+                    subtasksInEpic.add(subtasks.get(subtaskId));
+                }
+            }
+            return page(sorted(subtasksInEpic, TaskType.SUBTASK, query).iterator(), query);
+        }
+        if (query.getOrder() == TaskQuery.Order.BY_ID) {
+            return page(walkById(subtasks, query), query);
+        }
+        return page(walkByStartTime(TaskType.SUBTASK, query), query);
+    }
+
+    @Override
+    public TaskPage<Epic> getEpics(TaskQuery query) {
+        if (query.getEpicId() != null) {
+            throw new TaskManagerException("Фильтр по эпику применим только к подзадачам.");
+        }
+        if (query.getOrder() == TaskQuery.Order.BY_ID) {
+            return page(walkById(epics, query), query);
+        }
+        // эпиков нет в индексе по времени: время начала эпика - агрегат его подзадач
+        List<Epic> matchingEpics = new ArrayList<>();
+        for (Epic epic : epics.values()) {
+            if (query.matches(epic)) {
+                matchingEpics.add(epic);
+            }
+        }
+        return page(sorted(matchingEpics, TaskType.EPIC, query).iterator(), query);
+    }
+
+    private <T extends Task> Iterator<T> walkById(TreeMap<Integer, T> entities, TaskQuery query) {
+        Map<Integer, T> tail = query.hasCursor() ? entities.tailMap(query.getCursorId(), false) : entities;
+        return tail.values().iterator();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Task> Iterator<T> walkByStartTime(TaskType type, TaskQuery query) {
+        NavigableSet<Task> tail = prioritizedTasks;
+        if (query.hasCursor()) {
+            tail = prioritizedTasks.tailSet(probe(type, query.getCursorStartTime(), query.getCursorId()), false);
+        } else if (query.getFrom() != null) {
+            tail = prioritizedTasks.tailSet(probe(type, query.getFrom(), Integer.MIN_VALUE), true);
+        }
+        Iterator<Task> candidates = tail.iterator();
+        return new Iterator<T>() {
+            private T next = advance();
+
+            private T advance() {
+                while (candidates.hasNext()) {
+                    Task task = candidates.next();
+                    if (query.hasTimeWindow() && (task.getStartTime() == null
+                            || query.getTo() != null && !task.getStartTime().isBefore(query.getTo()))) {
+                        // дальше в индексе только более поздние задачи и задачи без времени
+                        return null;
+                    }
+                    if (task.getTaskType() == type) {
+                        return (T) task;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                T current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    // задача-метка для поиска позиции в индексе по времени, сравнивается по времени, id и типу
+    private Task probe(TaskType type, LocalDateTime startTime, int id) {
+        Task probe;
+        if (type == TaskType.SUBTASK) {
+            probe = new Subtask(null, null, null, startTime, 0, 0);
+        } else if (type == TaskType.EPIC) {
+            probe = new Epic(null, null, null, 0);
+            probe.setStartTime(startTime);
+        } else {
+            probe = new Task(null, null, null, startTime, 0);
+        }
+        probe.setId(id);
+        return probe;
+    }
+
+    private <T extends Task> List<T> sorted(List<T> entities, TaskType type, TaskQuery query) {
+        Comparator<Task> comparator = query.getOrder() == TaskQuery.Order.BY_ID
+                ? Comparator.comparingInt(Task::getId)
+                : taskStartTimeComparator;
+        entities.sort(comparator);
+        if (!query.hasCursor()) {
+            return entities;
+        }
+        Task cursor = probe(type, query.getCursorStartTime(), query.getCursorId());
+        int position = 0;
+        while (position < entities.size() && comparator.compare(entities.get(position), cursor) <= 0) {
+            position++;
+        }
+        return entities.subList(position, entities.size());
+    }
+
+    private <T extends Task> TaskPage<T> page(Iterator<T> candidates, TaskQuery query) {
+        List<T> items = new ArrayList<>();
+        while (candidates.hasNext()) {
+            T entity = candidates.next();
+            if (!query.matches(entity)) {
+                continue;
+            }
+            if (items.size() == query.getLimit()) {
+                return new TaskPage<>(items, query.cursorOf(items.get(items.size() - 1)));
+            }
+            items.add(entity);
+        }
+        return new TaskPage<>(items, null);
+    }
+
     @Override
     public void deleteAllTasks() {
         for(Integer taskId : tasks.keySet()) {
             historyManager.remove(taskId);
             removeFromPrioritizedList(tasks.get(taskId));
-            allTasks.remove(tasks.get(taskId));
+            entityRemoved(tasks.get(taskId));
         }
         tasks.clear();
-
+        entityIndex.removeAll(TaskType.TASK);
     }
 
     @Override
@@ -231,17 +459,17 @@ public class InMemoryTaskManager implements TaskManager {
         for(Integer subTaskId : subtasks.keySet()) {
             historyManager.remove(subTaskId);
             removeFromPrioritizedList(subtasks.get(subTaskId));
-            allTasks.remove(subtasks.get(subTaskId));
+            entityRemoved(subtasks.get(subTaskId));
         }
         subtasks.clear();
+        entityIndex.removeAll(TaskType.SUBTASK);
         for (Integer id : epics.keySet()) {
             Epic epic = epics.get(id);
             if (epic == null) {
                 throw new TaskManagerException("Список эпиков и подзадач пуст.");
             }
-            List<Integer> arraylist = epic.getSubtasks();
-            arraylist.clear();
-            computeEpicStatus(epic);
+            epic.clearSubtasks();
+            entityChanged(epic);
         }
     }
 
@@ -249,27 +477,38 @@ public class InMemoryTaskManager implements TaskManager {
     public void deleteAllEpics() {
         for(Integer subTaskId : subtasks.keySet()) {
             historyManager.remove(subTaskId);
-            allTasks.remove(subtasks.get(subTaskId));
+            removeFromPrioritizedList(subtasks.get(subTaskId));
+            entityRemoved(subtasks.get(subTaskId));
         }
         for(Integer epicId : epics.keySet()) {
             historyManager.remove(epicId);
-            allTasks.remove(epics.get(epicId));
+            entityRemoved(epics.get(epicId));
         }
         subtasks.clear();
         epics.clear();
+        entityIndex.removeAll(TaskType.SUBTASK);
+        entityIndex.removeAll(TaskType.EPIC);
     }
 
     @Override
     public void deleteAllTaskTypes() {
+        for (Task task : tasks.values()) {
+            entityRemoved(task);
+        }
+        for (Subtask subtask : subtasks.values()) {
+            entityRemoved(subtask);
+        }
         for (Epic epic : epics.values()) {
-            epic.getSubtasks().clear();
+            epic.clearSubtasks();
+            entityRemoved(epic);
         }
         historyManager.clear();
         tasks.clear();
         epics.clear();
         subtasks.clear();
+        entityIndex.clear();
         prioritizedTasks.clear();
-        allTasks.clear();
+        timeSlotIndex.clear();
     }
 
     @Override
@@ -277,17 +516,11 @@ public class InMemoryTaskManager implements TaskManager {
         if (tasks.isEmpty()) {
             throw new TaskManagerException("Список задач пустой.");
         }
-        Task task = null;
-        if (tasks.containsKey(taskId)) {
-            for (Integer idNumber : tasks.keySet()) {
-                if (idNumber == taskId) {
-                    task = tasks.get(idNumber);
-                    historyManager.add(task);
-                }
-            }
-        } else {
+        Task task = findEntity(taskId, TaskType.TASK, tasks);
+        if (task == null) {
             throw new TaskManagerException("Задачи с таким номером не существует");
         }
+        historyManager.add(task);
         return task;
     }
 
@@ -296,17 +529,11 @@ public class InMemoryTaskManager implements TaskManager {
         if (subtasks.isEmpty()) {
             throw new TaskManagerException("Список подзадач пустой.");
         }
-        Subtask subtask = null;
-        if (subtasks.containsKey(subtaskId)) {
-            for (Integer idNumber : subtasks.keySet()) {
-                if (idNumber == subtaskId) {
-                    subtask = subtasks.get(idNumber);
-                    historyManager.add(subtask);
-                }
-            }
-        } else {
+        Subtask subtask = findEntity(subtaskId, TaskType.SUBTASK, subtasks);
+        if (subtask == null) {
             throw new TaskManagerException("Подзадачи с таким номером не существует");
         }
+        historyManager.add(subtask);
         return subtask;
     }
 
@@ -315,20 +542,24 @@ public class InMemoryTaskManager implements TaskManager {
         if (epics.isEmpty()) {
             throw new TaskManagerException("Список эпиков пустой.");
         }
-        Epic epic = null;
-        if (epics.containsKey(epicId)) {
-            for (Integer idNumber : epics.keySet()) {
-                if (idNumber == epicId) {
-                    epic = epics.get(idNumber);
-                    historyManager.add(epic);
-                }
-            }
-        } else {
+        Epic epic = findEntity(epicId, TaskType.EPIC, epics);
+        if (epic == null) {
             throw new TaskManagerException("Эпика с таким номером не существует");
         }
+        historyManager.add(epic);
         return epic;
     }
 
+    @SuppressWarnings("unchecked")
+    private <T extends Task> T findEntity(int id, TaskType type, Map<Integer, T> entities) {
+        Task entity = entityIndex.get(id, type);
+        if (entity != null) {
+            return (T) entity;
+        }
+        // id могли задать вручную одинаковым у сущностей разных типов, тогда в индексе только одна из них
+        return entities.get(id);
+    }
+
     @Override
     public void updateTask(Task updatedTask) {
         int idToUpdate = updatedTask.getId();
@@ -338,11 +569,13 @@ public class InMemoryTaskManager implements TaskManager {
         if (!tasks.containsKey(idToUpdate)){
             throw new TaskManagerException("Задача для обновления не найдена по данному номеру.");
         }
-        removeFromPrioritizedList(tasks.get(idToUpdate));
-        tasks.remove(idToUpdate);
-        validateTaskTime(updatedTask);
+        Task taskToUpdate = tasks.get(idToUpdate);
+        validateTaskTime(updatedTask, taskToUpdate);
+        removeFromPrioritizedList(taskToUpdate);
         tasks.put(idToUpdate, updatedTask);
+        entityIndex.put(updatedTask);
         addToPrioritizedList(updatedTask);
+        entityChanged(updatedTask);
     }
 
     @Override
@@ -358,7 +591,10 @@ public class InMemoryTaskManager implements TaskManager {
         List<Integer> subtasks = epicToUpdate.getSubtasks();
         epics.remove(idToUpdate);
         epics.put(idToUpdate, updatedEpic);
+        entityIndex.put(updatedEpic);
         updatedEpic.setSubtasks((ArrayList<Integer>) subtasks);
+        updatedEpic.copyAggregatesFrom(epicToUpdate);
+        entityChanged(updatedEpic);
     }
 
     @Override
@@ -370,20 +606,24 @@ public class InMemoryTaskManager implements TaskManager {
         if (!subtasks.containsKey(idToUpdate)){
             throw new TaskManagerException("Подзадача для обновления не найдена по данному номеру.");
         }
-        removeFromPrioritizedList(subtasks.get(idToUpdate));
-        subtasks.remove(idToUpdate);
-        validateTaskTime(updatedSubtask);
-        subtasks.put(idToUpdate, updatedSubtask);
-        addToPrioritizedList(updatedSubtask);
+        Subtask subtaskToUpdate = subtasks.get(idToUpdate);
         Epic epic = epics.get(updatedSubtask.getEpicId());
         if (epic == null) {
             throw new TaskManagerException("Не найден эпик, содержащий подзадачу для обновления.");
         }
-        List<Integer> subtasks = epic.getSubtasks();
-        if (!subtasks.contains(idToUpdate)){
+        if (!epic.getSubtasks().contains(idToUpdate)){
             throw new TaskManagerException("Данная подзадача не входит в указанный эпик.");
         }
-        computeEpicStatus(epic);
+        validateTaskTime(updatedSubtask, subtaskToUpdate);
+        removeFromPrioritizedList(subtaskToUpdate);
+        subtasks.put(idToUpdate, updatedSubtask);
+        entityIndex.put(updatedSubtask);
+        addToPrioritizedList(updatedSubtask);
+        epic.removeSubtaskAggregates(subtaskToUpdate);
+        epic.addSubtaskAggregates(updatedSubtask);
+        verifyEpicAggregates(epic);
+        entityChanged(updatedSubtask);
+        entityChanged(epic);
     }
 
     @Override
@@ -394,7 +634,8 @@ public class InMemoryTaskManager implements TaskManager {
         if (tasks.containsKey(taskId)) {
             removeFromPrioritizedList(tasks.get(taskId));
             historyManager.remove(taskId);
-            tasks.remove(taskId);
+            entityIndex.remove(taskId, TaskType.TASK);
+            entityRemoved(tasks.remove(taskId));
 
         } else {
             throw new TaskManagerException("Задачи с таким номером не существует");
@@ -417,7 +658,11 @@ public class InMemoryTaskManager implements TaskManager {
                 historyManager.remove(subtaskId);
                 removeFromPrioritizedList(subtask);
                 this.subtasks.remove(subtaskId);
-                computeEpicStatus(epic);
+                entityIndex.remove(subtaskId, TaskType.SUBTASK);
+                epic.removeSubtaskAggregates(subtask);
+                verifyEpicAggregates(epic);
+                entityRemoved(subtask);
+                entityChanged(epic);
             }
         } else {
             throw new TaskManagerException("подзадачи с таким номером не существует");
@@ -433,12 +678,19 @@ public class InMemoryTaskManager implements TaskManager {
             Epic epic = epics.get(epicId);
             List<Integer> subtasks = epic.getSubtasks();
             for (Integer subtaskId : subtasks) {
-                this.subtasks.remove(subtaskId);
+                removeFromPrioritizedList(this.subtasks.get(subtaskId));
+                Subtask subtask = this.subtasks.remove(subtaskId);
+                entityIndex.remove(subtaskId, TaskType.SUBTASK);
+                if (subtask != null) {
+                    entityRemoved(subtask);
+                }
                 historyManager.remove(subtaskId);
             }
-            subtasks.clear();
+            epic.clearSubtasks();
             epics.remove(epicId);
+            entityIndex.remove(epicId, TaskType.EPIC);
             historyManager.remove(epicId);
+            entityRemoved(epic);
         } else {
             throw new TaskManagerException("Эпика с таким номером не существует");
         }
@@ -457,6 +709,7 @@ public class InMemoryTaskManager implements TaskManager {
             return;
         }
         prioritizedTasks.add(task);
+        timeSlotIndex.add(task);
     }
 
     private void removeFromPrioritizedList(Task task) {
@@ -464,6 +717,7 @@ public class InMemoryTaskManager implements TaskManager {
             return;
         }
         prioritizedTasks.remove(task);
+        timeSlotIndex.remove(task);
     }
 
     @Override
@@ -471,32 +725,34 @@ public class InMemoryTaskManager implements TaskManager {
         return prioritizedTasks;
     }
 
+    @Override
+    public List<Task> getOverlappingTasks(LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null || end.isBefore(start)) {
+            throw new TaskManagerException("Неверно задан интервал времени.");
+        }
+        return timeSlotIndex.getOverlapping(start, end);
+    }
+
     private void validateTaskTime(Task task) {
         if (task.getStartTime() == null) {
             return;
         }
-        Set<Task> prioritizedTaskList = getPrioritizedTasks();
-        Predicate<Task> filter = t -> t.getStartTime() != null && t.getDuration() != 0;
-        List<Task> tasksWithStartTime = new ArrayList<>();
-        for (Task t : prioritizedTaskList){
-            if (filter.test(t)){
-                tasksWithStartTime.add(t);
-            }
+        if (timeSlotIndex.overlaps(task.getStartTime(), task.getEndTime())) {
+            throw new TaskTimeValidationException("Задача пересекается по времени.");
         }
-        if (tasksWithStartTime.isEmpty()) {
+    }
+
+    /**
+     * Проверка до изменения менеджера: интервал заменяемой задачи replaced пересечением не считается.
+     */
+    private void validateTaskTime(Task task, Task replaced) {
+        if (task.getStartTime() == null
+                || !timeSlotIndex.overlaps(task.getStartTime(), task.getEndTime())) {
             return;
         }
-        for (Task t : tasksWithStartTime) {
-            if (task.getStartTime().isEqual(t.getStartTime())){
+        for (Task overlapping : timeSlotIndex.getOverlapping(task.getStartTime(), task.getEndTime())) {
+            if (overlapping != replaced) {
                 throw new TaskTimeValidationException("Задача пересекается по времени.");
-            } else if (task.getStartTime().isBefore(t.getStartTime())
-                    && (task.getEndTime().isAfter(t.getStartTime()))) {
-                throw new TaskTimeValidationException("Задача пересекается по времени.");
-            } else if (task.getStartTime().isAfter(t.getStartTime())
-                    && task.getStartTime().isBefore(t.getEndTime())) {
-                throw new TaskTimeValidationException("Задача пересекается по времени.");
-            } else {
-                continue;
             }
         }
     }
@@ -0,0 +1,8 @@
+package manager;
+
+public enum JournalOperation {
+    PUT,
+    DELETE,
+    DELETE_ALL,
+    VIEW
+}
@@ -10,7 +10,29 @@ public class Managers {
         return new HTTPTaskManager(url);
     }
 
+    public static TaskManager getDefaultConcurrent(URL url) {
+        HTTPTaskManager taskManager = new HTTPTaskManager(url);
+        taskManager.historyManager = getPartitionedHistory();
+        return new ConcurrentTaskManager(taskManager);
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
+
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return new InMemoryHistoryManager(capacity);
+    }
+
+    public static HistoryManager getPartitionedHistory() {
+        return new PartitionedHistoryManager(100, 10_000, 30 * 60 * 1000L);
+    }
+
+    public static TimeSlotIndex getDefaultTimeSlotIndex() {
+        return new TreeTimeSlotIndex();
+    }
+
+    public static IdAllocator getDefaultIdAllocator() {
+        return new AtomicIdAllocator();
+    }
 }
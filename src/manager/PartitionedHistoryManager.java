@@ -0,0 +1,165 @@
+package manager;
+
+import tasks.Task;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * История просмотров, разделенная по сессиям (HistorySession): у каждого пользователя своя ограниченная
+ * история со своей блокировкой, поэтому просмотры разных пользователей не мешают друг другу.
+ * Удаление задачи убирает ее из истории всех сессий: id записывается в общий список удалений,
+ * который каждая сессия применяет при следующем обращении к своей истории.
+ * <p>
+ * Память ограничена: в каждой истории не больше partitionCapacity задач, сессии без обращений дольше
+ * idleTimeoutMillis удаляются, а при превышении maxPartitions удаляются самые давно использованные сессии.
+ */
+public class PartitionedHistoryManager implements HistoryManager {
+    private static final int SWEEP_INTERVAL = 1024;
+
+    private final int partitionCapacity;
+    private final int maxPartitions;
+    private final long idleTimeoutMillis;
+    private final LongSupplier clock;
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+    private final AtomicInteger operationsSinceSweep = new AtomicInteger();
+    // номер удаления -> id; номер увеличивается после добавления, поэтому удаления до него уже видны
+    private final ConcurrentSkipListMap<Long, Integer> removals = new ConcurrentSkipListMap<>();
+    private final AtomicLong removalSequence = new AtomicLong();
+
+    public PartitionedHistoryManager(int partitionCapacity, int maxPartitions, long idleTimeoutMillis) {
+        this(partitionCapacity, maxPartitions, idleTimeoutMillis, System::currentTimeMillis);
+    }
+
+    public PartitionedHistoryManager(int partitionCapacity, int maxPartitions, long idleTimeoutMillis,
+                                     LongSupplier clock) {
+        if (partitionCapacity <= 0 || maxPartitions <= 0 || idleTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Параметры истории должны быть положительными.");
+        }
+        this.partitionCapacity = partitionCapacity;
+        this.maxPartitions = maxPartitions;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.clock = clock;
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            return;
+        }
+        // просмотр записывается под блокировкой ключа, поэтому evict не удалит сессию между поиском и записью
+        partitions.compute(HistorySession.current(), (session, partition) -> {
+            Partition target = partition == null
+                    ? new Partition(partitionCapacity, removalSequence.get()) : partition;
+            synchronized (target) {
+                applyRemovals(target);
+                target.history.add(task);
+                target.lastAccess = clock.getAsLong();
+            }
+            return target;
+        });
+        if (partitions.size() > maxPartitions || operationsSinceSweep.incrementAndGet() >= SWEEP_INTERVAL) {
+            evict();
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        synchronized (removals) {
+            long sequence = removalSequence.get() + 1;
+            removals.put(sequence, id);
+            removalSequence.set(sequence);
+        }
+    }
+
+    @Override
+    public void clear() {
+        partitions.clear();
+        removals.clear();
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        Partition partition = partitions.get(HistorySession.current());
+        if (partition == null) {
+            return new ArrayList<>();
+        }
+        synchronized (partition) {
+            applyRemovals(partition);
+            partition.lastAccess = clock.getAsLong();
+            return new ArrayList<>(partition.history.getHistory());
+        }
+    }
+
+    public int getPartitionCount() {
+        return partitions.size();
+    }
+
+    // вызывается под блокировкой partition
+    private void applyRemovals(Partition partition) {
+        long upTo = removalSequence.get();
+        if (partition.appliedRemovals >= upTo) {
+            return;
+        }
+        for (Integer id : removals.subMap(partition.appliedRemovals, false, upTo, true).values()) {
+            partition.history.remove(id);
+        }
+        partition.appliedRemovals = upTo;
+    }
+
+    private synchronized void evict() {
+        operationsSinceSweep.set(0);
+        long now = clock.getAsLong();
+        // условие удаления проверяется повторно под блокировкой ключа: сессию могли только что использовать
+        for (Map.Entry<String, Partition> entry : partitions.entrySet()) {
+            if (now - entry.getValue().lastAccess > idleTimeoutMillis) {
+                partitions.computeIfPresent(entry.getKey(),
+                        (session, partition) -> now - partition.lastAccess > idleTimeoutMillis ? null : partition);
+            }
+        }
+        trimRemovals();
+        int excess = partitions.size() - maxPartitions;
+        if (excess <= 0) {
+            return;
+        }
+        // освобождаем с запасом, чтобы не сортировать сессии при каждом новом пользователе
+        int toRemove = excess + maxPartitions / 10;
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(partitions.size());
+        for (Map.Entry<String, Partition> entry : partitions.entrySet()) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().lastAccess));
+        }
+        entries.sort(Map.Entry.comparingByValue());
+        for (int i = 0; i < toRemove && i < entries.size(); i++) {
+            long lastAccess = entries.get(i).getValue();
+            partitions.computeIfPresent(entries.get(i).getKey(),
+                    (session, partition) -> partition.lastAccess == lastAccess ? null : partition);
+        }
+    }
+
+    // удаления, которые применили все сессии, больше не нужны
+    private void trimRemovals() {
+        long applied = removalSequence.get();
+        for (Partition partition : partitions.values()) {
+            applied = Math.min(applied, partition.appliedRemovals);
+        }
+        removals.headMap(applied, true).clear();
+    }
+
+    private static class Partition {
+        private final InMemoryHistoryManager history;
+        private volatile long lastAccess;
+        private volatile long appliedRemovals;
+
+        private Partition(int capacity, long appliedRemovals) {
+            this.history = new InMemoryHistoryManager(capacity);
+            this.appliedRemovals = appliedRemovals;
+        }
+    }
+}
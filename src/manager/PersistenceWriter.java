@@ -0,0 +1,283 @@
+package manager;
+
+import exceptions.ManagerSaveException;
+import manager.snapshot.SnapshotStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Записывает снимки (через SnapshotStore) и журнал FileBackedTasksManager согласно DurabilityPolicy.
+ * Фоновый поток объединяет накопившиеся запросы: из нескольких снимков пишется только последний,
+ * записи журнала дописываются одной операцией записи.
+ * <p>
+ * После записи снимка журнал не очищается, а становится сегментом journal.1, прежние сегменты сдвигаются так же,
+ * как поколения снимка: сегмент journal.N хранит операции между поколениями N и N - 1. Если текущий снимок
+ * не попал на диск (без fsync это ожидаемо после отключения питания), предыдущее поколение дополняется
+ * этими сегментами и операции не теряются.
+ */
+public class PersistenceWriter {
+    private final File snapshotFile;
+    private final File journalFile;
+    private final DurabilityPolicy policy;
+    private final SnapshotStore snapshotStore;
+    private byte[] pendingSnapshot;
+    private List<String> pendingEntries;
+    // сколько записей pendingEntries сделано до pendingSnapshot
+    private int pendingSnapshotEntries;
+    private long pendingSince;
+    private long submittedSequence;
+    private long committedSequence;
+    private IOException failure;
+    private boolean closed;
+
+    public PersistenceWriter(File snapshotFile, File journalFile, DurabilityPolicy policy) {
+        this.snapshotFile = snapshotFile;
+        this.journalFile = journalFile;
+        this.policy = policy;
+        this.snapshotStore = new SnapshotStore(snapshotFile.toPath(), policy.getGenerations(), policy.isFsync());
+        this.pendingEntries = new ArrayList<>();
+        if (policy.isBackground()) {
+            Thread writerThread = new Thread(this::runWriter, "persistence-writer-" + snapshotFile.getName());
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
+
+    public long writeSnapshot(String snapshot) {
+        return submit(snapshot.getBytes(StandardCharsets.UTF_8), null);
+    }
+
+    public long writeSnapshot(byte[] snapshot) {
+        return submit(snapshot, null);
+    }
+
+    /**
+     * Снимок, сделанный после операции entry: она попадает в сегмент журнала предыдущего поколения.
+     */
+    public long writeSnapshot(String snapshot, String entry) {
+        return submit(snapshot.getBytes(StandardCharsets.UTF_8), entry);
+    }
+
+    public long writeSnapshot(byte[] snapshot, String entry) {
+        return submit(snapshot, entry);
+    }
+
+    public long append(String entry) {
+        return submit(null, entry);
+    }
+
+    /**
+     * Сегмент журнала: 0 - текущий журнал, N - операции между поколениями снимка N и N - 1.
+     */
+    public File journalSegment(int number) {
+        return number == 0 ? journalFile : new File(journalFile.getPath() + "." + number);
+    }
+
+    public synchronized long getSubmittedSequence() {
+        return submittedSequence;
+    }
+
+    public synchronized void awaitCommit(long sequence) {
+        while (committedSequence < sequence && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ManagerSaveException("Ожидание записи данных прервано.");
+            }
+        }
+        throwIfFailed();
+    }
+
+    public void close() {
+        long sequence;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            sequence = submittedSequence;
+        }
+        awaitCommit(sequence);
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+    }
+
+    private long submit(byte[] snapshot, String entry) {
+        if (!policy.isBackground()) {
+            synchronized (this) {
+                try {
+                    List<String> entries = entry == null ? List.of() : List.of(entry);
+                    write(snapshot, entries, snapshot == null ? 0 : entries.size());
+                } catch (IOException e) {
+                    throw new ManagerSaveException("Ошибка сохранения данных. " + e.getMessage());
+                }
+                committedSequence = ++submittedSequence;
+                return committedSequence;
+            }
+        }
+        long sequence;
+        synchronized (this) {
+            throwIfFailed();
+            if (closed) {
+                throw new ManagerSaveException("Запись данных уже остановлена.");
+            }
+            if (pendingSnapshot == null && pendingEntries.isEmpty()) {
+                pendingSince = System.currentTimeMillis();
+            }
+            if (entry != null) {
+                pendingEntries.add(entry);
+            }
+            if (snapshot != null) {
+                pendingSnapshot = snapshot;
+                pendingSnapshotEntries = pendingEntries.size();
+            }
+            sequence = ++submittedSequence;
+            notifyAll();
+        }
+        if (policy.isCallerWaiting()) {
+            awaitCommit(sequence);
+        }
+        return sequence;
+    }
+
+    private void runWriter() {
+        while (true) {
+            byte[] snapshot;
+            List<String> entries;
+            int snapshotEntries;
+            long sequence;
+            synchronized (this) {
+                try {
+                    while (!isBatchReady()) {
+                        if (closed && committedSequence == submittedSequence) {
+                            return;
+                        }
+                        waitForBatch();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                snapshot = pendingSnapshot;
+                entries = pendingEntries;
+                snapshotEntries = pendingSnapshotEntries;
+                sequence = submittedSequence;
+                pendingSnapshot = null;
+                pendingEntries = new ArrayList<>();
+                pendingSnapshotEntries = 0;
+            }
+            IOException writeFailure = null;
+            try {
+                write(snapshot, entries, snapshotEntries);
+            } catch (IOException e) {
+                writeFailure = e;
+            }
+            synchronized (this) {
+                if (writeFailure != null) {
+                    failure = writeFailure;
+                }
+                committedSequence = sequence;
+                notifyAll();
+            }
+        }
+    }
+
+    private boolean isBatchReady() {
+        int pendingOperations = (pendingSnapshot == null ? 0 : 1) + pendingEntries.size();
+        if (pendingOperations == 0) {
+            return false;
+        }
+        if (policy.getMode() != DurabilityPolicy.Mode.GROUP_COMMIT || closed) {
+            return true;
+        }
+        return pendingOperations >= policy.getCommitOperations()
+                || System.currentTimeMillis() - pendingSince >= policy.getCommitIntervalMillis();
+    }
+
+    private void waitForBatch() throws InterruptedException {
+        boolean hasPending = pendingSnapshot != null || !pendingEntries.isEmpty();
+        if (hasPending && policy.getMode() == DurabilityPolicy.Mode.GROUP_COMMIT) {
+            long remaining = pendingSince + policy.getCommitIntervalMillis() - System.currentTimeMillis();
+            wait(Math.max(1, remaining));
+        } else {
+            wait();
+        }
+    }
+
+    /**
+     * Первые snapshotEntries записей сделаны до снимка и дописываются в журнал, который станет сегментом
+     * предыдущего поколения, остальные - в журнал после снимка.
+     */
+    private void write(byte[] snapshot, List<String> entries, int snapshotEntries) throws IOException {
+        appendEntries(entries.subList(0, snapshotEntries));
+        if (snapshot != null) {
+            snapshotStore.write(snapshot);
+            // при сбое до сдвига записи журнала повторяются поверх снимка, уже учитывающего их
+            rotateJournal();
+        }
+        appendEntries(entries.subList(snapshotEntries, entries.size()));
+    }
+
+    private void appendEntries(List<String> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String entry : entries) {
+            sb.append(entry).append("\n");
+        }
+        writeFile(journalFile, sb.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    private void rotateJournal() throws IOException {
+        int segments = policy.getGenerations() - 1;
+        if (segments == 0) {
+            Files.deleteIfExists(journalFile.toPath());
+            return;
+        }
+        for (int number = segments; number > 1; number--) {
+            Path previous = journalSegment(number - 1).toPath();
+            if (Files.exists(previous)) {
+                Files.move(previous, journalSegment(number).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.deleteIfExists(journalSegment(number).toPath());
+            }
+        }
+        if (journalFile.exists()) {
+            Files.move(journalFile.toPath(), journalSegment(1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            // пустой сегмент: между поколениями операций не было
+            writeFile(journalSegment(1), new byte[0], StandardOpenOption.TRUNCATE_EXISTING);
+        }
+    }
+
+    private void writeFile(File file, byte[] content, StandardOpenOption mode) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (policy.isFsync()) {
+                channel.force(false);
+            }
+        }
+    }
+
+    private void throwIfFailed() {
+        if (failure != null) {
+            throw new ManagerSaveException("Ошибка сохранения данных. " + failure.getMessage());
+        }
+    }
+}
@@ -4,6 +4,7 @@ import tasks.Epic;
 import tasks.Subtask;
 import tasks.Task;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Set;
 
@@ -20,6 +21,16 @@ public interface TaskManager {
 
     List<Epic> getEpics();
 
+    /**
+     * Страница задач в порядке id или времени начала. Обход идет по индексам менеджера
+     * и останавливается на limit + 1 подходящей задаче, полный список не строится.
+     */
+    TaskPage<Task> getTasks(TaskQuery query);
+
+    TaskPage<Subtask> getSubtasks(TaskQuery query);
+
+    TaskPage<Epic> getEpics(TaskQuery query);
+
     void deleteAllTasks();
 
     void deleteAllSubtasks();
@@ -49,4 +60,6 @@ public interface TaskManager {
     List<Task> getHistory();
 
     Set<Task> getPrioritizedTasks();
+
+    List<Task> getOverlappingTasks(LocalDateTime start, LocalDateTime end);
 }
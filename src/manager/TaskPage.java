@@ -0,0 +1,31 @@
+package manager;
+
+import tasks.Task;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Страница результата TaskQuery. nextCursor равен null, если страница последняя.
+ */
+public final class TaskPage<T extends Task> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    TaskPage(List<T> items, String nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,184 @@
+package manager;
+
+import tasks.Status;
+import tasks.Task;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Запрос одной страницы задач, подзадач или эпиков: порядок обхода, размер страницы,
+ * курсор продолжения и фильтры по статусу, эпику и времени начала [from, to).
+ * Курсор берется из TaskPage предыдущей страницы и действителен только для того же порядка обхода.
+ */
+public final class TaskQuery {
+    public static final int MAX_LIMIT = 1000;
+    private static final String ID_CURSOR = "id";
+    private static final String START_CURSOR = "start";
+    private static final String NO_START_TIME = "-";
+
+    public enum Order {
+        BY_ID,
+        BY_START_TIME
+    }
+
+    private final Order order;
+    private final int limit;
+    private final String cursor;
+    private final int cursorId;
+    private final LocalDateTime cursorStartTime;
+    private final Status status;
+    private final Integer epicId;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+
+    private TaskQuery(Order order, int limit, String cursor, Status status, Integer epicId,
+                      LocalDateTime from, LocalDateTime to) {
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Размер страницы должен быть от 1 до " + MAX_LIMIT + ".");
+        }
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new IllegalArgumentException("Неверно задан интервал времени.");
+        }
+        this.order = order;
+        this.limit = limit;
+        this.cursor = cursor;
+        this.status = status;
+        this.epicId = epicId;
+        this.from = from;
+        this.to = to;
+        if (cursor == null) {
+            this.cursorId = 0;
+            this.cursorStartTime = null;
+            return;
+        }
+        String[] parts = decode(cursor).split(":", 2);
+        try {
+            if (order == Order.BY_ID && parts.length == 2 && parts[0].equals(ID_CURSOR)) {
+                this.cursorId = Integer.parseInt(parts[1]);
+                this.cursorStartTime = null;
+            } else if (order == Order.BY_START_TIME && parts.length == 2 && parts[0].equals(START_CURSOR)) {
+                int separator = parts[1].lastIndexOf(':');
+                String startTime = parts[1].substring(0, Math.max(separator, 0));
+                this.cursorId = Integer.parseInt(parts[1].substring(separator + 1));
+                this.cursorStartTime = startTime.equals(NO_START_TIME) ? null : LocalDateTime.parse(startTime);
+            } else {
+                throw new IllegalArgumentException("Неверный курсор.");
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Неверный курсор.");
+        }
+    }
+
+    public static TaskQuery byId(int limit) {
+        return new TaskQuery(Order.BY_ID, limit, null, null, null, null, null);
+    }
+
+    public static TaskQuery byStartTime(int limit) {
+        return new TaskQuery(Order.BY_START_TIME, limit, null, null, null, null, null);
+    }
+
+    /**
+     * Продолжение обхода после последней сущности предыдущей страницы.
+     */
+    public TaskQuery after(String cursor) {
+        return new TaskQuery(order, limit, cursor, status, epicId, from, to);
+    }
+
+    public TaskQuery withStatus(Status status) {
+        return new TaskQuery(order, limit, cursor, status, epicId, from, to);
+    }
+
+    /**
+     * Только подзадачи указанного эпика. Для задач и эпиков фильтр не применяется.
+     */
+    public TaskQuery withEpicId(int epicId) {
+        return new TaskQuery(order, limit, cursor, status, epicId, from, to);
+    }
+
+    /**
+     * Только сущности со временем начала в [from, to). Любая граница может быть null.
+     */
+    public TaskQuery withStartTimeBetween(LocalDateTime from, LocalDateTime to) {
+        return new TaskQuery(order, limit, cursor, status, epicId, from, to);
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Integer getEpicId() {
+        return epicId;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    boolean hasCursor() {
+        return cursor != null;
+    }
+
+    int getCursorId() {
+        return cursorId;
+    }
+
+    LocalDateTime getCursorStartTime() {
+        return cursorStartTime;
+    }
+
+    boolean hasTimeWindow() {
+        return from != null || to != null;
+    }
+
+    boolean matches(Task task) {
+        if (status != null && task.getStatus() != status) {
+            return false;
+        }
+        if (!hasTimeWindow()) {
+            return true;
+        }
+        LocalDateTime startTime = task.getStartTime();
+        return startTime != null
+                && (from == null || !startTime.isBefore(from))
+                && (to == null || startTime.isBefore(to));
+    }
+
+    String cursorOf(Task last) {
+        if (order == Order.BY_ID) {
+            return encode(ID_CURSOR + ":" + last.getId());
+        }
+        String startTime = last.getStartTime() == null ? NO_START_TIME : last.getStartTime().toString();
+        return encode(START_CURSOR + ":" + startTime + ":" + last.getId());
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String value) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неверный курсор.");
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package manager;
+
+import tasks.Task;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Индекс занятых интервалов времени [startTime, endTime) задач и подзадач.
+ * Задачи без времени старта или с нулевой длительностью интервал не занимают.
+ */
+public interface TimeSlotIndex {
+
+    void add(Task task);
+
+    /**
+     * Добавляет задачи, отсортированные по времени начала.
+     */
+    default void addAll(List<Task> tasksByStartTime) {
+        for (Task task : tasksByStartTime) {
+            add(task);
+        }
+    }
+
+    void remove(Task task);
+
+    void clear();
+
+    boolean overlaps(LocalDateTime start, LocalDateTime end);
+
+    List<Task> getOverlapping(LocalDateTime start, LocalDateTime end);
+}
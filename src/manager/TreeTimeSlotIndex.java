@@ -0,0 +1,116 @@
+package manager;
+
+import exceptions.TaskTimeValidationException;
+import tasks.Task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+public class TreeTimeSlotIndex implements TimeSlotIndex {
+
+    private final TreeMap<LocalDateTime, Slot> slots;
+
+    public TreeTimeSlotIndex() {
+        this.slots = new TreeMap<>();
+    }
+
+    @Override
+    public void add(Task task) {
+        if (!occupiesSlot(task)) {
+            return;
+        }
+        slots.put(task.getStartTime(), new Slot(task, task.getEndTime()));
+    }
+
+    /**
+     * Пересекающиеся интервалы, в том числе с одинаковым началом, в индексе храниться не могут:
+     * при таких задачах выбрасывается TaskTimeValidationException, индекс при этом не меняется.
+     */
+    @Override
+    public void addAll(List<Task> tasksByStartTime) {
+        List<Slot> sortedSlots = new ArrayList<>(tasksByStartTime.size());
+        for (Task task : tasksByStartTime) {
+            if (occupiesSlot(task)) {
+                sortedSlots.add(new Slot(task, task.getEndTime()));
+            }
+        }
+        // длительность положительна, поэтому интервалы без пересечений идут строго по возрастанию начала
+        Slot previous = null;
+        for (Slot slot : sortedSlots) {
+            if (previous != null && slot.task.getStartTime().isBefore(previous.end)) {
+                throw new TaskTimeValidationException("Задачи " + previous.task.getId() + " и "
+                        + slot.task.getId() + " пересекаются по времени.");
+            }
+            previous = slot;
+        }
+        for (Slot slot : sortedSlots) {
+            if (!slots.isEmpty() && overlaps(slot.task.getStartTime(), slot.end)) {
+                throw new TaskTimeValidationException("Задача " + slot.task.getId() + " пересекается по времени.");
+            }
+        }
+        for (Slot slot : sortedSlots) {
+            slots.put(slot.task.getStartTime(), slot);
+        }
+    }
+
+    @Override
+    public void remove(Task task) {
+        if (!occupiesSlot(task)) {
+            return;
+        }
+        Slot slot = slots.get(task.getStartTime());
+        if (slot != null && slot.task.getId() == task.getId()) {
+            slots.remove(task.getStartTime());
+        }
+    }
+
+    @Override
+    public void clear() {
+        slots.clear();
+    }
+
+    @Override
+    public boolean overlaps(LocalDateTime start, LocalDateTime end) {
+        // интервалы в индексе не пересекаются, поэтому достаточно проверить двух соседей
+        LocalDateTime floorStart = slots.floorKey(start);
+        if (floorStart != null && start.isBefore(slots.get(floorStart).end)) {
+            return true;
+        }
+        LocalDateTime higherStart = slots.higherKey(start);
+        return higherStart != null && end.isAfter(higherStart);
+    }
+
+    @Override
+    public List<Task> getOverlapping(LocalDateTime start, LocalDateTime end) {
+        List<Task> overlapping = new ArrayList<>();
+        LocalDateTime floorStart = slots.floorKey(start);
+        if (floorStart != null) {
+            Slot slot = slots.get(floorStart);
+            if (start.isBefore(slot.end)) {
+                overlapping.add(slot.task);
+            }
+        }
+        if (end.isAfter(start)) {
+            for (Slot slot : slots.subMap(start, false, end, false).values()) {
+                overlapping.add(slot.task);
+            }
+        }
+        return overlapping;
+    }
+
+    private boolean occupiesSlot(Task task) {
+        return task != null && task.getStartTime() != null && task.getDuration() > 0;
+    }
+
+    private static class Slot {
+        private final Task task;
+        private final LocalDateTime end;
+
+        public Slot(Task task, LocalDateTime end) {
+            this.task = task;
+            this.end = end;
+        }
+    }
+}
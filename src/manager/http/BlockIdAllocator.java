@@ -0,0 +1,71 @@
+package manager.http;
+
+import controllers.KVTaskClient;
+import manager.IdAllocator;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Выдает номера из диапазонов, арендованных на KVServer, поэтому несколько узлов
+ * с общим сервером не выдают одинаковых номеров. Обращение к серверу происходит
+ * только при исчерпании диапазона.
+ */
+public class BlockIdAllocator implements IdAllocator {
+    private final KVTaskClient kvTaskClient;
+    private final String key;
+    private final int blockSize;
+    private final AtomicReference<Block> block;
+    private final AtomicInteger observedId;
+
+    public BlockIdAllocator(KVTaskClient kvTaskClient, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Размер диапазона номеров должен быть положительным.");
+        }
+        this.kvTaskClient = kvTaskClient;
+        this.key = String.valueOf(TaskKey.ID_KEY);
+        this.blockSize = blockSize;
+        this.block = new AtomicReference<>();
+        this.observedId = new AtomicInteger();
+    }
+
+    @Override
+    public int nextId() {
+        while (true) {
+            Block current = block.get();
+            if (current != null) {
+                int id = current.nextId.getAndIncrement();
+                if (id < current.limit && id > observedId.get()) {
+                    return id;
+                }
+            }
+            lease(current);
+        }
+    }
+
+    @Override
+    public void observe(int id) {
+        int current = observedId.get();
+        while (current < id && !observedId.compareAndSet(current, id)) {
+            current = observedId.get();
+        }
+    }
+
+    private synchronized void lease(Block exhausted) {
+        if (block.get() != exhausted) {
+            return;
+        }
+        int start = kvTaskClient.lease(key, blockSize, observedId.get() + 1);
+        block.set(new Block(start, start + blockSize));
+    }
+
+    private static class Block {
+        private final AtomicInteger nextId;
+        private final int limit;
+
+        public Block(int start, int limit) {
+            this.nextId = new AtomicInteger(start);
+            this.limit = limit;
+        }
+    }
+}
@@ -3,101 +3,166 @@ package manager.http;
 import controllers.KVTaskClient;
 import manager.FileBackedTasksManager;
 import manager.TaskManager;
-import tasks.Epic;
-import tasks.Subtask;
+import manager.snapshot.BoardData;
+import manager.snapshot.BulkLoader;
+import manager.snapshot.CsvRecords;
+import manager.snapshot.LoadReport;
 import tasks.Task;
 
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class HTTPTaskManager extends FileBackedTasksManager implements TaskManager {
     private final URL url;
     private final KVTaskClient kvTaskClient;
+    private final Map<String, Task> pendingChanges = new LinkedHashMap<>();
+    // значения, которые не удалось выгрузить; отправляются со следующей выгрузкой
+    private final Map<String, String> unsentValues = new LinkedHashMap<>();
+    // сколько пачек просмотров HISTORY_KEY/<n> лежит на сервере поверх истории HISTORY_KEY
+    private int historyBatches;
 
     public HTTPTaskManager(URL url){
         this.url = url;
         kvTaskClient = new KVTaskClient(this.url);
     }
 
+    public HTTPTaskManager(URL url, int idBlockSize) {
+        this(url);
+        this.idAllocator = new BlockIdAllocator(kvTaskClient, idBlockSize);
+    }
+
     public static HTTPTaskManager loadFromServer(URL url) {
         HTTPTaskManager httpTaskManager = new HTTPTaskManager(url);
         httpTaskManager.readData();
         return httpTaskManager;
     }
 
+    public static HTTPTaskManager loadFromServer(URL url, int idBlockSize) {
+        HTTPTaskManager httpTaskManager = new HTTPTaskManager(url, idBlockSize);
+        httpTaskManager.readData();
+        return httpTaskManager;
+    }
+
     @Override
-    public void save() {
-        StringBuilder tasksStringBuilder = new StringBuilder();
-        StringBuilder subtasksStringBuilder = new StringBuilder();
-        StringBuilder epicsStringBuilder = new StringBuilder();
-        StringBuilder historyStringBuilder = new StringBuilder();
+    protected void onEntityChanged(Task task) {
+        pendingChanges.put(TaskKey.of(task.getTaskType()).entityKey(task.getId()), task);
+    }
 
-        for (Task task : getTasks()) {
-            tasksStringBuilder.append(task.toString()).append("//");
-        }
-        for (Subtask subtask : getSubtasks()) {
-            subtasksStringBuilder.append(subtask.toString()).append("//");
-        }
-        for (Epic epic : getEpics()) {
-            epicsStringBuilder.append(epic.toString()).append("//");
-        }
-        for (Task task : getHistory()) {
-            historyStringBuilder.append(task.getId()).append(",");
-        }
-        try {
-            kvTaskClient.put(String.valueOf(TaskKey.TASK_KEY), tasksStringBuilder.toString());
-            kvTaskClient.put(String.valueOf(TaskKey.SUBTASK_KEY), subtasksStringBuilder.toString());
-            kvTaskClient.put(String.valueOf(TaskKey.EPIC_KEY), epicsStringBuilder.toString());
-            kvTaskClient.put(String.valueOf(TaskKey.HISTORY_KEY), historyStringBuilder.toString());
-        } catch (IOException | InterruptedException e) {
-            System.out.println("Ошибка в методе save() " + e.getMessage());
-        }
+    @Override
+    protected void onEntityRemoved(Task task) {
+        pendingChanges.put(TaskKey.of(task.getTaskType()).entityKey(task.getId()), null);
     }
 
-    private void readData() {
-        String loadedTasks = kvTaskClient.load(String.valueOf(TaskKey.TASK_KEY));
-        if (loadedTasks.isEmpty()) {
+    /**
+     * Выгружает только задачи, измененные или удаленные после предыдущего сохранения.
+     * Удаленной задаче соответствует пустое значение. История выгружается отдельно через HistoryLog.
+     */
+    @Override
+    public void save() {
+        syncHistory();
+        if (pendingChanges.isEmpty()) {
             return;
         }
-        String[] separatedTasks = loadedTasks.split("//");
-        for (String t : separatedTasks) {
-            Task task = taskFromString(t);
-            createTask(task);
+        Map<String, String> values = new LinkedHashMap<>();
+        for (Map.Entry<String, Task> change : pendingChanges.entrySet()) {
+            Task task = change.getValue();
+            values.put(change.getKey(), task == null ? "" : CsvRecords.formatTask(task));
         }
-        String loadedEpics = kvTaskClient.load(String.valueOf(TaskKey.EPIC_KEY));
-        if (loadedEpics.isEmpty()) {
-            return;
-        }
-        String[] separatedEpics = loadedEpics.split("//");
-        for (String e : separatedEpics) {
-            Epic epic = (Epic) taskFromString(e);
-            createEpic(epic);
+        pendingChanges.clear();
+        submitWrite(() -> upload(values));
+    }
+
+    /**
+     * Выгружает values вместе с неотправленными ранее значениями: выгрузки идут по порядку,
+     * поэтому values новее и заменяют их.
+     */
+    private void upload(Map<String, String> values) {
+        synchronized (unsentValues) {
+            Map<String, String> batch = new LinkedHashMap<>(unsentValues);
+            batch.putAll(values);
+            try {
+                // все изменения уходят одним запросом, поэтому loadFromServer не увидит частично сохраненное состояние
+                kvTaskClient.putAll(batch);
+                unsentValues.clear();
+            } catch (IOException | InterruptedException e) {
+                unsentValues.putAll(values);
+                System.out.println("Ошибка в методе save() " + e.getMessage());
+            }
         }
-        String loadedSubtasks = kvTaskClient.load(String.valueOf(TaskKey.SUBTASK_KEY));
-        if (loadedSubtasks.isEmpty()) {
+    }
+
+    /**
+     * Просмотры копятся в HistoryLog, на сервер уходит только новая пачка под ключом HISTORY_KEY/<n>.
+     * При rewrite история целиком записывается в HISTORY_KEY, а пачки удаляются тем же запросом.
+     */
+    @Override
+    protected void writeHistory(List<Integer> views, Collection<Integer> history, boolean rewrite)
+            throws IOException, InterruptedException {
+        if (!rewrite) {
+            // putAll проверяет код ответа: при ошибке номер пачки не занимается, а HistoryLog перепишет историю целиком
+            kvTaskClient.putAll(Map.of(TaskKey.HISTORY_KEY.entityKey(historyBatches + 1), joinIds(views)));
+            historyBatches++;
             return;
         }
-        String[] separatedSubtasks = loadedSubtasks.split("//");
-        for (String s : separatedSubtasks) {
-            Subtask subtask = (Subtask) taskFromString(s);
-            createSubtask(subtask);
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put(String.valueOf(TaskKey.HISTORY_KEY), joinIds(history));
+        for (int batch = 1; batch <= historyBatches; batch++) {
+            values.put(TaskKey.HISTORY_KEY.entityKey(batch), "");
         }
-        String loadedHistory = kvTaskClient.load(String.valueOf(TaskKey.HISTORY_KEY));
-        if (loadedHistory.isEmpty()) {
-            return;
+        kvTaskClient.putAll(values);
+        historyBatches = 0;
+    }
+
+    private static String joinIds(Collection<Integer> ids) {
+        StringBuilder sb = new StringBuilder();
+        for (Integer id : ids) {
+            sb.append(id).append(",");
         }
-        for (Integer id : historyFromString(loadedHistory)) {
-            if (tasks.containsKey(id)) {
-                Task task = tasks.get(id);
-                historyManager.add(task);
-            } if (epics.containsKey(id)) {
-                Epic epic = epics.get(id);
-                historyManager.add(epic);
-            } if(subtasks.containsKey(id)) {
-                Subtask subtask = subtasks.get(id);
-                historyManager.add(subtask);
+        return sb.toString();
+    }
+
+    private void readData() {
+        LoadReport report = new LoadReport();
+        long start = System.nanoTime();
+        Map<String, String> loaded = kvTaskClient.loadByPrefix(List.of(TaskKey.TASK_KEY.prefix(),
+                TaskKey.EPIC_KEY.prefix(), TaskKey.SUBTASK_KEY.prefix(), String.valueOf(TaskKey.HISTORY_KEY)));
+        report.record(LoadReport.READ, System.nanoTime() - start);
+        String historyKey = String.valueOf(TaskKey.HISTORY_KEY);
+        String batchPrefix = TaskKey.HISTORY_KEY.prefix();
+        List<String> records = new ArrayList<>(loaded.size());
+        TreeMap<Integer, String> batches = new TreeMap<>();
+        for (Map.Entry<String, String> entry : loaded.entrySet()) {
+            if (entry.getKey().startsWith(batchPrefix)) {
+                batches.put(Integer.parseInt(entry.getKey().substring(batchPrefix.length())), entry.getValue());
+            } else if (!entry.getKey().equals(historyKey)) {
+                records.add(entry.getValue());
             }
         }
+        // пачки дописываются к истории в порядке записи, повторный просмотр переносит задачу в конец
+        StringBuilder loadedHistory = new StringBuilder(loaded.getOrDefault(historyKey, "").strip());
+        int batchViews = 0;
+        for (String batch : batches.values()) {
+            loadedHistory.append(batch.strip());
+            batchViews += historyFromString(batch.strip()).size();
+        }
+        historyBatches = batches.isEmpty() ? 0 : batches.lastKey();
+        BoardData board = new BulkLoader().loadRecords(records, loadedHistory.toString(), report);
+        restoring = true;
+        try {
+            restoreBoard(board, report);
+            List<Integer> history = loadedHistoryIds();
+            historyLog.restore(history, history.size() + batchViews);
+        } finally {
+            restoring = false;
+            // восстановленные задачи уже есть на сервере
+            pendingChanges.clear();
+        }
     }
 }
@@ -1,8 +1,33 @@
 package manager.http;
 
+import tasks.TaskType;
+
 public enum TaskKey {
     TASK_KEY,
     SUBTASK_KEY,
     EPIC_KEY,
-    HISTORY_KEY
+    HISTORY_KEY,
+    ID_KEY;
+
+    /**
+     * Каждая задача хранится под отдельным ключом вида TASK_KEY/<id>.
+     */
+    public String entityKey(int id) {
+        return prefix() + id;
+    }
+
+    public String prefix() {
+        return name() + "/";
+    }
+
+    public static TaskKey of(TaskType taskType) {
+        switch (taskType) {
+            case SUBTASK:
+                return SUBTASK_KEY;
+            case EPIC:
+                return EPIC_KEY;
+            default:
+                return TASK_KEY;
+        }
+    }
 }
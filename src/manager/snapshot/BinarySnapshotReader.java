@@ -0,0 +1,202 @@
+package manager.snapshot;
+
+import exceptions.ManagerSaveException;
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Читает снимок, записанный BinarySnapshotWriter.
+ */
+public final class BinarySnapshotReader {
+    private static final Status[] STATUSES = Status.values();
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private String[] strings;
+    // поля последней прочитанной записи: имя и описание задаются только в конструкторе сущности
+    private int id;
+    private String name;
+    private String description;
+    private Status status;
+    private LocalDateTime startTime;
+    private int duration;
+    private LocalDateTime endTime;
+
+    private BinarySnapshotReader(ReadableByteChannel channel, ByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    public static BoardData read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+    public static BoardData read(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BinarySnapshotWriter.BUFFER_SIZE);
+        buffer.flip();
+        return new BinarySnapshotReader(channel, buffer).readBoard();
+    }
+
+    /**
+     * Читает снимок прямо из content (например, отображенного в память файла), без копирования в буфер чтения.
+     */
+    public static BoardData read(ByteBuffer content) throws IOException {
+        return new BinarySnapshotReader(null, content).readBoard();
+    }
+
+    /**
+     * Проверяет по первым байтам, что содержимое - двоичный снимок. Пустое содержимое и CSV двоичными не считаются.
+     */
+    public static boolean isBinarySnapshot(ByteBuffer content) {
+        return content.remaining() >= 4 && content.getInt(content.position()) == BinarySnapshotWriter.MAGIC;
+    }
+
+    private BoardData readBoard() throws IOException {
+        require(5);
+        if (buffer.getInt() != BinarySnapshotWriter.MAGIC) {
+            throw new ManagerSaveException("Файл не является двоичным снимком.");
+        }
+        byte version = buffer.get();
+        if (version != BinarySnapshotWriter.VERSION) {
+            throw new ManagerSaveException("Неподдерживаемая версия снимка: " + version);
+        }
+        strings = new String[getVarint()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = getString();
+        }
+        int taskCount = getVarint();
+        List<Task> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            readEntity();
+            Task task = new Task(name, description, status, startTime, duration);
+            task.setId(id);
+            tasks.add(task);
+        }
+        int epicCount = getVarint();
+        List<Epic> epics = new ArrayList<>(epicCount);
+        for (int i = 0; i < epicCount; i++) {
+            readEntity();
+            Epic epic = new Epic(name, description, null, 0);
+            epic.setId(id);
+            epic.setStatus(status);
+            epic.setStartTime(startTime);
+            epic.setDuration(duration);
+            epic.setEndTime(endTime);
+            epics.add(epic);
+        }
+        int subtaskCount = getVarint();
+        List<Subtask> subtasks = new ArrayList<>(subtaskCount);
+        for (int i = 0; i < subtaskCount; i++) {
+            readEntity();
+            Subtask subtask = new Subtask(name, description, status, startTime, duration, getVarint());
+            subtask.setId(id);
+            subtasks.add(subtask);
+        }
+        int historyCount = getVarint();
+        List<Integer> history = new ArrayList<>(historyCount);
+        for (int i = 0; i < historyCount; i++) {
+            history.add(getVarint());
+        }
+        return new BoardData(tasks, epics, subtasks, history);
+    }
+
+    private void readEntity() throws IOException {
+        id = getVarint();
+        name = getStringRef();
+        description = getStringRef();
+        require(2);
+        int statusCode = buffer.get();
+        int flags = buffer.get();
+        if (statusCode < 0 || statusCode > STATUSES.length) {
+            throw new ManagerSaveException("Неверный статус в снимке: " + statusCode);
+        }
+        status = statusCode == 0 ? null : STATUSES[statusCode - 1];
+        startTime = (flags & BinarySnapshotWriter.HAS_START_TIME) == 0
+                ? null
+                : getTime((flags & BinarySnapshotWriter.START_TIME_SECONDS) != 0);
+        duration = getVarint();
+        endTime = (flags & BinarySnapshotWriter.HAS_END_TIME) == 0
+                ? null
+                : getTime((flags & BinarySnapshotWriter.END_TIME_SECONDS) != 0);
+    }
+
+    private LocalDateTime getTime(boolean withSeconds) throws IOException {
+        if (withSeconds) {
+            require(12);
+            return LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        }
+        require(8);
+        return LocalDateTime.ofEpochSecond(buffer.getLong() * 60, 0, ZoneOffset.UTC);
+    }
+
+    private String getStringRef() throws IOException {
+        int ref = getVarint();
+        if (ref < 0 || ref > strings.length) {
+            throw new ManagerSaveException("Неверная ссылка на строку в снимке: " + ref);
+        }
+        return ref == 0 ? null : strings[ref - 1];
+    }
+
+    private String getString() throws IOException {
+        int length = getVarint();
+        if (length < 0) {
+            throw new ManagerSaveException("Неверная длина строки в снимке: " + length);
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            if (!buffer.hasRemaining()) {
+                require(1);
+            }
+            int chunk = Math.min(buffer.remaining(), length - offset);
+            buffer.get(bytes, offset, chunk);
+            offset += chunk;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int getVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            require(1);
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new ManagerSaveException("Неверное число в снимке.");
+    }
+
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        if (channel == null) {
+            throw new ManagerSaveException("Снимок обрывается до конца записи.");
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new ManagerSaveException("Снимок обрывается до конца записи.");
+            }
+        }
+        buffer.flip();
+    }
+}
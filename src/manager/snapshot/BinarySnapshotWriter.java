@@ -0,0 +1,176 @@
+package manager.snapshot;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Записывает снимок доски в двоичном формате версии 1:
+ * <pre>
+ * int     MAGIC, byte VERSION
+ * varint  количество строк, затем строки: varint длина в байтах и UTF-8
+ * varint  количество задач, затем записи задач; так же эпики и подзадачи
+ * varint  количество id в истории, затем varint id
+ * </pre>
+ * Запись сущности: varint id, varint ссылки на имя и описание в таблице строк (0 - null, иначе номер + 1),
+ * byte статус (ordinal + 1, 0 - null), byte флаги времени, время начала, varint длительность,
+ * затем varint id эпика у подзадачи или время окончания у эпика. Время хранится как long в минутах от эпохи,
+ * а если у него есть секунды - как long в секундах и int наносекунд.
+ */
+public final class BinarySnapshotWriter {
+    static final int MAGIC = 0x4B4E4253;
+    static final byte VERSION = 1;
+    static final int HAS_START_TIME = 1;
+    static final int START_TIME_SECONDS = 2;
+    static final int HAS_END_TIME = 4;
+    static final int END_TIME_SECONDS = 8;
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+    private BinarySnapshotWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    public static void write(WritableByteChannel channel, BoardData board) throws IOException {
+        new BinarySnapshotWriter(channel).writeBoard(board);
+    }
+
+    private void writeBoard(BoardData board) throws IOException {
+        // повторяющиеся имена и описания записываются один раз, поэтому таблица строк собирается до записей
+        collectStrings(board.getTasks());
+        collectStrings(board.getEpics());
+        collectStrings(board.getSubtasks());
+        ensure(5);
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        putVarint(strings.size());
+        for (String value : strings.keySet()) {
+            putString(value);
+        }
+        putVarint(board.getTasks().size());
+        for (Task task : board.getTasks()) {
+            putEntity(task, null);
+        }
+        putVarint(board.getEpics().size());
+        for (Epic epic : board.getEpics()) {
+            putEntity(epic, epic.getEndTime());
+        }
+        putVarint(board.getSubtasks().size());
+        for (Subtask subtask : board.getSubtasks()) {
+            putEntity(subtask, null);
+            putVarint(subtask.getEpicId());
+        }
+        putVarint(board.getHistory().size());
+        for (Integer id : board.getHistory()) {
+            putVarint(id);
+        }
+        flush();
+    }
+
+    private void collectStrings(Collection<? extends Task> entities) {
+        for (Task entity : entities) {
+            addString(entity.getName());
+            addString(entity.getDescription());
+        }
+    }
+
+    private void addString(String value) {
+        if (value != null) {
+            strings.putIfAbsent(value, strings.size());
+        }
+    }
+
+    private void putEntity(Task entity, LocalDateTime endTime) throws IOException {
+        putVarint(entity.getId());
+        putStringRef(entity.getName());
+        putStringRef(entity.getDescription());
+        LocalDateTime startTime = entity.getStartTime();
+        int flags = 0;
+        if (startTime != null) {
+            flags |= HAS_START_TIME | (isWholeMinute(startTime) ? 0 : START_TIME_SECONDS);
+        }
+        if (endTime != null) {
+            flags |= HAS_END_TIME | (isWholeMinute(endTime) ? 0 : END_TIME_SECONDS);
+        }
+        ensure(2);
+        buffer.put((byte) (entity.getStatus() == null ? 0 : entity.getStatus().ordinal() + 1));
+        buffer.put((byte) flags);
+        if (startTime != null) {
+            putTime(startTime);
+        }
+        putVarint(entity.getDuration());
+        if (endTime != null) {
+            putTime(endTime);
+        }
+    }
+
+    private static boolean isWholeMinute(LocalDateTime time) {
+        return time.getSecond() == 0 && time.getNano() == 0;
+    }
+
+    private void putTime(LocalDateTime time) throws IOException {
+        long epochSecond = time.toEpochSecond(ZoneOffset.UTC);
+        ensure(12);
+        if (isWholeMinute(time)) {
+            buffer.putLong(epochSecond / 60);
+        } else {
+            buffer.putLong(epochSecond);
+            buffer.putInt(time.getNano());
+        }
+    }
+
+    private void putStringRef(String value) throws IOException {
+        putVarint(value == null ? 0 : strings.get(value) + 1);
+    }
+
+    private void putString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarint(bytes.length);
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    // 7 бит на байт, старший бит - признак продолжения; отрицательные числа занимают 5 байт
+    private void putVarint(int value) throws IOException {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
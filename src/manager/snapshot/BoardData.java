@@ -0,0 +1,43 @@
+package manager.snapshot;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Содержимое снимка: задачи, эпики, подзадачи и id из истории просмотров в порядке просмотра.
+ * Коллекции не копируются, при записи снимка можно передать values() карт менеджера.
+ */
+public final class BoardData {
+    private final Collection<Task> tasks;
+    private final Collection<Epic> epics;
+    private final Collection<Subtask> subtasks;
+    private final List<Integer> history;
+
+    public BoardData(Collection<Task> tasks, Collection<Epic> epics, Collection<Subtask> subtasks,
+                     List<Integer> history) {
+        this.tasks = tasks;
+        this.epics = epics;
+        this.subtasks = subtasks;
+        this.history = history;
+    }
+
+    public Collection<Task> getTasks() {
+        return tasks;
+    }
+
+    public Collection<Epic> getEpics() {
+        return epics;
+    }
+
+    public Collection<Subtask> getSubtasks() {
+        return subtasks;
+    }
+
+    public List<Integer> getHistory() {
+        return history;
+    }
+}
@@ -0,0 +1,135 @@
+package manager.snapshot;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Параллельный разбор текстовых снимков: файла taskFile.csv и записей KV-сервера.
+ * Вход делится на части по границам строк, части разбираются в пуле ForkJoinPool, результаты
+ * склеиваются в исходном порядке в BoardData для InMemoryTaskManager.bulkLoad.
+ */
+public final class BulkLoader {
+    private static final int CHUNK_BYTES = 1024 * 1024;
+    private static final int CHUNK_RECORDS = 8192;
+
+    private final ForkJoinPool pool;
+
+    public BulkLoader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public BulkLoader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Файл: строка заголовка, строки сущностей, пустая строка и строка истории. content читается
+     * по абсолютным позициям и не копируется целиком: части декодируются из него в потоках пула.
+     */
+    public BoardData loadCsv(ByteBuffer content, LoadReport report) {
+        long start = System.nanoTime();
+        int base = content.position();
+        int length = content.remaining();
+        int entitiesStart = 0;
+        while (entitiesStart < length && content.get(base + entitiesStart++) != '\n') {
+            // пропускаем заголовок
+        }
+        // история - последняя строка после пустой; перевод строки в конце файла не учитывается
+        int end = length;
+        if (end > entitiesStart && content.get(base + end - 1) == '\n') {
+            end--;
+        }
+        int lastLineStart = end;
+        while (lastLineStart > entitiesStart && content.get(base + lastLineStart - 1) != '\n') {
+            lastLineStart--;
+        }
+        boolean hasHistory = lastLineStart - 1 >= entitiesStart && content.get(base + lastLineStart - 2) == '\n';
+        int entitiesEnd = hasHistory ? lastLineStart : end;
+        List<ForkJoinTask<Batch>> chunks = new ArrayList<>();
+        int chunkStart = entitiesStart;
+        while (chunkStart < entitiesEnd) {
+            int chunkEnd = Math.min(entitiesEnd, chunkStart + CHUNK_BYTES);
+            while (chunkEnd < entitiesEnd && content.get(base + chunkEnd - 1) != '\n') {
+                chunkEnd++;
+            }
+            ByteBuffer chunk = range(content, base + chunkStart, base + chunkEnd);
+            chunks.add(pool.submit(() -> parse(List.of(StandardCharsets.UTF_8.decode(chunk).toString().split("\n")))));
+            chunkStart = chunkEnd;
+        }
+        String history = hasHistory
+                ? StandardCharsets.UTF_8.decode(range(content, base + lastLineStart, base + end)).toString()
+                : "";
+        BoardData board = merge(chunks, history);
+        report.record(LoadReport.PARSE, System.nanoTime() - start);
+        return board;
+    }
+
+    private static ByteBuffer range(ByteBuffer content, int from, int to) {
+        ByteBuffer range = content.duplicate();
+        range.limit(to).position(from);
+        return range;
+    }
+
+    /**
+     * Записи в формате Task.toString() в любом порядке и строка истории. Пустые записи пропускаются.
+     */
+    public BoardData loadRecords(Collection<String> records, String history, LoadReport report) {
+        long start = System.nanoTime();
+        List<String> all = new ArrayList<>(records);
+        List<ForkJoinTask<Batch>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += CHUNK_RECORDS) {
+            List<String> chunk = all.subList(from, Math.min(all.size(), from + CHUNK_RECORDS));
+            chunks.add(pool.submit(() -> parse(chunk)));
+        }
+        BoardData board = merge(chunks, history == null ? "" : history);
+        report.record(LoadReport.PARSE, System.nanoTime() - start);
+        return board;
+    }
+
+    private static Batch parse(List<String> lines) {
+        Batch batch = new Batch();
+        for (String line : lines) {
+            if (line.isBlank()) {
+                continue;
+            }
+            Task task = CsvRecords.parseTask(line.strip());
+            if (task instanceof Epic) {
+                batch.epics.add((Epic) task);
+            } else if (task instanceof Subtask) {
+                batch.subtasks.add((Subtask) task);
+            } else if (task != null) {
+                batch.tasks.add(task);
+            }
+        }
+        return batch;
+    }
+
+    private static BoardData merge(List<ForkJoinTask<Batch>> chunks, String history) {
+        List<Task> tasks = new ArrayList<>();
+        List<Epic> epics = new ArrayList<>();
+        List<Subtask> subtasks = new ArrayList<>();
+        for (ForkJoinTask<Batch> chunk : chunks) {
+            Batch batch = chunk.join();
+            tasks.addAll(batch.tasks);
+            epics.addAll(batch.epics);
+            subtasks.addAll(batch.subtasks);
+        }
+        List<Integer> historyIds = history.isBlank() ? new ArrayList<>() : CsvRecords.parseHistory(history.strip());
+        return new BoardData(tasks, epics, subtasks, historyIds);
+    }
+
+    private static class Batch {
+        private final List<Task> tasks = new ArrayList<>();
+        private final List<Epic> epics = new ArrayList<>();
+        private final List<Subtask> subtasks = new ArrayList<>();
+    }
+}
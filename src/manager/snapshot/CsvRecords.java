@@ -0,0 +1,157 @@
+package manager.snapshot;
+
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Разбор строк текстового снимка: сущность в формате Task.toString() и строка истории из id через запятую.
+ * Методы не зависят от менеджера, поэтому строки можно разбирать параллельно.
+ * <p>
+ * formatTask пишет сущность в том же формате, но экранирует в названии и описании обратную косую черту,
+ * запятую, перевод строки и возврат каретки, поэтому запятая в названии не ломает разбор.
+ * Строки без обратной косой черты разбираются как раньше.
+ */
+public final class CsvRecords {
+
+    private CsvRecords() {
+    }
+
+    /**
+     * Строка сущности для журнала, текстового снимка и KV-сервера, которую разбирает parseTask.
+     */
+    public static String formatTask(Task task) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(task.getId())
+                .append(',').append(task.getTaskType())
+                .append(',');
+        escape(sb, task.getName());
+        sb.append(',').append(task.getStatus()).append(',');
+        escape(sb, task.getDescription());
+        sb.append(',').append(task.getStartTime())
+                .append(',').append(task.getDuration())
+                .append(',').append(task.getEndTime());
+        if (task instanceof Subtask) {
+            sb.append(',').append(((Subtask) task).getEpicId());
+        }
+        return sb.toString();
+    }
+
+    public static Task parseTask(String value) {
+        String[] taskLine = value.indexOf('\\') < 0 ? value.split(",") : splitEscaped(value);
+        Task task = null;
+        int id;
+        switch (TaskType.valueOf(taskLine[1])) {
+            case TASK:
+                id = Integer.parseInt(taskLine[0]);
+                if (taskLine[5].equals("null")) {
+                    task = new Task(taskLine[2], taskLine[4], Status.valueOf(taskLine[3]), null,
+                            Optional.of(Integer.parseInt(taskLine[6])).orElse(0));
+                } else {
+                    task = new Task(taskLine[2], taskLine[4], Status.valueOf(taskLine[3]), LocalDateTime.parse(taskLine[5]),
+                            Integer.parseInt(taskLine[6]));
+                }
+                task.setId(id);
+                break;
+            case SUBTASK:
+                id = Integer.parseInt(taskLine[0]);
+                if (taskLine[5].equals("null")) {
+                    task = new Subtask(taskLine[2], taskLine[4], Status.valueOf(taskLine[3]),
+                            null, Optional.of(Integer.parseInt(taskLine[6])).orElse(0),
+                            Integer.parseInt(taskLine[8]));
+                } else {
+                    task = new Subtask(taskLine[2], taskLine[4], Status.valueOf(taskLine[3]),
+                            LocalDateTime.parse(taskLine[5]), Integer.parseInt(taskLine[6]),
+                            Integer.parseInt(taskLine[8]));
+                }
+                task.setId(id);
+                break;
+            case EPIC:
+                id = Integer.parseInt(taskLine[0]);
+                if (taskLine[5].equals("null")) {
+                    task = new Epic(taskLine[2], taskLine[4], null, Integer.parseInt(taskLine[6]));
+                } else {
+                    task = new Epic(taskLine[2], taskLine[4], LocalDateTime.parse(taskLine[5]),
+                            Integer.parseInt(taskLine[6]));
+                    task.setStartTime(LocalDateTime.parse(taskLine[5]));
+                    task.setDuration(Integer.parseInt(taskLine[6]));
+                    ((Epic) task).setEndTime(LocalDateTime.parse(taskLine[7]));
+                }
+                task.setId(id);
+                task.setStatus(Status.valueOf(taskLine[3]));
+
+                break;
+            default:
+                System.out.println("Не удается восстановить задачу из файла.");
+        }
+        return task;
+    }
+
+    public static List<Integer> parseHistory(String value) {
+        List<Integer> historyList = new ArrayList<>();
+        String[] list = value.split(",");
+        for (String s : list) {
+            historyList.add(Integer.parseInt(s));
+        }
+        return historyList;
+    }
+
+    private static void escape(StringBuilder sb, String field) {
+        if (field == null) {
+            sb.append((String) null);
+            return;
+        }
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            switch (c) {
+                case '\\':
+                case ',':
+                    sb.append('\\').append(c);
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+
+    // поля через неэкранированную запятую; неизвестная последовательность остается как есть
+    private static String[] splitEscaped(String value) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                if (next == 'n') {
+                    field.append('\n');
+                } else if (next == 'r') {
+                    field.append('\r');
+                } else if (next == ',' || next == '\\') {
+                    field.append(next);
+                } else {
+                    field.append(c).append(next);
+                }
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,57 @@
+package manager.snapshot;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время этапов загрузки снимка: чтение данных, разбор записей, построение структур менеджера
+ * и восстановление истории. Этапы перечисляются в порядке выполнения.
+ */
+public final class LoadReport {
+    public static final String READ = "read";
+    public static final String PARSE = "parse";
+    public static final String BUILD = "build";
+    public static final String HISTORY = "history";
+
+    private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+    private int entities;
+
+    public void record(String stage, long nanos) {
+        stageNanos.merge(stage, nanos, Long::sum);
+    }
+
+    public void setEntities(int entities) {
+        this.entities = entities;
+    }
+
+    public int getEntities() {
+        return entities;
+    }
+
+    public Map<String, Long> getStageNanos() {
+        return Collections.unmodifiableMap(stageNanos);
+    }
+
+    public long getStageMillis(String stage) {
+        return TimeUnit.NANOSECONDS.toMillis(stageNanos.getOrDefault(stage, 0L));
+    }
+
+    public long getTotalMillis() {
+        long total = 0;
+        for (long nanos : stageNanos.values()) {
+            total += nanos;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(total);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Загружено сущностей: ").append(entities);
+        for (String stage : stageNanos.keySet()) {
+            sb.append(", ").append(stage).append(" ").append(getStageMillis(stage)).append(" мс");
+        }
+        return sb.append(", всего ").append(getTotalMillis()).append(" мс").toString();
+    }
+}
@@ -0,0 +1,49 @@
+package manager.snapshot;
+
+import manager.DurabilityPolicy;
+import manager.FileBackedTasksManager;
+import tasks.Task;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Переводит существующий снимок taskFile.csv в двоичный формат. Результат записывается через SnapshotStore,
+ * как снимки менеджера: блоками с контрольной суммой и с сохранением предыдущего поколения.
+ * Запуск: java manager.snapshot.SnapshotConverter taskFile.csv taskFile.bin
+ */
+public final class SnapshotConverter {
+
+    private SnapshotConverter() {
+    }
+
+    public static void convertCsvToBinary(File csvFile, File binaryFile) throws IOException {
+        FileBackedTasksManager manager = FileBackedTasksManager.loadFromFile(csvFile);
+        try {
+            List<Integer> history = new ArrayList<>();
+            for (Task task : manager.getHistory()) {
+                history.add(task.getId());
+            }
+            ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+            BinarySnapshotWriter.write(Channels.newChannel(snapshot), new BoardData(manager.getTasks(),
+                    manager.getEpics(), manager.getSubtasks(), history));
+            new SnapshotStore(binaryFile.toPath(), DurabilityPolicy.DEFAULT_GENERATIONS, true)
+                    .write(snapshot.toByteArray());
+        } finally {
+            manager.close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Использование: SnapshotConverter <файл.csv> <файл.bin>");
+            return;
+        }
+        convertCsvToBinary(new File(args[0]), new File(args[1]));
+        System.out.println("Снимок " + args[0] + " записан в двоичном формате в " + args[1]);
+    }
+}
@@ -0,0 +1,9 @@
+package manager.snapshot;
+
+/**
+ * Формат файла снимка FileBackedTasksManager: текстовый CSV или двоичный (BinarySnapshotWriter).
+ */
+public enum SnapshotFormat {
+    CSV,
+    BINARY
+}
@@ -0,0 +1,242 @@
+package manager.snapshot;
+
+import exceptions.ManagerSaveException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Хранит снимки в файле и его предыдущих поколениях file.1, file.2 и т.д.
+ * Снимок пишется во временный файл рядом с file, после записи (и fsync, если он включен) поколения сдвигаются,
+ * а временный файл атомарно переименовывается в file. Оборванная запись не портит записанный ранее снимок.
+ * <p>
+ * Содержимое снимка (CSV или двоичный формат) хранится одним непрерывным участком, за ним - контрольные суммы:
+ * <pre>
+ * int MAGIC, byte VERSION, long длина содержимого, int CRC32C этой длины
+ * содержимое
+ * int CRC32C каждого блока содержимого по BLOCK_SIZE байт, int CRC32C этих сумм
+ * </pre>
+ * Поэтому read проверяет суммы прямо в отображенном в память файле и отдает содержимое без копирования.
+ * При чтении поколение с неверной суммой или другой длиной пропускается и читается следующее по давности,
+ * номер прочитанного поколения возвращает getReadGeneration: изменения после него читающий восстанавливает сам.
+ * Файлы без MAGIC принимаются без проверки, только если это CSV-снимок прежних версий (начинается с заголовка
+ * id,type,...), иначе поколение считается поврежденным.
+ */
+public final class SnapshotStore {
+    static final int MAGIC = 0x4B4E4246;
+    static final byte VERSION = 2;
+    static final int BLOCK_SIZE = 64 * 1024;
+    private static final int MAGIC_SIZE = 5;
+    private static final int HEADER_SIZE = MAGIC_SIZE + 12;
+    private static final byte[] LEGACY_CSV_HEADER = "id,type,".getBytes(StandardCharsets.US_ASCII);
+
+    private final Path path;
+    private final int generations;
+    private final boolean fsync;
+    private int lastReadGeneration = -1;
+
+    /**
+     * generations - сколько снимков хранить вместе с текущим, не меньше 1.
+     */
+    public SnapshotStore(Path path, int generations, boolean fsync) {
+        if (generations < 1) {
+            throw new IllegalArgumentException("Количество поколений снимка должно быть положительным.");
+        }
+        this.path = path.toAbsolutePath();
+        this.generations = generations;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Путь поколения: 0 - текущий снимок, 1 - предыдущий и т.д.
+     */
+    public Path generation(int number) {
+        return number == 0 ? path : path.resolveSibling(path.getFileName() + "." + number);
+    }
+
+    public void write(byte[] content) throws IOException {
+        Path directory = path.getParent();
+        Path temp = Files.createTempFile(directory, path.getFileName() + ".", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer[] framed = frame(content);
+                ByteBuffer last = framed[framed.length - 1];
+                while (last.hasRemaining()) {
+                    channel.write(framed);
+                }
+                if (fsync) {
+                    channel.force(false);
+                }
+            }
+            for (int number = generations - 1; number > 0; number--) {
+                Path previous = generation(number - 1);
+                if (Files.exists(previous)) {
+                    Files.move(previous, generation(number), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (fsync) {
+                forceDirectory(directory);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Содержимое самого нового целого поколения или null, если снимков нет. Буфер только для чтения
+     * и для текущих форматов отображает файл в память без копирования.
+     */
+    public ByteBuffer read() throws IOException {
+        lastReadGeneration = -1;
+        boolean found = false;
+        for (int number = 0; number < generations; number++) {
+            Path candidate = generation(number);
+            if (!Files.exists(candidate)) {
+                continue;
+            }
+            found = true;
+            try {
+                ByteBuffer content = readGeneration(candidate);
+                lastReadGeneration = number;
+                return content;
+            } catch (ManagerSaveException e) {
+                System.out.println("Снимок " + candidate.getFileName() + " поврежден: " + e.getMessage()
+                        + " Загружается предыдущий снимок.");
+            }
+        }
+        if (found) {
+            throw new ManagerSaveException("Нет ни одного целого снимка " + path.getFileName() + ".");
+        }
+        return null;
+    }
+
+    /**
+     * Номер поколения, прочитанного последним вызовом read, или -1, если снимков не было.
+     */
+    public int getReadGeneration() {
+        return lastReadGeneration;
+    }
+
+    // заголовок и суммы пишутся отдельными буферами вокруг content, без копирования содержимого
+    private static ByteBuffer[] frame(byte[] content) {
+        int blocks = blockCount(content.length);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC).put(VERSION).putLong(content.length).putInt(lengthChecksum(content.length)).flip();
+        ByteBuffer checksums = ByteBuffer.allocate(blocks * 4 + 4);
+        CRC32C crc = new CRC32C();
+        for (int block = 0; block < blocks; block++) {
+            int offset = block * BLOCK_SIZE;
+            crc.reset();
+            crc.update(content, offset, Math.min(BLOCK_SIZE, content.length - offset));
+            checksums.putInt((int) crc.getValue());
+        }
+        crc.reset();
+        crc.update(checksums.array(), 0, blocks * 4);
+        checksums.putInt((int) crc.getValue()).flip();
+        return new ByteBuffer[]{header, ByteBuffer.wrap(content), checksums};
+    }
+
+    private static ByteBuffer readGeneration(Path candidate) throws IOException {
+        try (FileChannel channel = FileChannel.open(candidate, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new ManagerSaveException("Снимок больше 2 ГБ.");
+            }
+            // отображение остается действительным после закрытия канала
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < MAGIC_SIZE || mapped.getInt(0) != MAGIC) {
+                if (!isLegacyCsv(mapped)) {
+                    throw new ManagerSaveException("Файл не является снимком.");
+                }
+                return mapped;
+            }
+            byte version = mapped.get(4);
+            if (version != VERSION) {
+                throw new ManagerSaveException("Неподдерживаемая версия снимка: " + version);
+            }
+            return verified(mapped);
+        }
+    }
+
+    /**
+     * Проверяет длину и контрольные суммы и возвращает содержимое как часть framed без копирования.
+     */
+    static ByteBuffer verified(ByteBuffer framed) {
+        if (framed.limit() < HEADER_SIZE) {
+            throw new ManagerSaveException("Снимок обрывается до конца записи.");
+        }
+        long length = framed.getLong(MAGIC_SIZE);
+        if (framed.getInt(MAGIC_SIZE + 8) != lengthChecksum(length) || length < 0 || length > Integer.MAX_VALUE) {
+            throw new ManagerSaveException("Неверная длина снимка.");
+        }
+        int blocks = blockCount((int) length);
+        long expectedSize = HEADER_SIZE + length + blocks * 4L + 4;
+        if (framed.limit() < expectedSize) {
+            throw new ManagerSaveException("Снимок обрывается до конца записи.");
+        }
+        if (framed.limit() > expectedSize) {
+            throw new ManagerSaveException("Неверная длина снимка.");
+        }
+        int checksumsStart = HEADER_SIZE + (int) length;
+        CRC32C crc = new CRC32C();
+        crc.update(range(framed, checksumsStart, checksumsStart + blocks * 4));
+        if ((int) crc.getValue() != framed.getInt(checksumsStart + blocks * 4)) {
+            throw new ManagerSaveException("Неверная контрольная сумма таблицы блоков.");
+        }
+        for (int block = 0; block < blocks; block++) {
+            int offset = HEADER_SIZE + block * BLOCK_SIZE;
+            crc.reset();
+            crc.update(range(framed, offset, Math.min(offset + BLOCK_SIZE, checksumsStart)));
+            if ((int) crc.getValue() != framed.getInt(checksumsStart + block * 4)) {
+                throw new ManagerSaveException("Неверная контрольная сумма блока.");
+            }
+        }
+        return range(framed, HEADER_SIZE, checksumsStart).slice();
+    }
+
+    private static ByteBuffer range(ByteBuffer buffer, int from, int to) {
+        ByteBuffer range = buffer.duplicate();
+        range.limit(to).position(from);
+        return range;
+    }
+
+    private static int blockCount(int length) {
+        return (length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    private static boolean isLegacyCsv(ByteBuffer content) {
+        if (content.limit() < LEGACY_CSV_HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < LEGACY_CSV_HEADER.length; i++) {
+            if (content.get(i) != LEGACY_CSV_HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int lengthChecksum(long length) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(8).putLong(0, length));
+        return (int) crc.getValue();
+    }
+
+    private static void forceDirectory(Path directory) {
+        // переименование попадает на диск вместе с каталогом; не на всех системах каталог можно открыть
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            System.out.println("Не удалось записать на диск каталог " + directory + ". " + e.getMessage());
+        }
+    }
+}
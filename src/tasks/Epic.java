@@ -4,10 +4,18 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.TreeMap;
 
 public class Epic extends Task {
     private List<Integer> subtasks;
     private LocalDateTime endTime = null;
+    // агрегаты по подзадачам поддерживаются менеджером инкрементально и не сериализуются
+    private transient int newSubtasksCount;
+    private transient int inProgressSubtasksCount;
+    private transient int doneSubtasksCount;
+    private transient int subtasksDuration;
+    private transient TreeMap<LocalDateTime, Integer> subtaskStartTimes;
+    private transient TreeMap<LocalDateTime, Integer> subtaskEndTimes;
 
     public Epic(String name, String description, LocalDateTime startTime, int duration) {
         super(name, description, Status.NEW, null, 0);
@@ -21,6 +29,111 @@ public class Epic extends Task {
         subtasks.add(id);
     }
 
+    public void addSubtaskAggregates(Subtask subtask) {
+        changeStatusCount(subtask.getStatus(), 1);
+        subtasksDuration += subtask.getDuration();
+        if (subtask.getStartTime() != null) {
+            changeTimeCount(startTimes(), subtask.getStartTime(), 1);
+            changeTimeCount(endTimes(), subtask.getEndTime(), 1);
+        }
+        applyAggregates();
+    }
+
+    public void removeSubtaskAggregates(Subtask subtask) {
+        changeStatusCount(subtask.getStatus(), -1);
+        subtasksDuration -= subtask.getDuration();
+        if (subtask.getStartTime() != null) {
+            changeTimeCount(startTimes(), subtask.getStartTime(), -1);
+            changeTimeCount(endTimes(), subtask.getEndTime(), -1);
+        }
+        applyAggregates();
+    }
+
+    public void clearSubtasks() {
+        if (subtasks != null) {
+            subtasks.clear();
+        }
+        newSubtasksCount = 0;
+        inProgressSubtasksCount = 0;
+        doneSubtasksCount = 0;
+        subtasksDuration = 0;
+        startTimes().clear();
+        endTimes().clear();
+        applyAggregates();
+    }
+
+    public void copyAggregatesFrom(Epic epic) {
+        newSubtasksCount = epic.newSubtasksCount;
+        inProgressSubtasksCount = epic.inProgressSubtasksCount;
+        doneSubtasksCount = epic.doneSubtasksCount;
+        subtasksDuration = epic.subtasksDuration;
+        subtaskStartTimes = new TreeMap<>(epic.startTimes());
+        subtaskEndTimes = new TreeMap<>(epic.endTimes());
+        applyAggregates();
+    }
+
+    private void applyAggregates() {
+        int subtasksCount = newSubtasksCount + inProgressSubtasksCount + doneSubtasksCount;
+        if (newSubtasksCount == subtasksCount) {
+            status = Status.NEW;
+        } else if (doneSubtasksCount == subtasksCount) {
+            status = Status.DONE;
+        } else {
+            status = Status.IN_PROGRESS;
+        }
+        duration = subtasksDuration;
+        startTime = startTimes().isEmpty() ? null : startTimes().firstKey();
+        endTime = endTimes().isEmpty() ? null : endTimes().lastKey();
+    }
+
+    private void changeStatusCount(Status status, int delta) {
+        if (status == Status.DONE) {
+            doneSubtasksCount += delta;
+        } else if (status == Status.IN_PROGRESS) {
+            inProgressSubtasksCount += delta;
+        } else {
+            newSubtasksCount += delta;
+        }
+    }
+
+    private void changeTimeCount(TreeMap<LocalDateTime, Integer> times, LocalDateTime time, int delta) {
+        int count = times.getOrDefault(time, 0) + delta;
+        if (count > 0) {
+            times.put(time, count);
+        } else {
+            times.remove(time);
+        }
+    }
+
+    // при десериализации через Gson конструктор не вызывается, поэтому коллекции создаются лениво
+    private TreeMap<LocalDateTime, Integer> startTimes() {
+        if (subtaskStartTimes == null) {
+            subtaskStartTimes = new TreeMap<>();
+        }
+        return subtaskStartTimes;
+    }
+
+    private TreeMap<LocalDateTime, Integer> endTimes() {
+        if (subtaskEndTimes == null) {
+            subtaskEndTimes = new TreeMap<>();
+        }
+        return subtaskEndTimes;
+    }
+
+    /**
+     * Копия эпика для чтения в другом потоке: список подзадач копируется, агрегаты не переносятся.
+     */
+    public Epic copy() {
+        Epic copy = new Epic(name, description, null, 0);
+        copy.id = id;
+        copy.status = status;
+        copy.startTime = startTime;
+        copy.duration = duration;
+        copy.endTime = endTime;
+        copy.subtasks = subtasks == null ? null : new ArrayList<>(subtasks);
+        return copy;
+    }
+
     public List<Integer> getSubtasks() {
         return subtasks;
     }
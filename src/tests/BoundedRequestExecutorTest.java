@@ -0,0 +1,74 @@
+package tests;
+
+import controllers.BoundedRequestExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedRequestExecutorTest {
+
+    private ExecutorService pool;
+    private BoundedRequestExecutor executor;
+
+    @BeforeEach
+    public void beforeEach() {
+        pool = Executors.newSingleThreadExecutor();
+        executor = new BoundedRequestExecutor(pool, 1);
+    }
+
+    @AfterEach
+    public void afterEach() {
+        executor.shutdown();
+    }
+
+    @Test
+    void shouldRunRequestInPoolWhileQueueIsNotFull() throws InterruptedException {
+        AtomicBoolean rejected = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(() -> {
+            rejected.set(BoundedRequestExecutor.isRejected());
+            done.countDown();
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS), "Запрос не выполнен.");
+        assertFalse(rejected.get(), "Запрос отклонен при пустой очереди.");
+    }
+
+    @Test
+    void shouldRejectRequestInCallerThreadWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS), "Запрос не начал выполняться.");
+        executor.execute(() -> { });
+        assertEquals(1, executor.getQueueDepth(), "Неверная длина очереди.");
+
+        Thread caller = Thread.currentThread();
+        AtomicBoolean rejected = new AtomicBoolean();
+        AtomicBoolean inCallerThread = new AtomicBoolean();
+        executor.execute(() -> {
+            rejected.set(BoundedRequestExecutor.isRejected());
+            inCallerThread.set(Thread.currentThread() == caller);
+        });
+        release.countDown();
+
+        assertTrue(rejected.get(), "Запрос сверх очереди не отклонен.");
+        assertTrue(inCallerThread.get(), "Отклоненный запрос выполнен не в вызывающем потоке.");
+        assertFalse(BoundedRequestExecutor.isRejected(), "Признак отказа остался после обработки.");
+    }
+}
@@ -0,0 +1,87 @@
+package tests;
+
+import manager.BufferedHistoryManager;
+import manager.HistoryManager;
+import manager.InMemoryHistoryManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tasks.Status;
+import tasks.Task;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferedHistoryManagerTest {
+
+    private HistoryManager historyManager;
+    private List<Task> tasks;
+
+    @BeforeEach
+    public void beforeEach() {
+        historyManager = new BufferedHistoryManager(new InMemoryHistoryManager());
+        tasks = new ArrayList<>();
+        for (int i = 1; i <= 1_000; i++) {
+            Task task = new Task("Task" + i, "Descr", Status.NEW, null, 0);
+            task.setId(i);
+            tasks.add(task);
+        }
+    }
+
+    @Test
+    void shouldKeepViewOrderOfOneThread() {
+        for (int i = 0; i < 300; i++) {
+            historyManager.add(tasks.get(i % 5));
+        }
+        assertEquals(List.of(tasks.get(0), tasks.get(1), tasks.get(2), tasks.get(3), tasks.get(4)),
+                historyManager.getHistory(), "Неверный порядок истории.");
+    }
+
+    @Test
+    void shouldApplyPendingViewsBeforeRemove() {
+        historyManager.add(tasks.get(0));
+        historyManager.add(tasks.get(1));
+        historyManager.remove(1);
+        assertEquals(List.of(tasks.get(1)), historyManager.getHistory(), "Удаленная задача осталась в истории.");
+        historyManager.add(tasks.get(2));
+        historyManager.clear();
+        assertTrue(historyManager.getHistory().isEmpty(), "История не очищена.");
+    }
+
+    @Test
+    void shouldNotLoseViews_WhenAddedFromManyThreads() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = offset; i < tasks.size(); i += threads) {
+                        historyManager.add(tasks.get(i));
+                        historyManager.add(tasks.get(i));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        List<Task> history = historyManager.getHistory();
+        assertEquals(tasks.size(), history.size(), "Неверный размер истории.");
+        assertEquals(new HashSet<>(tasks), new HashSet<>(history), "Просмотры потеряны.");
+    }
+}
@@ -0,0 +1,264 @@
+package tests;
+
+import manager.BoardSnapshot;
+import manager.ConcurrentTaskManager;
+import manager.FileBackedTasksManager;
+import manager.InMemoryTaskManager;
+import manager.TaskManager;
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+    private static final int EPICS_PER_WRITER = 25;
+    private static final int SUBTASKS_PER_EPIC = 4;
+
+    @Override
+    public TaskManager createTaskManager() {
+        InMemoryTaskManager inMemoryTaskManager = new InMemoryTaskManager();
+        inMemoryTaskManager.setEpicAggregatesVerification(true);
+        return new ConcurrentTaskManager(inMemoryTaskManager);
+    }
+
+    @Test
+    void shouldKeepStateConsistent_WhenUsedFromManyThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+        List<Future<?>> readers = new ArrayList<>();
+        try {
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int e = 0; e < EPICS_PER_WRITER; e++) {
+                        Epic epic = new Epic("Epic", "Descr", null, 0);
+                        taskManager.createEpic(epic);
+                        List<Subtask> subtasks = new ArrayList<>();
+                        for (int s = 0; s < SUBTASKS_PER_EPIC; s++) {
+                            // у каждого писателя свой день, поэтому пересечений по времени нет
+                            Subtask subtask = new Subtask("Subtask", "Descr", Status.NEW,
+                                    LocalDateTime.of(2023, 1, 1, 0, 0).plusDays(writer)
+                                            .plusMinutes((e * SUBTASKS_PER_EPIC + s) * 10L), 10, epic.getId());
+                            taskManager.createSubtask(subtask);
+                            subtasks.add(subtask);
+                        }
+                        Subtask done = new Subtask("Subtask", "Done", Status.DONE, subtasks.get(0).getStartTime(),
+                                10, epic.getId());
+                        done.setId(subtasks.get(0).getId());
+                        taskManager.updateSubtask(done);
+                        taskManager.deleteSubtaskById(subtasks.get(1).getId());
+                        taskManager.findEpicById(epic.getId());
+                    }
+                    return null;
+                }));
+            }
+            for (int r = 0; r < READERS; r++) {
+                readers.add(executor.submit(() -> {
+                    start.await();
+                    while (!allDone(writers)) {
+                        Task previous = null;
+                        for (Task task : taskManager.getPrioritizedTasks()) {
+                            if (previous != null) {
+                                assertFalse(task.getStartTime().isBefore(previous.getStartTime()),
+                                        "Нарушен порядок приоритетных задач.");
+                            }
+                            previous = task;
+                        }
+                        for (Epic epic : taskManager.getEpics()) {
+                            assertNotNull(epic.getStatus(), "Статус эпика не рассчитан.");
+                        }
+                        taskManager.getHistory();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : writers) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            for (Future<?> future : readers) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int subtasksLeft = WRITERS * EPICS_PER_WRITER * (SUBTASKS_PER_EPIC - 1);
+        assertEquals(WRITERS * EPICS_PER_WRITER, taskManager.getEpics().size(), "Неверное количество эпиков.");
+        assertEquals(subtasksLeft, taskManager.getSubtasks().size(), "Неверное количество подзадач.");
+        assertEquals(subtasksLeft, taskManager.getPrioritizedTasks().size(),
+                "Неверное количество приоритетных задач.");
+        Set<Integer> ids = new HashSet<>();
+        for (Epic epic : taskManager.getEpics()) {
+            assertTrue(ids.add(epic.getId()), "Повторяющийся id.");
+            assertEquals(Status.IN_PROGRESS, epic.getStatus(), "Неверный статус эпика.");
+            assertEquals(10 * (SUBTASKS_PER_EPIC - 1), epic.getDuration(), "Неверная длительность эпика.");
+        }
+        for (Subtask subtask : taskManager.getSubtasks()) {
+            assertTrue(ids.add(subtask.getId()), "Повторяющийся id.");
+        }
+    }
+
+    @Test
+    void shouldReuseSnapshotUntilNextWrite() {
+        taskManager.createTask(new Task("Task1", "Descr1", Status.NEW,
+                LocalDateTime.of(2022, 7, 10, 10, 0), 30));
+        BoardSnapshot snapshot = taskManager.getSnapshot();
+        assertSame(snapshot, taskManager.getSnapshot(), "Версия доски построена повторно без изменений.");
+        assertSame(snapshot.getTasks(), taskManager.getTasks(), "Список задач скопирован повторно.");
+
+        taskManager.createTask(new Task("Task2", "Descr2", Status.NEW,
+                LocalDateTime.of(2022, 7, 11, 10, 0), 30));
+        BoardSnapshot updated = taskManager.getSnapshot();
+        assertNotSame(snapshot, updated, "Версия доски не обновлена после изменения.");
+        assertTrue(updated.getVersion() > snapshot.getVersion(), "Номер версии не увеличился.");
+        assertEquals(1, snapshot.getTasks().size(), "Старая версия доски изменилась.");
+        assertEquals(2, updated.getPrioritizedTasks().size(), "Неверное количество приоритетных задач.");
+        assertThrows(UnsupportedOperationException.class, () -> updated.getTasks().clear(),
+                "Версия доски должна быть неизменяемой.");
+    }
+
+    @Test
+    void shouldPatchSnapshotWithChangedEntities() {
+        InMemoryTaskManager inMemoryTaskManager = new InMemoryTaskManager();
+        ConcurrentTaskManager manager = new ConcurrentTaskManager(inMemoryTaskManager);
+        LocalDateTime start = LocalDateTime.of(2022, 7, 10, 10, 0);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Task task = new Task("Task" + i, "Descr", Status.NEW, i % 5 == 0 ? null : start.plusHours(i), 30);
+            manager.createTask(task);
+            tasks.add(task);
+        }
+        Epic epic = new Epic("Epic", "Descr", null, 0);
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask("Subtask", "Descr", Status.NEW, start.minusDays(1), 30, epic.getId());
+        manager.createSubtask(subtask);
+        BoardSnapshot full = manager.getSnapshot();
+
+        Task moved = new Task("Moved", "Descr", Status.DONE, start.minusHours(5), 30);
+        moved.setId(tasks.get(7).getId());
+        manager.updateTask(moved);
+        manager.deleteTaskById(tasks.get(3).getId());
+        manager.createTask(new Task("Late", "Descr", Status.NEW, start.plusDays(3), 30));
+        Subtask done = new Subtask("Subtask", "Descr", Status.DONE, start.minusDays(1), 30, epic.getId());
+        done.setId(subtask.getId());
+        manager.updateSubtask(done);
+        BoardSnapshot patched = manager.getSnapshot();
+
+        assertEquals(1, full.getSubtasks().size(), "Старая версия доски изменилась.");
+        assertEquals(Status.NEW, full.getEpics().get(0).getStatus(), "Эпик старой версии изменился.");
+        assertEquals(inMemoryTaskManager.getTasks(), patched.getTasks(), "Неверный список задач.");
+        assertEquals(inMemoryTaskManager.getSubtasks(), patched.getSubtasks(), "Неверный список подзадач.");
+        assertEquals(Status.DONE, patched.getEpics().get(0).getStatus(), "Эпик не обновлен в версии доски.");
+        assertEquals(new ArrayList<>(inMemoryTaskManager.getPrioritizedTasks()),
+                new ArrayList<>(patched.getPrioritizedTasks()), "Неверный порядок приоритетных задач.");
+    }
+
+    @Test
+    void shouldPatchLargeSnapshotAcrossChunks() {
+        InMemoryTaskManager inMemoryTaskManager = new InMemoryTaskManager();
+        ConcurrentTaskManager manager = new ConcurrentTaskManager(inMemoryTaskManager);
+        LocalDateTime start = LocalDateTime.of(2022, 7, 10, 10, 0);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            Task task = new Task("Task" + i, "Descr", Status.NEW, i % 7 == 0 ? null : start.plusHours(i), 30);
+            manager.createTask(task);
+            tasks.add(task);
+        }
+        manager.getSnapshot();
+
+        for (int round = 0; round < 5; round++) {
+            for (int i = round; i < tasks.size(); i += 97) {
+                // задача переносится в другой блок списка приоритетов
+                Task moved = new Task("Moved" + round, "Descr", Status.DONE,
+                        start.minusHours(i + round * 1_000L), 30);
+                moved.setId(tasks.get(i).getId());
+                manager.updateTask(moved);
+            }
+            manager.deleteTaskById(tasks.get(500 + round).getId());
+            manager.createTask(new Task("Late" + round, "Descr", Status.NEW, start.plusYears(1).plusHours(round), 30));
+            BoardSnapshot patched = manager.getSnapshot();
+
+            assertEquals(inMemoryTaskManager.getTasks(), patched.getTasks(), "Неверный список задач.");
+            assertEquals(new ArrayList<>(inMemoryTaskManager.getPrioritizedTasks()),
+                    new ArrayList<>(patched.getPrioritizedTasks()), "Неверный порядок приоритетных задач.");
+            assertTrue(patched.getPrioritizedTasks().containsAll(inMemoryTaskManager.getPrioritizedTasks()),
+                    "Приоритетная задача не найдена в версии доски.");
+        }
+    }
+
+    @Test
+    void shouldNotBlockReadersWhilePersisting() throws Exception {
+        File file = File.createTempFile("concurrent", ".csv");
+        file.deleteOnExit();
+        CountDownLatch persisting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FileBackedTasksManager slowManager = new FileBackedTasksManager(file) {
+            @Override
+            public void save() {
+                submitWrite(() -> {
+                    persisting.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+        };
+        ConcurrentTaskManager manager = new ConcurrentTaskManager(slowManager);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> first = executor.submit(() -> manager.createTask(new Task("First", "Descr", Status.NEW,
+                    null, 0)));
+            assertTrue(persisting.await(5, TimeUnit.SECONDS), "Запись изменения не началась.");
+            Future<?> second = executor.submit(() -> manager.createTask(new Task("Second", "Descr", Status.NEW,
+                    null, 0)));
+
+            Future<List<Task>> read = executor.submit(() -> {
+                while (manager.getTasks().size() < 2) {
+                    Thread.onSpinWait();
+                }
+                return manager.getTasks();
+            });
+            assertEquals(2, read.get(5, TimeUnit.SECONDS).size(), "Чтение ждет записи изменения.");
+            assertFalse(first.isDone() || second.isDone(), "Изменение завершилось до записи.");
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            slowManager.close();
+        }
+    }
+
+    private static boolean allDone(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            if (!future.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
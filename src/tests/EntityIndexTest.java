@@ -0,0 +1,92 @@
+package tests;
+
+import manager.EntityIndex;
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskType;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityIndexTest {
+
+    private Task newEntity(int id, TaskType type) {
+        Task task;
+        if (type == TaskType.EPIC) {
+            task = new Epic("Epic" + id, "Descr", null, 0);
+        } else if (type == TaskType.SUBTASK) {
+            task = new Subtask("Subtask" + id, "Descr", Status.NEW, null, 0, 1);
+        } else {
+            task = new Task("Task" + id, "Descr", Status.NEW, null, 0);
+        }
+        task.setId(id);
+        return task;
+    }
+
+    @Test
+    void shouldFindEntityOnlyWithItsType() {
+        EntityIndex index = new EntityIndex();
+        Task task = newEntity(1, TaskType.TASK);
+        Task epic = newEntity(2, TaskType.EPIC);
+        index.put(task);
+        index.put(epic);
+
+        assertSame(task, index.get(1, TaskType.TASK), "Задача не найдена.");
+        assertSame(epic, index.get(2, TaskType.EPIC), "Эпик не найден.");
+        assertNull(index.get(1, TaskType.SUBTASK), "Найдена сущность другого типа.");
+        assertNull(index.get(3, TaskType.TASK), "Найдена несуществующая задача.");
+
+        index.remove(1, TaskType.EPIC);
+        assertSame(task, index.get(1, TaskType.TASK), "Удалена сущность другого типа.");
+        index.removeAll(TaskType.TASK);
+        assertNull(index.get(1, TaskType.TASK), "Задачи не удалены.");
+        assertSame(epic, index.get(2, TaskType.EPIC), "Удален эпик вместе с задачами.");
+    }
+
+    @Test
+    void shouldMatchHashMapOnRandomOperations() {
+        EntityIndex index = new EntityIndex();
+        Map<Integer, Task> reference = new HashMap<>();
+        TaskType[] types = TaskType.values();
+        Random random = new Random(15);
+        for (int i = 0; i < 100_000; i++) {
+            int id = random.nextInt(2_000) + 1;
+            TaskType type = types[random.nextInt(types.length)];
+            int operation = random.nextInt(10);
+            if (operation < 5) {
+                Task entity = newEntity(id, type);
+                index.put(entity);
+                reference.put(id, entity);
+            } else if (operation < 9) {
+                Task expected = reference.get(id);
+                if (expected != null && expected.getTaskType() == type) {
+                    reference.remove(id);
+                }
+                index.remove(id, type);
+            } else if (random.nextInt(100) == 0) {
+                index.removeAll(type);
+                reference.values().removeIf(entity -> entity.getTaskType() == type);
+            }
+            if (i % 1_000 == 0) {
+                assertEquals(reference.size(), index.size(), "Неверный размер индекса.");
+                for (int checkId = 1; checkId <= 2_000; checkId++) {
+                    Task expected = reference.get(checkId);
+                    for (TaskType checkType : types) {
+                        Task actual = index.get(checkId, checkType);
+                        if (expected != null && expected.getTaskType() == checkType) {
+                            assertSame(expected, actual, "Неверная сущность с id " + checkId);
+                        } else {
+                            assertNull(actual, "Лишняя сущность с id " + checkId);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,7 +1,13 @@
 package tests;
 
+import exceptions.ManagerSaveException;
+import manager.DurabilityPolicy;
 import manager.FileBackedTasksManager;
 import manager.TaskManager;
+import manager.snapshot.LoadReport;
+import manager.snapshot.SnapshotConverter;
+import manager.snapshot.SnapshotFormat;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import tasks.Epic;
@@ -10,14 +16,24 @@ import tasks.Subtask;
 import tasks.Task;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class FileBackedTasksManagerTest extends TaskManagerTest<FileBackedTasksManager> {
 
     private final File file = new File("taskFile.csv");
+    private Path directory;
     private TaskManager fileBackedTasksManager;
     private TaskManager newFileBackedTasksManager;
     private Task task;
@@ -27,7 +43,8 @@ public class FileBackedTasksManagerTest extends TaskManagerTest<FileBackedTasksM
     private Subtask subtask2;
 
     @BeforeEach
-    public void beforeEach() {
+    public void beforeEach() throws IOException {
+        directory = Files.createTempDirectory("file-backed");
         fileBackedTasksManager = createTaskManager();
         task = new Task("Task1", "Descr1",Status.NEW,
                 LocalDateTime.of(2022,12,10,10,0), 30);
@@ -40,6 +57,28 @@ public class FileBackedTasksManagerTest extends TaskManagerTest<FileBackedTasksM
                 LocalDateTime.of(2022,9,20,15,30), 120, 3);
     }
 
+    @AfterEach
+    public void afterEach() throws IOException {
+        // менеджеры пишут историю в общий taskFile.csv.history в потоке таймера, поэтому закрываются до следующего теста
+        for (TaskManager manager : List.of(taskManager, fileBackedTasksManager)) {
+            ((FileBackedTasksManager) manager).close();
+        }
+        if (newFileBackedTasksManager != null) {
+            ((FileBackedTasksManager) newFileBackedTasksManager).close();
+        }
+        // сам taskFile.csv лежит в репозитории, удаляются только его поколения, сегменты журнала и файл истории
+        File[] companions = file.getAbsoluteFile().getParentFile()
+                .listFiles((dir, name) -> name.startsWith(file.getName() + "."));
+        if (companions != null) {
+            for (File companion : companions) {
+                companion.delete();
+            }
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
     @Override
     public TaskManager createTaskManager() {
         return new FileBackedTasksManager();
@@ -55,6 +94,7 @@ public class FileBackedTasksManagerTest extends TaskManagerTest<FileBackedTasksM
         fileBackedTasksManager.deleteTaskById(2);
         fileBackedTasksManager.deleteSubtaskById(4);
         fileBackedTasksManager.findTaskById(1);
+        ((FileBackedTasksManager) fileBackedTasksManager).awaitPersistence();
 
         newFileBackedTasksManager = FileBackedTasksManager.loadFromFile(file);
         List<Task> taskList = newFileBackedTasksManager.getTasks();
@@ -102,6 +142,153 @@ public class FileBackedTasksManagerTest extends TaskManagerTest<FileBackedTasksM
         assertEquals(0, historyList.size(), "Неверное количество задач в истории.");
     }
 
+    @Test
+    public void shouldReplayJournalOnTopOfSnapshot() throws IOException {
+        File snapshotFile = File.createTempFile("journaled", ".csv", directory.toFile());
+        File journalFile = new File(snapshotFile.getPath() + ".journal");
+        TaskManager journaledManager = new FileBackedTasksManager(snapshotFile, 4);
+        journaledManager.createTask(task);
+        journaledManager.createTask(task2);
+        journaledManager.createEpic(epic);
+        journaledManager.createSubtask(subtask);
+        journaledManager.createSubtask(subtask2);
+        journaledManager.deleteTaskById(2);
+        journaledManager.findTaskById(1);
+        ((FileBackedTasksManager) journaledManager).awaitPersistence();
+
+        assertEquals(2, Files.readAllLines(journalFile.toPath()).size(), "Неверное количество записей в журнале.");
+
+        newFileBackedTasksManager = FileBackedTasksManager.loadFromFile(snapshotFile, 4);
+        assertEquals(List.of(task), newFileBackedTasksManager.getTasks(), "Задачи восстановлены неверно.");
+        assertEquals(2, newFileBackedTasksManager.getSubtasks().size(), "Подзадачи восстановлены неверно.");
+        Epic loadedEpic = newFileBackedTasksManager.getEpics().get(0);
+        assertEquals(Status.IN_PROGRESS, loadedEpic.getStatus(), "Статус эпика восстановлен неверно.");
+        assertEquals(List.of(task), newFileBackedTasksManager.getHistory(),
+                "История восстановлена неверно.");
+    }
+
+    @Test
+    public void shouldDropTornJournalTail() throws IOException {
+        File snapshotFile = File.createTempFile("torn", ".csv", directory.toFile());
+        // снимок еще не записан, есть только журнал
+        Files.delete(snapshotFile.toPath());
+        File journalFile = new File(snapshotFile.getPath() + ".journal");
+        File journalSegment = new File(journalFile.getPath() + ".1");
+        FileBackedTasksManager journaledManager = new FileBackedTasksManager(snapshotFile, 100);
+        journaledManager.createTask(task);
+        journaledManager.createTask(task2);
+        journaledManager.close();
+        List<String> entries = Files.readAllLines(journalFile.toPath());
+        String lastEntry = entries.get(entries.size() - 1);
+        Files.writeString(journalFile.toPath(), lastEntry.substring(0, lastEntry.length() / 2),
+                StandardOpenOption.APPEND);
+
+        newFileBackedTasksManager = FileBackedTasksManager.loadFromFile(snapshotFile, 100);
+        assertEquals(List.of(task, task2), newFileBackedTasksManager.getTasks(), "Журнал восстановлен неверно.");
+        // после загрузки журнал записан в снимок и стал сегментом предыдущего поколения
+        assertEquals(entries, Files.readAllLines(journalSegment.toPath()), "Оборванная запись не отброшена.");
+
+        Files.write(journalFile.toPath(), List.of("PUT,3,TA", lastEntry));
+        assertThrows(ManagerSaveException.class, () -> FileBackedTasksManager.loadFromFile(snapshotFile, 100),
+                "Повреждение в середине журнала не обнаружено.");
+    }
+
+    @Test
+    public void shouldPersistWithEveryDurabilityPolicy() throws IOException {
+        List<DurabilityPolicy> policies = List.of(DurabilityPolicy.writeThrough(), DurabilityPolicy.fsyncEach(),
+                DurabilityPolicy.groupCommit(20, 3), DurabilityPolicy.async());
+        for (DurabilityPolicy policy : policies) {
+            File snapshotFile = File.createTempFile("durable", ".csv", directory.toFile());
+            FileBackedTasksManager manager = new FileBackedTasksManager(snapshotFile, 2, policy);
+            manager.createTask(new Task("Task1", "Descr1", Status.NEW,
+                    LocalDateTime.of(2022, 12, 10, 10, 0), 30));
+            manager.createTask(new Task("Task2", "Descr2", Status.NEW, null, 0));
+            manager.createEpic(new Epic("Epic1", "Descr1", null, 0));
+            manager.findTaskById(2);
+            manager.deleteTaskById(1);
+            manager.awaitPersistence();
+            manager.close();
+
+            newFileBackedTasksManager = FileBackedTasksManager.loadFromFile(snapshotFile);
+            assertEquals(1, newFileBackedTasksManager.getTasks().size(), "Задачи восстановлены неверно: " + policy.getMode());
+            assertEquals(1, newFileBackedTasksManager.getEpics().size(), "Эпики восстановлены неверно: " + policy.getMode());
+            assertEquals(1, newFileBackedTasksManager.getHistory().size(), "История восстановлена неверно: " + policy.getMode());
+        }
+    }
+
+    @Test
+    public void shouldNotRewriteSnapshotOnView() throws IOException {
+        File snapshotFile = File.createTempFile("viewed", ".csv", directory.toFile());
+        File historyFile = new File(snapshotFile.getPath() + ".history");
+        FileBackedTasksManager manager = new FileBackedTasksManager(snapshotFile);
+        manager.createTask(task);
+        manager.createTask(task2);
+        byte[] snapshot = Files.readAllBytes(snapshotFile.toPath());
+
+        manager.findTaskById(2);
+        manager.findTaskById(1);
+        manager.awaitPersistence();
+
+        assertArrayEquals(snapshot, Files.readAllBytes(snapshotFile.toPath()), "Просмотр переписал снимок.");
+        assertEquals(List.of("2,1,"), Files.readAllLines(historyFile.toPath()), "Просмотры записаны неверно.");
+        newFileBackedTasksManager = FileBackedTasksManager.loadFromFile(snapshotFile);
+        assertEquals(List.of(task2, task), newFileBackedTasksManager.getHistory(), "История восстановлена неверно.");
+
+        manager.deleteTaskById(2);
+        manager.awaitPersistence();
+        assertEquals(List.of("1,"), Files.readAllLines(historyFile.toPath()), "История не переписана после удаления.");
+        File[] leftovers = snapshotFile.getParentFile()
+                .listFiles((dir, name) -> name.startsWith(historyFile.getName()) && name.endsWith(".tmp"));
+        assertNotNull(leftovers);
+        assertEquals(0, leftovers.length, "Временный файл истории не удален.");
+    }
+
+    @Test
+    public void shouldLoadPreviousGenerationWhenSnapshotIsCorrupted() throws IOException {
+        File snapshotFile = File.createTempFile("generations", ".csv", directory.toFile());
+        File previousFile = new File(snapshotFile.getPath() + ".1");
+        FileBackedTasksManager manager = new FileBackedTasksManager(snapshotFile);
+        manager.createTask(task);
+        manager.createTask(task2);
+        assertTrue(previousFile.exists(), "Предыдущий снимок не сохранен.");
+
+        byte[] snapshot = Files.readAllBytes(snapshotFile.toPath());
+        snapshot[snapshot.length / 2] ^= 1;
+        Files.write(snapshotFile.toPath(), snapshot);
+
+        newFileBackedTasksManager = FileBackedTasksManager.loadFromFile(snapshotFile);
+        assertEquals(List.of(task, task2), newFileBackedTasksManager.getTasks(),
+                "Операции после предыдущего снимка не восстановлены из журнала.");
+    }
+
+    @Test
+    public void shouldKeepConfiguredNumberOfGenerations() throws IOException {
+        File snapshotFile = File.createTempFile("generations", ".bin", directory.toFile());
+        FileBackedTasksManager manager = new FileBackedTasksManager(snapshotFile, 0,
+                DurabilityPolicy.fsyncEach().withGenerations(3), SnapshotFormat.BINARY);
+        manager.createTask(task);
+        manager.createTask(task2);
+        manager.createEpic(epic);
+        manager.createSubtask(subtask);
+        manager.close();
+
+        assertTrue(new File(snapshotFile.getPath() + ".2").exists(), "Не сохранено третье поколение снимка.");
+        assertFalse(new File(snapshotFile.getPath() + ".3").exists(), "Сохранено лишнее поколение снимка.");
+        new File(snapshotFile.getPath()).delete();
+        newFileBackedTasksManager = FileBackedTasksManager.loadFromFile(snapshotFile, 0,
+                DurabilityPolicy.writeThrough().withGenerations(3));
+        assertEquals(List.of(task, task2), newFileBackedTasksManager.getTasks(),
+                "Предыдущее поколение снимка загружено неверно.");
+        assertEquals(List.of(subtask), newFileBackedTasksManager.getSubtasks(),
+                "Операции после предыдущего снимка не восстановлены из журнала.");
+
+        new File(snapshotFile.getPath()).delete();
+        new File(snapshotFile.getPath() + ".1").delete();
+        new File(snapshotFile.getPath() + ".journal.2").delete();
+        assertThrows(ManagerSaveException.class, () -> FileBackedTasksManager.loadFromFile(snapshotFile, 0,
+                DurabilityPolicy.writeThrough().withGenerations(3)), "Потеря операций после снимка не обнаружена.");
+    }
+
     @Test
     public void shouldSaveAndReadFromFileWhenEpicWithNoSubtasks() {
         fileBackedTasksManager.createEpic(epic);
@@ -114,4 +301,112 @@ public class FileBackedTasksManagerTest extends TaskManagerTest<FileBackedTasksM
         assertEquals(epic, loadedEpic, "Эпик из файла восстановлен неверно.");
         assertEquals(0, subtasks.size(), "Из файла восстановлено неверное количество подзадач.");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldSaveAndReadBinarySnapshot() throws IOException {
+        File snapshotFile = File.createTempFile("binary", ".bin", directory.toFile());
+        FileBackedTasksManager manager = new FileBackedTasksManager(snapshotFile, 0,
+                DurabilityPolicy.writeThrough(), SnapshotFormat.BINARY);
+        Task taskWithComma = new Task("Купить молоко, хлеб", "Описание, с запятой", Status.IN_PROGRESS,
+                LocalDateTime.of(2022, 12, 10, 10, 0, 30, 500), 45);
+        manager.createTask(taskWithComma);
+        manager.createTask(new Task("Task2", null, Status.NEW, null, 0));
+        manager.createEpic(epic);
+        manager.createSubtask(subtask);
+        manager.createSubtask(subtask2);
+        manager.findSubtaskById(4);
+        manager.findTaskById(1);
+        manager.awaitPersistence();
+
+        FileBackedTasksManager loaded = FileBackedTasksManager.loadFromFile(snapshotFile);
+        assertEquals(SnapshotFormat.BINARY, loaded.getSnapshotFormat(), "Формат снимка определен неверно.");
+        assertEquals(manager.getTasks(), loaded.getTasks(), "Задачи восстановлены неверно.");
+        assertEquals(manager.getEpics(), loaded.getEpics(), "Эпики восстановлены неверно.");
+        assertEquals(manager.getSubtasks(), loaded.getSubtasks(), "Подзадачи восстановлены неверно.");
+        assertEquals(manager.getEpics().get(0).getEndTime(), loaded.getEpics().get(0).getEndTime(),
+                "Время окончания эпика восстановлено неверно.");
+        assertEquals(manager.getHistory(), loaded.getHistory(), "История восстановлена неверно.");
+    }
+
+    @Test
+    public void shouldReplayJournalWithCommasInNames() throws IOException {
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            File snapshotFile = File.createTempFile("journal-commas", ".snapshot", directory.toFile());
+            // снимок еще не записан, есть только журнал
+            Files.delete(snapshotFile.toPath());
+            File journalFile = new File(snapshotFile.getPath() + ".journal");
+            FileBackedTasksManager manager = new FileBackedTasksManager(snapshotFile, 100,
+                    DurabilityPolicy.writeThrough(), format);
+            manager.createEpic(new Epic("Ремонт, кухня", "Плитка\\фартук", null, 0));
+            manager.createTask(new Task("Купить молоко, хлеб", "Строка 1\nСтрока 2, конец", Status.NEW,
+                    LocalDateTime.of(2022, 12, 10, 10, 0), 45));
+            manager.createSubtask(new Subtask("Снять, плитку", "\\,", Status.DONE,
+                    LocalDateTime.of(2022, 12, 11, 10, 0), 30, 1));
+            manager.awaitPersistence();
+            assertTrue(journalFile.length() > 0, "Изменения не попали в журнал: " + format);
+
+            FileBackedTasksManager loaded = FileBackedTasksManager.loadFromFile(snapshotFile);
+            assertEquals(manager.getTasks(), loaded.getTasks(), "Задачи из журнала восстановлены неверно: " + format);
+            assertEquals(manager.getEpics(), loaded.getEpics(), "Эпики из журнала восстановлены неверно: " + format);
+            assertEquals(manager.getSubtasks(), loaded.getSubtasks(),
+                    "Подзадачи из журнала восстановлены неверно: " + format);
+            manager.close();
+            loaded.close();
+        }
+    }
+
+    @Test
+    public void shouldConvertCsvSnapshotToBinary() throws IOException {
+        File binaryFile = File.createTempFile("converted", ".bin", directory.toFile());
+        fileBackedTasksManager.createTask(task);
+        fileBackedTasksManager.createTask(task2);
+        fileBackedTasksManager.createEpic(epic);
+        fileBackedTasksManager.createSubtask(subtask);
+        fileBackedTasksManager.findTaskById(1);
+        ((FileBackedTasksManager) fileBackedTasksManager).awaitPersistence();
+
+        SnapshotConverter.convertCsvToBinary(file, binaryFile);
+        assertEquals(0x4B4E4246, ByteBuffer.wrap(Files.readAllBytes(binaryFile.toPath())).getInt(),
+                "Сконвертированный снимок записан без контрольных сумм.");
+        FileBackedTasksManager converted = FileBackedTasksManager.loadFromFile(binaryFile);
+        assertEquals(List.of(task, task2), converted.getTasks(), "Задачи сконвертированы неверно.");
+        assertEquals(List.of(subtask), converted.getSubtasks(), "Подзадачи сконвертированы неверно.");
+        assertEquals(Status.DONE, converted.getEpics().get(0).getStatus(), "Эпик сконвертирован неверно.");
+        assertEquals(List.of(task), converted.getHistory(), "История сконвертирована неверно.");
+    }
+
+    @Test
+    public void shouldLoadLargeCsvSnapshotInParallelChunks() throws IOException {
+        File snapshotFile = File.createTempFile("large", ".csv", directory.toFile());
+        List<String> lines = new ArrayList<>();
+        lines.add("id,type,name,status,description,epic,startTime,duration");
+        Epic largeEpic = new Epic("Epic", "Descr", null, 0);
+        largeEpic.setId(1);
+        lines.add(largeEpic.toString());
+        // около двух мегабайт строк, чтобы файл разбирался несколькими частями
+        int count = 40_000;
+        for (int id = 2; id <= count; id++) {
+            Task loadedTask = id % 2 == 0
+                    ? new Task("Task" + id, "Descr", Status.NEW, LocalDateTime.of(2022, 1, 1, 0, 0).plusHours(id), 30)
+                    : new Subtask("Subtask" + id, "Descr", Status.DONE, null, 0, 1);
+            loadedTask.setId(id);
+            lines.add(loadedTask.toString());
+        }
+        lines.add("");
+        lines.add(count + ",2,");
+        Files.write(snapshotFile.toPath(), lines);
+
+        FileBackedTasksManager loaded = FileBackedTasksManager.loadFromFile(snapshotFile);
+        assertEquals(count / 2, loaded.getTasks().size(), "Задачи загружены неверно.");
+        assertEquals(count / 2 - 1, loaded.getSubtasks().size(), "Подзадачи загружены неверно.");
+        assertEquals(count / 2 - 1, loaded.getEpics().get(0).getSubtasks().size(),
+                "Подзадачи эпика загружены неверно.");
+        assertEquals(count, loaded.getSubtasks().get(count / 2 - 2).getId() + 1, "Порядок подзадач нарушен.");
+        assertEquals(List.of(count, 2), loaded.getHistory().stream().map(Task::getId).collect(Collectors.toList()),
+                "История загружена неверно.");
+        LoadReport report = loaded.getLoadReport();
+        assertEquals(count, report.getEntities(), "Количество сущностей в отчете неверное.");
+        assertEquals(List.of(LoadReport.READ, LoadReport.PARSE, LoadReport.BUILD, LoadReport.HISTORY),
+                new ArrayList<>(report.getStageNanos().keySet()), "Этапы загрузки записаны неверно.");
+    }
+}
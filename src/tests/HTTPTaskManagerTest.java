@@ -2,6 +2,7 @@ package tests;
 
 import manager.http.HTTPTaskManager;
 import controllers.HttpTaskServer;
+import com.sun.net.httpserver.HttpExchange;
 import controllers.KVServer;
 import org.junit.jupiter.api.Test;
 import tasks.Epic;
@@ -12,6 +13,8 @@ import tasks.Task;
 import java.io.IOException;
 import java.net.URL;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -19,34 +22,100 @@ class HTTPTaskManagerTest {
 
     @Test
     void loadFromServer() throws IOException {
-        new KVServer().start();
-        new HttpTaskServer().start();
-        HTTPTaskManager manager = new HTTPTaskManager(new URL("http://localhost:8078"));
-        Task task = new Task("Name1", "descr1", Status.NEW,
-                LocalDateTime.of(2022,10,10,10,10,10),10);
-        manager.createTask(task);
-        Epic epic = new Epic("EpicName", "EpicDescr", null, 0);
-        manager.createEpic(epic);
-        Subtask subtask = new Subtask("SubName", "SubDescr", Status.IN_PROGRESS,
-                LocalDateTime.of(2022,11,11,11,10), 30, 2);
-        manager.createSubtask(subtask);
-        manager.findTaskById(1);
-        manager.findEpicById(2);
-        HTTPTaskManager newManager = HTTPTaskManager.loadFromServer(new URL("http://localhost:8078"));
-        assertEquals(2, newManager.getHistory().size(), "История восстановлена неверно.");
-
-        newManager.createTask(new Task("name2", "des2", Status.NEW,
-                LocalDateTime.of(2022,12,10,10,10,10),10));
-
-        assertEquals(2, newManager.getTasks().size(), "Восстановлено неверное количество задач.");
-        assertEquals(manager.findTaskById(1), newManager.findTaskById(1), "Задачи не совпадают.");
-
-        assertEquals(1, newManager.getSubtasks().size(), "Восстановлено неверное количество подзадач.");
-        assertEquals(manager.findSubtaskById(3), newManager.findSubtaskById(3),
-                "Подзадачи не совпадают.");
-
-        assertEquals(1, newManager.getEpics().size(), "Восстановлено неверное количество эпиков.");
-        assertEquals(manager.findEpicById(2), newManager.findEpicById(2),
-                "Эпики не совпадают.");
+        KVServer kvServer = new KVServer();
+        kvServer.start();
+        HttpTaskServer httpTaskServer = new HttpTaskServer();
+        httpTaskServer.start();
+        try {
+            HTTPTaskManager manager = new HTTPTaskManager(new URL("http://localhost:8078"));
+            Task task = new Task("Name1", "descr1", Status.NEW,
+                    LocalDateTime.of(2022,10,10,10,10,10),10);
+            manager.createTask(task);
+            Epic epic = new Epic("EpicName", "EpicDescr", null, 0);
+            manager.createEpic(epic);
+            Subtask subtask = new Subtask("SubName", "SubDescr", Status.IN_PROGRESS,
+                    LocalDateTime.of(2022,11,11,11,10), 30, 2);
+            manager.createSubtask(subtask);
+            manager.findTaskById(1);
+            manager.findEpicById(2);
+            manager.awaitPersistence();
+            HTTPTaskManager newManager = HTTPTaskManager.loadFromServer(new URL("http://localhost:8078"));
+            assertEquals(2, newManager.getHistory().size(), "История восстановлена неверно.");
+
+            newManager.createTask(new Task("name2", "des2", Status.NEW,
+                    LocalDateTime.of(2022,12,10,10,10,10),10));
+
+            assertEquals(2, newManager.getTasks().size(), "Восстановлено неверное количество задач.");
+            assertEquals(manager.findTaskById(1), newManager.findTaskById(1), "Задачи не совпадают.");
+
+            assertEquals(1, newManager.getSubtasks().size(), "Восстановлено неверное количество подзадач.");
+            assertEquals(manager.findSubtaskById(3), newManager.findSubtaskById(3),
+                    "Подзадачи не совпадают.");
+
+            assertEquals(1, newManager.getEpics().size(), "Восстановлено неверное количество эпиков.");
+            assertEquals(manager.findEpicById(2), newManager.findEpicById(2),
+                    "Эпики не совпадают.");
+        } finally {
+            httpTaskServer.stop();
+            kvServer.stop();
+        }
+    }
+
+    @Test
+    void shouldRestoreHistoryFromUploadedBatches() throws IOException {
+        KVServer kvServer = new KVServer();
+        kvServer.start();
+        try {
+            HTTPTaskManager manager = new HTTPTaskManager(new URL("http://localhost:8078"));
+            Task task = new Task("Name1", "descr1", Status.NEW, null, 0);
+            manager.createTask(task);
+            Epic epic = new Epic("EpicName", "EpicDescr", null, 0);
+            manager.createEpic(epic);
+            manager.findTaskById(task.getId());
+            manager.awaitPersistence();
+            manager.findEpicById(epic.getId());
+            manager.findTaskById(task.getId());
+            manager.awaitPersistence();
+
+            HTTPTaskManager loaded = HTTPTaskManager.loadFromServer(new URL("http://localhost:8078"));
+            assertEquals(List.of(epic, task), loaded.getHistory(), "История из пачек просмотров восстановлена неверно.");
+
+            manager.deleteTaskById(task.getId());
+            manager.awaitPersistence();
+            loaded = HTTPTaskManager.loadFromServer(new URL("http://localhost:8078"));
+            assertEquals(List.of(epic), loaded.getHistory(), "История после удаления задачи восстановлена неверно.");
+        } finally {
+            kvServer.stop();
+        }
+    }
+
+    @Test
+    void shouldRewriteHistoryAfterFailedBatchUpload() throws IOException {
+        AtomicBoolean rejecting = new AtomicBoolean();
+        KVServer kvServer = new KVServer() {
+            @Override
+            protected boolean hasAuth(HttpExchange h) {
+                return !rejecting.get() && super.hasAuth(h);
+            }
+        };
+        kvServer.start();
+        try {
+            HTTPTaskManager manager = new HTTPTaskManager(new URL("http://localhost:8078"));
+            Task task = new Task("Name1", "descr1", Status.NEW, null, 0);
+            manager.createTask(task);
+            Epic epic = new Epic("EpicName", "EpicDescr", null, 0);
+            manager.createEpic(epic);
+            rejecting.set(true);
+            manager.findTaskById(task.getId());
+            manager.awaitPersistence();
+            rejecting.set(false);
+            manager.findEpicById(epic.getId());
+            manager.awaitPersistence();
+
+            HTTPTaskManager loaded = HTTPTaskManager.loadFromServer(new URL("http://localhost:8078"));
+            assertEquals(List.of(task, epic), loaded.getHistory(), "Просмотры из неотправленной пачки потеряны.");
+        } finally {
+            kvServer.stop();
+        }
     }
 }
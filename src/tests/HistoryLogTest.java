@@ -0,0 +1,126 @@
+package tests;
+
+import manager.HistoryLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryLogTest {
+
+    private List<List<Integer>> appended;
+    private List<List<Integer>> rewritten;
+    private HistoryLog historyLog;
+
+    @BeforeEach
+    public void beforeEach() {
+        appended = new ArrayList<>();
+        rewritten = new ArrayList<>();
+        historyLog = new HistoryLog((views, history, rewrite) -> {
+            synchronized (this) {
+                if (rewrite) {
+                    rewritten.add(new ArrayList<>(history));
+                } else {
+                    appended.add(new ArrayList<>(views));
+                }
+            }
+        }, 3, 50);
+        historyLog.restore(List.of(), 0);
+    }
+
+    @Test
+    void shouldWriteViewsInBatches() throws InterruptedException {
+        historyLog.record(1);
+        historyLog.record(2);
+        assertTrue(appended.isEmpty(), "Просмотры записаны до заполнения пачки.");
+        historyLog.record(1);
+        awaitAppended();
+        synchronized (this) {
+            assertEquals(List.of(List.of(1, 2, 1)), appended, "Пачка просмотров записана неверно.");
+        }
+    }
+
+    @Test
+    void shouldNotWriteInRecordingThread() throws InterruptedException {
+        Thread recorder = Thread.currentThread();
+        List<Thread> writers = new ArrayList<>();
+        historyLog = new HistoryLog((views, history, rewrite) -> {
+            synchronized (this) {
+                writers.add(Thread.currentThread());
+                appended.add(new ArrayList<>(views));
+            }
+        }, 1, 50);
+        historyLog.restore(List.of(), 0);
+        historyLog.record(1);
+        awaitAppended();
+        synchronized (this) {
+            assertFalse(writers.contains(recorder), "Пачка записана в потоке просмотра.");
+        }
+    }
+
+    @Test
+    void shouldRecordWhileJournalMonitorIsHeld() throws InterruptedException {
+        Thread recorder = new Thread(() -> historyLog.record(1));
+        synchronized (historyLog) {
+            recorder.start();
+            recorder.join(5_000);
+            assertFalse(recorder.isAlive(), "Просмотр ждет монитор журнала.");
+        }
+        historyLog.flush();
+        assertEquals(List.of(1), historyLog.ids(), "Просмотр не попал в историю.");
+    }
+
+    @Test
+    void shouldWriteViewsByTimer() throws InterruptedException {
+        historyLog.record(1);
+        awaitAppended();
+        synchronized (this) {
+            assertEquals(List.of(List.of(1)), appended, "Просмотр не записан по таймеру.");
+        }
+    }
+
+    @Test
+    void shouldRewriteHistoryAfterRemove() {
+        historyLog.record(1);
+        historyLog.record(2);
+        historyLog.sync(id -> id == 2);
+        historyLog.flush();
+        assertTrue(appended.isEmpty(), "Просмотры дописаны вместо замены истории.");
+        assertEquals(List.of(List.of(2)), rewritten, "История после удаления записана неверно.");
+    }
+
+    @Test
+    void shouldNotWriteWhenHistoryUnchanged() {
+        historyLog.record(1);
+        historyLog.flush();
+        historyLog.sync(id -> true);
+        historyLog.flush();
+        assertEquals(List.of(List.of(1)), appended, "Неизмененная история записана повторно.");
+        assertTrue(rewritten.isEmpty(), "Неизмененная история переписана.");
+    }
+
+    @Test
+    void shouldCompactRepeatedViews() {
+        for (int i = 0; i < 3_000; i++) {
+            historyLog.record(i % 2);
+        }
+        historyLog.flush();
+        assertFalse(rewritten.isEmpty(), "Повторные просмотры не сжаты.");
+        assertEquals(2, rewritten.get(0).size(), "Сжатая история неверна.");
+    }
+
+    private void awaitAppended() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            synchronized (this) {
+                if (!appended.isEmpty()) {
+                    return;
+                }
+            }
+            Thread.sleep(10);
+        }
+    }
+}
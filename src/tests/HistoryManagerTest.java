@@ -11,7 +11,12 @@ import tasks.Status;
 import tasks.Task;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -113,4 +118,61 @@ class HistoryManagerTest {
         int historyListSize = historyManager.getHistory().size();
         assertEquals(0, historyListSize, "История задач не пустая.");
     }
+
+    @Test
+    void shouldEvictOldestView_WhenCapacityExceeded() {
+        HistoryManager boundedHistory = new InMemoryHistoryManager(3);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            Task task = new Task("Task" + i, "Descr", Status.NEW, null, 0);
+            task.setId(i);
+            tasks.add(task);
+            boundedHistory.add(task);
+        }
+        boundedHistory.add(tasks.get(2));
+        assertEquals(List.of(tasks.get(3), tasks.get(4), tasks.get(2)), boundedHistory.getHistory(),
+                "Неверный порядок после вытеснения старых просмотров.");
+        boundedHistory.add(tasks.get(0));
+        assertEquals(List.of(tasks.get(4), tasks.get(2), tasks.get(0)), boundedHistory.getHistory(),
+                "Вытеснен не самый давний просмотр.");
+    }
+
+    @Test
+    void shouldMatchReferenceHistory_WhenManyViewsAndRemovals() {
+        Random random = new Random(42);
+        LinkedHashMap<Integer, Task> expected = new LinkedHashMap<>();
+        Map<Integer, Task> allTasks = new HashMap<>();
+        for (int i = 1; i <= 200; i++) {
+            Task task = new Task("Task" + i, "Descr", Status.NEW, null, 0);
+            task.setId(i);
+            allTasks.put(i, task);
+        }
+        for (int step = 0; step < 20_000; step++) {
+            int id = 1 + random.nextInt(200);
+            if (random.nextInt(3) == 0) {
+                historyManager.remove(id);
+                expected.remove(id);
+            } else {
+                historyManager.add(allTasks.get(id));
+                expected.remove(id);
+                expected.put(id, allTasks.get(id));
+            }
+        }
+        assertEquals(new ArrayList<>(expected.values()), historyManager.getHistory(),
+                "История расходится с эталонной.");
+    }
+
+    @Test
+    void shouldForgetLastTask_WhenRemovedFromEnd() {
+        Task task = new Task("Task1", "Descr1", Status.NEW, null, 0);
+        task.setId(1);
+        Task task2 = new Task("Task2", "Descr2", Status.NEW, null, 0);
+        task2.setId(2);
+        historyManager.add(task);
+        historyManager.add(task2);
+        historyManager.remove(2);
+        historyManager.add(task2);
+        historyManager.add(task);
+        assertEquals(List.of(task2, task), historyManager.getHistory(), "Неверный порядок истории.");
+    }
 }
@@ -19,6 +19,7 @@ import java.net.http.HttpResponse;
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -230,4 +231,71 @@ class HttpTaskServerTest {
         assertEquals(200, response4.statusCode(), "Неверный статус-код при получении приоритетов.");
         assertEquals(priorities.size(), List.of(task1).size(), "Неверное количество задач в списке приоритетов.");
     }
+
+    @Test
+    public void shouldKeepHistoryOfEachSession() throws IOException, InterruptedException {
+        URI url = URI.create("http://localhost:8080/tasks/task");
+        final HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.ofString(gson.toJson(task1));
+        client.send(HttpRequest.newBuilder().uri(url).POST(body).build(), HttpResponse.BodyHandlers.ofString());
+        URI url2 = URI.create("http://localhost:8080/tasks/task?id=1&session=first");
+        client.send(HttpRequest.newBuilder().uri(url2).GET().build(), HttpResponse.BodyHandlers.ofString());
+
+        URI url3 = URI.create("http://localhost:8080/tasks/history");
+        HttpRequest request3 = HttpRequest.newBuilder().uri(url3).header("X-Session-Id", "first").GET().build();
+        HttpResponse<String> response3 = client.send(request3, HttpResponse.BodyHandlers.ofString());
+        assertEquals(1, gson.fromJson(response3.body(), List.class).size(), "Неверная история первой сессии.");
+
+        HttpRequest request4 = HttpRequest.newBuilder().uri(url3).header("X-Session-Id", "second").GET().build();
+        HttpResponse<String> response4 = client.send(request4, HttpResponse.BodyHandlers.ofString());
+        assertEquals(0, gson.fromJson(response4.body(), List.class).size(), "Неверная история второй сессии.");
+    }
+
+    @Test
+    public void shouldPrettyPrintOnlyOnRequest() throws IOException, InterruptedException {
+        URI url = URI.create("http://localhost:8080/tasks/task");
+        final HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.ofString(gson.toJson(task1));
+        client.send(HttpRequest.newBuilder().uri(url).POST(body).build(), HttpResponse.BodyHandlers.ofString());
+
+        HttpResponse<String> compact = client.send(HttpRequest.newBuilder().uri(url).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> pretty = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/task?pretty")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, compact.statusCode(), "Неверный статус-код при получении задач.");
+        assertFalse(compact.body().contains("\n"), "Ответ отформатирован без запроса.");
+        assertTrue(pretty.body().contains("\n"), "Ответ не отформатирован.");
+        assertEquals(gson.fromJson(compact.body(), List.class), gson.fromJson(pretty.body(), List.class),
+                "Форматированный ответ отличается.");
+        assertEquals(1, gson.fromJson(compact.body(), List.class).size(), "Неверное количество задач.");
+    }
+
+    @Test
+    public void shouldReturnTasksPageByCursor() throws IOException, InterruptedException {
+        URI url = URI.create("http://localhost:8080/tasks/task");
+        client.send(HttpRequest.newBuilder().uri(url).POST(HttpRequest.BodyPublishers.ofString(gson.toJson(task1)))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        client.send(HttpRequest.newBuilder().uri(url).POST(HttpRequest.BodyPublishers.ofString(gson.toJson(task2)))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        HttpResponse<String> first = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/task?limit=1")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        Map<?, ?> firstPage = gson.fromJson(first.body(), Map.class);
+        assertEquals(200, first.statusCode(), "Неверный статус-код при получении страницы.");
+        assertEquals(1, ((List<?>) firstPage.get("items")).size(), "Неверный размер страницы.");
+
+        HttpResponse<String> second = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/task?limit=1&cursor=" + firstPage.get("nextCursor")))
+                .GET().build(), HttpResponse.BodyHandlers.ofString());
+        Map<?, ?> secondPage = gson.fromJson(second.body(), Map.class);
+        Task received = gson.fromJson(gson.toJson(((List<?>) secondPage.get("items")).get(0)), Task.class);
+        assertEquals(task2, received, "Неверная вторая страница.");
+        assertNull(secondPage.get("nextCursor"), "У последней страницы есть курсор.");
+
+        HttpResponse<String> invalid = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/task?limit=0")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, invalid.statusCode(), "Неверный размер страницы не отклонен.");
+    }
 }
@@ -0,0 +1,53 @@
+package tests;
+
+import manager.AtomicIdAllocator;
+import manager.IdAllocator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdAllocatorTest {
+
+    private IdAllocator idAllocator;
+
+    @BeforeEach
+    public void beforeEach() {
+        idAllocator = new AtomicIdAllocator();
+    }
+
+    @Test
+    void shouldStartFromOne() {
+        assertEquals(1, idAllocator.nextId(), "Неверный первый номер.");
+        assertEquals(2, idAllocator.nextId(), "Неверный следующий номер.");
+    }
+
+    @Test
+    void shouldContinueAfterObservedId() {
+        idAllocator.observe(10);
+        idAllocator.observe(3);
+        assertEquals(11, idAllocator.nextId(), "Номер не учитывает восстановленные задачи.");
+    }
+
+    @Test
+    void shouldNotRepeatIdsUnderConcurrentLoad() throws InterruptedException {
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    ids.add(idAllocator.nextId());
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS), "Потоки не завершились.");
+        assertEquals(40_000, ids.size(), "Выданы повторяющиеся номера.");
+    }
+}
@@ -1,12 +1,62 @@
 package tests;
 
+import exceptions.TaskManagerException;
+import exceptions.TaskTimeValidationException;
 import manager.InMemoryTaskManager;
 import manager.TaskManager;
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.Status;
+import tasks.Subtask;
+import tasks.Task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
 
     @Override
     public TaskManager createTaskManager() {
-        return new InMemoryTaskManager();
+        InMemoryTaskManager inMemoryTaskManager = new InMemoryTaskManager();
+        inMemoryTaskManager.setEpicAggregatesVerification(true);
+        return inMemoryTaskManager;
+    }
+
+    @Test
+    void shouldBulkLoadSameBoardAsSequentialCreation() {
+        Task task = new Task("Task1", "Descr1", Status.NEW, LocalDateTime.of(2022, 7, 10, 10, 0), 30);
+        task.setId(1);
+        Task taskWithoutTime = new Task("Task2", "Descr2", Status.DONE, null, 0);
+        taskWithoutTime.setId(5);
+        Epic epic = new Epic("Epic1", "Descr1", null, 0);
+        epic.setId(2);
+        Subtask subtask = new Subtask("Subtask1", "Descr1", Status.DONE,
+                LocalDateTime.of(2022, 7, 9, 9, 0), 60, 2);
+        subtask.setId(3);
+        Subtask subtask2 = new Subtask("Subtask2", "Descr2", Status.NEW,
+                LocalDateTime.of(2022, 7, 11, 9, 0), 30, 2);
+        subtask2.setId(4);
+
+        InMemoryTaskManager bulkLoaded = new InMemoryTaskManager();
+        bulkLoaded.bulkLoad(List.of(task, taskWithoutTime), List.of(epic), List.of(subtask, subtask2));
+
+        assertEquals(List.of(subtask, task, subtask2, taskWithoutTime),
+                new ArrayList<>(bulkLoaded.getPrioritizedTasks()), "Неверный список приоритетов.");
+        assertEquals(List.of(3, 4), epic.getSubtasks(), "Подзадачи эпика не восстановлены.");
+        assertEquals(Status.IN_PROGRESS, epic.getStatus(), "Статус эпика не рассчитан.");
+        assertEquals(subtask.getStartTime(), epic.getStartTime(), "Дата старта эпика не рассчитана.");
+        assertEquals(subtask2.getEndTime(), epic.getEndTime(), "Дата завершения эпика не рассчитана.");
+        assertEquals(subtask2, bulkLoaded.findSubtaskById(4), "Подзадача не найдена по id.");
+
+        Task next = new Task("Task3", "Descr3", Status.NEW, LocalDateTime.of(2022, 7, 10, 10, 15), 30);
+        assertThrows(TaskTimeValidationException.class, () -> bulkLoaded.createTask(next),
+                "Индекс времени не заполнен при загрузке.");
+        bulkLoaded.createTask(new Task("Task3", "Descr3", Status.NEW, null, 0));
+        assertEquals(6, bulkLoaded.getTasks().get(2).getId(), "Новый id совпал с загруженным.");
+        assertThrows(TaskManagerException.class, () -> bulkLoaded.bulkLoad(List.of(), List.of(), List.of()),
+                "Массовая загрузка в непустой менеджер.");
     }
 }
@@ -0,0 +1,138 @@
+package tests;
+
+import controllers.KVServer;
+import controllers.storage.KVStore;
+import controllers.storage.LsmKVStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LsmKVStoreTest {
+
+    private File directory;
+    private LsmKVStore store;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        directory = Files.createTempDirectory("lsm-store").toFile();
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        if (store != null) {
+            store.close();
+        }
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    void shouldRecoverValuesFromJournalAfterReopen() {
+        store = new LsmKVStore(directory);
+        store.put("TASK_KEY/1", "task1");
+        store.putAll(Map.of("TASK_KEY/2", "task2", "EPIC_KEY/3", "epic3"));
+        store.putAll(Map.of("TASK_KEY/1", ""));
+        store.close();
+
+        store = new LsmKVStore(directory);
+        assertNull(store.get("TASK_KEY/1"), "Удаленный ключ восстановлен.");
+        assertEquals("task2", store.get("TASK_KEY/2"), "Значение не восстановлено из журнала.");
+        assertEquals(Map.of("TASK_KEY/2", "task2"), store.getByPrefix(List.of("TASK_KEY/")),
+                "Неверный результат чтения по префиксу.");
+        assertEquals(Map.of("EPIC_KEY/3", "epic3"), store.getAll(List.of("EPIC_KEY/3", "TASK_KEY/1")),
+                "Неверный результат пакетного чтения.");
+    }
+
+    @Test
+    void shouldKeepNewestValuesAfterFlushAndCompaction() {
+        store = new LsmKVStore(directory, 512, 2, false);
+        Map<String, String> expected = new HashMap<>();
+        for (int i = 0; i < 2_000; i++) {
+            String key = "key/" + (i % 150);
+            if (i % 7 == 0) {
+                store.put(key, "");
+                expected.remove(key);
+            } else {
+                store.put(key, "value" + i);
+                expected.put(key, "value" + i);
+            }
+        }
+        store.close();
+        assertTrue(store.getSegmentCount() <= 2, "Сегменты не слиты.");
+
+        store = new LsmKVStore(directory, 512, 2, false);
+        assertEquals(expected, store.getByPrefix(List.of("key/")), "Данные после слияния сегментов неверны.");
+        for (int i = 0; i < 150; i++) {
+            assertEquals(expected.get("key/" + i), store.get("key/" + i), "Неверное значение ключа key/" + i);
+        }
+    }
+
+    @Test
+    void shouldDropTornJournalTail() throws IOException {
+        store = new LsmKVStore(directory);
+        store.put("key", "value");
+        store.close();
+        File[] journals = directory.listFiles((dir, name) -> name.endsWith(".log"));
+        assertNotNull(journals);
+        assertEquals(1, journals.length, "Ожидался один журнал.");
+        try (FileOutputStream out = new FileOutputStream(journals[0], true)) {
+            out.write(new byte[]{0, 0, 0, 42, 1, 2, 3});
+        }
+
+        store = new LsmKVStore(directory);
+        assertEquals("value", store.get("key"), "Целая запись журнала потеряна.");
+        store.put("key2", "value2");
+        store.close();
+
+        store = new LsmKVStore(directory);
+        assertEquals("value2", store.get("key2"), "Запись после восстановления потеряна.");
+    }
+
+    @Test
+    void shouldTreatZeroHeaderAsJournalEnd() throws IOException {
+        store = new LsmKVStore(directory);
+        store.put("key", "value");
+        store.close();
+        File[] journals = directory.listFiles((dir, name) -> name.endsWith(".log"));
+        assertNotNull(journals);
+        assertEquals(1, journals.length, "Ожидался один журнал.");
+        long length = journals[0].length();
+        try (FileOutputStream out = new FileOutputStream(journals[0], true)) {
+            out.write(new byte[8]);
+        }
+
+        store = new LsmKVStore(directory);
+        assertEquals("value", store.get("key"), "Целая запись журнала потеряна.");
+        assertEquals(length, journals[0].length(), "Нулевой заголовок не отброшен.");
+    }
+
+    @Test
+    void shouldKeepServerDataInDataDirectory() {
+        KVStore kvStore = KVServer.createStore(directory.getPath());
+        assertTrue(kvStore instanceof LsmKVStore, "Каталог данных не включил хранение на диске.");
+        kvStore.put("key", "value");
+        kvStore.close();
+
+        kvStore = KVServer.createStore(directory.getPath());
+        try {
+            assertEquals("value", kvStore.get("key"), "Данные сервера не пережили перезапуск.");
+        } finally {
+            kvStore.close();
+        }
+        assertFalse(KVServer.createStore(null) instanceof LsmKVStore, "Без каталога данные должны храниться в памяти.");
+    }
+}
@@ -0,0 +1,155 @@
+package tests;
+
+import manager.HistorySession;
+import manager.PartitionedHistoryManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tasks.Status;
+import tasks.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedHistoryManagerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private PartitionedHistoryManager historyManager;
+    private List<Task> tasks;
+
+    @BeforeEach
+    public void beforeEach() {
+        historyManager = new PartitionedHistoryManager(3, 10, 1_000, clock::get);
+        tasks = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            Task task = new Task("Task" + i, "Descr", Status.NEW, null, 0);
+            task.setId(i);
+            tasks.add(task);
+        }
+    }
+
+    @AfterEach
+    public void afterEach() {
+        HistorySession.clear();
+    }
+
+    @Test
+    void shouldKeepSeparateHistoryForEachSession() {
+        HistorySession.set("first");
+        historyManager.add(tasks.get(0));
+        historyManager.add(tasks.get(1));
+        HistorySession.set("second");
+        historyManager.add(tasks.get(2));
+
+        assertEquals(List.of(tasks.get(2)), historyManager.getHistory(), "Неверная история второй сессии.");
+        HistorySession.set("first");
+        assertEquals(List.of(tasks.get(0), tasks.get(1)), historyManager.getHistory(),
+                "Неверная история первой сессии.");
+        HistorySession.set("third");
+        assertTrue(historyManager.getHistory().isEmpty(), "История новой сессии не пустая.");
+    }
+
+    @Test
+    void shouldLimitSessionHistoryAndRemoveTaskFromAllSessions() {
+        HistorySession.set("first");
+        for (Task task : tasks) {
+            historyManager.add(task);
+        }
+        HistorySession.set("second");
+        historyManager.add(tasks.get(3));
+
+        historyManager.remove(tasks.get(3).getId());
+
+        assertTrue(historyManager.getHistory().isEmpty(), "Задача не удалена из второй сессии.");
+        HistorySession.set("first");
+        assertEquals(List.of(tasks.get(2), tasks.get(4)), historyManager.getHistory(),
+                "Неверная история первой сессии.");
+    }
+
+    @Test
+    void shouldEvictIdleAndLeastRecentlyUsedSessions() {
+        HistorySession.set("idle");
+        historyManager.add(tasks.get(0));
+        clock.set(2_000);
+        for (int i = 0; i < 11; i++) {
+            HistorySession.set("user" + i);
+            historyManager.add(tasks.get(1));
+            clock.incrementAndGet();
+        }
+
+        assertTrue(historyManager.getPartitionCount() <= 10, "Превышено число сессий.");
+        HistorySession.set("idle");
+        assertTrue(historyManager.getHistory().isEmpty(), "Неактивная сессия не удалена.");
+        HistorySession.set("user10");
+        assertEquals(List.of(tasks.get(1)), historyManager.getHistory(), "Удалена активная сессия.");
+    }
+
+    @Test
+    void shouldKeepViewAddedWhileSessionIsEvicted() throws InterruptedException {
+        CountDownLatch viewing = new CountDownLatch(1);
+        AtomicReference<Thread> viewer = new AtomicReference<>();
+        AtomicReference<Thread> evictor = new AtomicReference<>();
+        // просмотр в неактивной сессии останавливается на чтении времени, пока другой поток чистит сессии
+        LongSupplier raceClock = () -> {
+            if (Thread.currentThread() != viewer.get() || viewing.getCount() == 0) {
+                return clock.get();
+            }
+            viewing.countDown();
+            long deadline = System.currentTimeMillis() + 2_000;
+            while (System.currentTimeMillis() < deadline) {
+                Thread.State state = evictor.get().getState();
+                if (state == Thread.State.TERMINATED || state == Thread.State.BLOCKED) {
+                    break;
+                }
+                Thread.onSpinWait();
+            }
+            return clock.get() + 1;
+        };
+        historyManager = new PartitionedHistoryManager(3, 1, 1_000, raceClock);
+        HistorySession.set("stale");
+        historyManager.add(tasks.get(0));
+        clock.set(5_000);
+
+        viewer.set(new Thread(() -> {
+            HistorySession.set("stale");
+            historyManager.add(tasks.get(1));
+        }));
+        evictor.set(new Thread(() -> {
+            try {
+                viewing.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            HistorySession.set("other");
+            historyManager.add(tasks.get(2));
+        }));
+        evictor.get().start();
+        viewer.get().start();
+        viewer.get().join();
+        evictor.get().join();
+
+        HistorySession.set("stale");
+        assertEquals(List.of(tasks.get(0), tasks.get(1)), historyManager.getHistory(),
+                "Просмотр потерян при удалении сессии.");
+    }
+
+    @Test
+    void shouldApplyRemovalsToSessionsCreatedLater() {
+        HistorySession.set("first");
+        historyManager.add(tasks.get(0));
+        historyManager.add(tasks.get(1));
+        historyManager.remove(tasks.get(0).getId());
+        HistorySession.set("second");
+        historyManager.add(tasks.get(0));
+
+        assertEquals(List.of(tasks.get(0)), historyManager.getHistory(), "Удаление применено к новому просмотру.");
+        HistorySession.set("first");
+        assertEquals(List.of(tasks.get(1)), historyManager.getHistory(), "Задача не удалена из истории.");
+    }
+}
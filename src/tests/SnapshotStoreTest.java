@@ -0,0 +1,86 @@
+package tests;
+
+import manager.snapshot.SnapshotStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotStoreTest {
+
+    private Path directory;
+    private Path snapshot;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        directory = Files.createTempDirectory("snapshot-store");
+        snapshot = directory.resolve("board.bin");
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    void shouldReadMappedContentWithoutCopy() throws IOException {
+        byte[] content = new byte[200_000];
+        Arrays.fill(content, (byte) 7);
+        content[150_000] = 42;
+        SnapshotStore store = new SnapshotStore(snapshot, 2, false);
+        store.write(content);
+
+        ByteBuffer read = store.read();
+        assertTrue(read.isDirect(), "Содержимое скопировано в кучу.");
+        assertTrue(read.isReadOnly(), "Содержимое снимка доступно для записи.");
+        assertEquals(ByteBuffer.wrap(content), read, "Содержимое прочитано неверно.");
+    }
+
+    @Test
+    void shouldFallBackToPreviousGenerationWhenTruncated() throws IOException {
+        SnapshotStore store = new SnapshotStore(snapshot, 2, false);
+        store.write(bytes("first"));
+        store.write(bytes("second"));
+        byte[] written = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(written, written.length - 1));
+
+        assertEquals(ByteBuffer.wrap(bytes("first")), store.read(), "Не загружено предыдущее поколение.");
+    }
+
+    @Test
+    void shouldFallBackToPreviousGenerationWhenEmpty() throws IOException {
+        SnapshotStore store = new SnapshotStore(snapshot, 2, false);
+        store.write(bytes("first"));
+        store.write(bytes("second"));
+        Files.write(snapshot, new byte[0]);
+
+        assertEquals(ByteBuffer.wrap(bytes("first")), store.read(), "Пустой снимок загружен вместо предыдущего.");
+        assertEquals(1, store.getReadGeneration(), "Прочитано не то поколение.");
+    }
+
+    @Test
+    void shouldReadLegacyCsvSnapshotWithoutFrame() throws IOException {
+        byte[] content = bytes("id,type,name,status,description,epic,startTime,duration\n");
+        Files.write(snapshot, content);
+
+        assertEquals(ByteBuffer.wrap(content), new SnapshotStore(snapshot, 2, false).read(),
+                "CSV-снимок прежней версии прочитан неверно.");
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
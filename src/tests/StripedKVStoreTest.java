@@ -0,0 +1,71 @@
+package tests;
+
+import controllers.storage.StripedKVStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedKVStoreTest {
+
+    private StripedKVStore store;
+
+    @BeforeEach
+    public void beforeEach() {
+        store = new StripedKVStore(8);
+    }
+
+    @Test
+    void shouldRemoveKeysWithEmptyValuesInBatch() {
+        store.put("a", "1");
+        store.putAll(Map.of("a", "", "b", "2"));
+        assertNull(store.get("a"), "Ключ с пустым значением не удален.");
+        assertEquals("2", store.get("b"), "Значение из пакета не сохранено.");
+        assertEquals(Map.of("b", "2"), store.getAll(List.of("a", "b")), "Неверный результат пакетного чтения.");
+    }
+
+    @Test
+    void shouldReturnValuesByPrefix() {
+        store.putAll(Map.of("TASK_KEY/1", "t1", "TASK_KEY/2", "t2", "EPIC_KEY/3", "e3"));
+        assertEquals(Map.of("TASK_KEY/1", "t1", "TASK_KEY/2", "t2"), store.getByPrefix(List.of("TASK_KEY/")),
+                "Неверный результат чтения по префиксу.");
+    }
+
+    @Test
+    void shouldNeverExposePartialBatch() throws Exception {
+        List<String> keys = List.of("k1", "k2", "k3", "k4", "k5", "k6", "k7", "k8");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    Map<String, String> batch = new HashMap<>();
+                    for (String key : keys) {
+                        batch.put(key, String.valueOf(i));
+                    }
+                    store.putAll(batch);
+                }
+            });
+            Future<Boolean> reader = executor.submit(() -> {
+                while (!writer.isDone()) {
+                    Map<String, String> values = store.getAll(keys);
+                    if (!values.isEmpty() && values.values().stream().distinct().count() != 1) {
+                        return false;
+                    }
+                }
+                return true;
+            });
+            writer.get(30, TimeUnit.SECONDS);
+            assertTrue(reader.get(30, TimeUnit.SECONDS), "Прочитан частично примененный пакет.");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
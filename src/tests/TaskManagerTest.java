@@ -3,6 +3,8 @@ package tests;
 import exceptions.TaskManagerException;
 import exceptions.TaskTimeValidationException;
 import manager.TaskManager;
+import manager.TaskPage;
+import manager.TaskQuery;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import tasks.Epic;
@@ -655,6 +657,70 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals("Задача пересекается по времени.", exception.getMessage());
     }
 
+    @Test
+    void shouldKeepTask_WhenUpdateOverlapsAnotherTask() {
+        Task first = new Task("Task1", "Descr1", Status.NEW, LocalDateTime.of(2022, 7, 10, 10, 0), 30);
+        Task second = new Task("Task2", "Descr2", Status.NEW, LocalDateTime.of(2022, 7, 10, 11, 0), 30);
+        taskManager.createTask(first);
+        taskManager.createTask(second);
+        Task moved = new Task("Task2", "Descr2", Status.DONE, LocalDateTime.of(2022, 7, 10, 10, 15), 30);
+        moved.setId(second.getId());
+
+        assertThrows(TaskTimeValidationException.class, () -> taskManager.updateTask(moved));
+        assertEquals(List.of(first, second), taskManager.getTasks(), "Задача потеряна при неудачном обновлении.");
+        assertEquals(second, taskManager.findTaskById(second.getId()), "Найдена задача, которой нет в списке.");
+        assertEquals(List.of(first, second), new ArrayList<>(taskManager.getPrioritizedTasks()),
+                "Задача потеряна в списке по приоритету.");
+
+        Task shifted = new Task("Task2", "Descr2", Status.DONE, LocalDateTime.of(2022, 7, 10, 11, 15), 30);
+        shifted.setId(second.getId());
+        taskManager.updateTask(shifted);
+        assertEquals(shifted, taskManager.findTaskById(second.getId()), "Задача не сдвинута внутри своего интервала.");
+    }
+
+    @Test
+    void shouldNotReuseIds_WhenTaskDeleted() {
+        taskManager.createTask(task);
+        taskManager.deleteTaskById(task.getId());
+        Task newTask = new Task("Task2", "Descr2", Status.NEW, null, 0);
+        taskManager.createTask(newTask);
+
+        assertEquals(2, newTask.getId(), "Номер удаленной задачи выдан повторно.");
+    }
+
+    @Test
+    void shouldContinueIdsAfterTaskWithPresetId() {
+        task.setId(10);
+        taskManager.createTask(task);
+        taskManager.createEpic(epic);
+
+        assertEquals(11, epic.getId(), "Номер пересекается с уже заданным.");
+    }
+
+    @Test
+    void shouldReleaseSubtaskTimeSlots_WhenEpicDeleted() {
+        taskManager.createEpic(epic);
+        Subtask subtask = new Subtask("Subtask1", "Descr1", Status.NEW,
+                LocalDateTime.of(2022, 7, 20, 10, 20), 30, 1);
+        taskManager.createSubtask(subtask);
+        taskManager.deleteEpicById(epic.getId());
+        taskManager.createTask(new Task("Task1", "Descr1", Status.NEW,
+                LocalDateTime.of(2022, 7, 20, 10, 20), 30));
+
+        assertEquals(1, taskManager.getPrioritizedTasks().size(), "Подзадача удаленного эпика осталась в приоритетах.");
+    }
+
+    @Test
+    void shouldReturnOverlappingTasks() {
+        taskManager.createTask(task);
+        taskManager.createTask(new Task("Task2", "Descr2", Status.NEW,
+                LocalDateTime.of(2022, 7, 10, 11, 0), 30));
+        List<Task> overlapping = taskManager.getOverlappingTasks(LocalDateTime.of(2022, 7, 10, 10, 15),
+                LocalDateTime.of(2022, 7, 10, 10, 45));
+
+        assertEquals(List.of(task), overlapping, "Неверный список пересекающихся задач.");
+    }
+
     @Test
     void shouldGetPrioritizedTasks() {
         taskManager.createTask(task);
@@ -688,4 +754,102 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(epic.getDuration(), (subtask.getDuration() + subtask2.getDuration()),
                 "Продолжительность эпика рассчитана неверно.");
     }
+
+    @Test
+    void shouldRecomputeEpicStartEndTimeAndDuration_WhenSubtaskUpdatedOrDeleted() {
+        taskManager.createEpic(epic);
+        Subtask subtask = new Subtask("Subtask1", "Descr1", Status.NEW,
+                LocalDateTime.of(2022, 7, 20, 10, 20), 30, 1);
+        taskManager.createSubtask(subtask);
+        Subtask subtask2 = new Subtask("Subtask2", "Descr2", Status.NEW,
+                LocalDateTime.of(2022, 7, 15, 15, 0), 150, 1);
+        taskManager.createSubtask(subtask2);
+
+        Subtask updatedSubtask = new Subtask("Subtask1", "Descr1", Status.DONE,
+                LocalDateTime.of(2022, 7, 25, 9, 0), 60, 1);
+        updatedSubtask.setId(subtask.getId());
+        taskManager.updateSubtask(updatedSubtask);
+        assertEquals(updatedSubtask.getEndTime(), epic.getEndTime(), "Дата завершения эпика не пересчитана.");
+        assertEquals(210, epic.getDuration(), "Продолжительность эпика не пересчитана.");
+        assertEquals(Status.IN_PROGRESS, epic.getStatus(), "Статус эпика не пересчитан.");
+
+        taskManager.deleteSubtaskById(subtask2.getId());
+        assertEquals(updatedSubtask.getStartTime(), epic.getStartTime(), "Дата старта эпика не пересчитана.");
+        assertEquals(60, epic.getDuration(), "Продолжительность эпика не пересчитана.");
+        assertEquals(Status.DONE, epic.getStatus(), "Статус эпика не пересчитан.");
+
+        taskManager.deleteSubtaskById(updatedSubtask.getId());
+        assertNull(epic.getStartTime(), "У эпика без подзадач осталась дата старта.");
+        assertEquals(0, epic.getDuration(), "У эпика без подзадач осталась продолжительность.");
+    }
+
+    @Test
+    void shouldRemoveTaskWithoutStartTimeFromPrioritizedTasks() {
+        taskManager.createTask(new Task("Task1", "Descr1", Status.NEW, null, 30));
+        taskManager.createTask(new Task("Task2", "Descr2", Status.NEW, null, 30));
+        taskManager.deleteTaskById(1);
+
+        assertEquals(1, taskManager.getPrioritizedTasks().size(), "Задача без времени не удалена из приоритетов.");
+        assertEquals(2, taskManager.getPrioritizedTasks().iterator().next().getId(), "Удалена не та задача.");
+    }
+
+    @Test
+    void shouldPageTasksByIdWithCursorAndStatus() {
+        for (int i = 0; i < 5; i++) {
+            taskManager.createTask(new Task("Task" + i, "Descr", i % 2 == 0 ? Status.NEW : Status.DONE,
+                    LocalDateTime.of(2022, 7, 10, 10, 0).minusHours(i), 30));
+        }
+
+        TaskPage<Task> first = taskManager.getTasks(TaskQuery.byId(2));
+        TaskPage<Task> second = taskManager.getTasks(TaskQuery.byId(2).after(first.getNextCursor()));
+        TaskPage<Task> last = taskManager.getTasks(TaskQuery.byId(2).after(second.getNextCursor()));
+        assertEquals(List.of(1, 2), ids(first.getItems()), "Неверная первая страница.");
+        assertEquals(List.of(3, 4), ids(second.getItems()), "Неверная вторая страница.");
+        assertEquals(List.of(5), ids(last.getItems()), "Неверная последняя страница.");
+        assertFalse(last.hasNext(), "У последней страницы есть курсор.");
+
+        TaskPage<Task> done = taskManager.getTasks(TaskQuery.byId(10).withStatus(Status.DONE));
+        assertEquals(List.of(2, 4), ids(done.getItems()), "Неверный фильтр по статусу.");
+        assertThrows(IllegalArgumentException.class,
+                () -> taskManager.getTasks(TaskQuery.byStartTime(2).after(first.getNextCursor())),
+                "Курсор принят для другого порядка обхода.");
+    }
+
+    @Test
+    void shouldPageSubtasksByStartTimeWithinEpicAndTimeWindow() {
+        taskManager.createTask(task);
+        taskManager.createEpic(epic);
+        taskManager.createEpic(epic2);
+        for (int i = 0; i < 4; i++) {
+            taskManager.createSubtask(new Subtask("Subtask" + i, "Descr", Status.NEW,
+                    LocalDateTime.of(2022, 8, 10 - i, 10, 0), 30, i % 2 == 0 ? 2 : 3));
+        }
+        taskManager.createSubtask(new Subtask("Subtask", "Descr", Status.NEW, null, 30, 2));
+
+        TaskPage<Subtask> first = taskManager.getSubtasks(TaskQuery.byStartTime(3));
+        TaskPage<Subtask> second = taskManager.getSubtasks(TaskQuery.byStartTime(3).after(first.getNextCursor()));
+        assertEquals(List.of(7, 6, 5), ids(first.getItems()), "Неверная первая страница по времени.");
+        assertEquals(List.of(4, 8), ids(second.getItems()), "Задача без времени не в конце.");
+        assertFalse(second.hasNext(), "У последней страницы есть курсор.");
+
+        TaskPage<Subtask> inEpic = taskManager.getSubtasks(TaskQuery.byStartTime(1).withEpicId(2));
+        TaskPage<Subtask> inEpicNext = taskManager.getSubtasks(
+                TaskQuery.byStartTime(1).withEpicId(2).after(inEpic.getNextCursor()));
+        assertEquals(List.of(6), ids(inEpic.getItems()), "Неверный фильтр по эпику.");
+        assertEquals(List.of(4), ids(inEpicNext.getItems()), "Неверная страница подзадач эпика.");
+
+        TaskPage<Subtask> inWindow = taskManager.getSubtasks(TaskQuery.byStartTime(10)
+                .withStartTimeBetween(LocalDateTime.of(2022, 8, 8, 0, 0), LocalDateTime.of(2022, 8, 10, 0, 0)));
+        assertEquals(List.of(6, 5), ids(inWindow.getItems()), "Неверный фильтр по времени.");
+        assertThrows(TaskManagerException.class, () -> taskManager.getTasks(TaskQuery.byId(1).withEpicId(2)),
+                "Фильтр по эпику применен к задачам.");
+    }
+
+    private List<Integer> ids(List<? extends Task> entities) {
+        List<Integer> ids = new ArrayList<>();
+        for (Task entity : entities) {
+            ids.add(entity.getId());
+        }
+        return ids;
+    }
 }
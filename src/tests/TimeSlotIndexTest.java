@@ -0,0 +1,86 @@
+package tests;
+
+import exceptions.TaskTimeValidationException;
+import manager.TimeSlotIndex;
+import manager.TreeTimeSlotIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tasks.Status;
+import tasks.Task;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeSlotIndexTest {
+
+    private TimeSlotIndex timeSlotIndex;
+    private Task task;
+    private Task task2;
+
+    @BeforeEach
+    public void beforeEach() {
+        timeSlotIndex = new TreeTimeSlotIndex();
+        task = new Task("Task1", "Descr1", Status.NEW,
+                LocalDateTime.of(2022, 12, 10, 10, 0), 60);
+        task.setId(1);
+        task2 = new Task("Task2", "Descr2", Status.NEW,
+                LocalDateTime.of(2022, 12, 10, 12, 0), 30);
+        task2.setId(2);
+        timeSlotIndex.add(task);
+        timeSlotIndex.add(task2);
+    }
+
+    @Test
+    void shouldFindOverlapWithPreviousAndNextSlot() {
+        assertTrue(timeSlotIndex.overlaps(LocalDateTime.of(2022, 12, 10, 10, 30),
+                LocalDateTime.of(2022, 12, 10, 11, 30)), "Не найдено пересечение с предыдущей задачей.");
+        assertTrue(timeSlotIndex.overlaps(LocalDateTime.of(2022, 12, 10, 11, 30),
+                LocalDateTime.of(2022, 12, 10, 12, 15)), "Не найдено пересечение со следующей задачей.");
+        assertTrue(timeSlotIndex.overlaps(LocalDateTime.of(2022, 12, 10, 10, 0),
+                LocalDateTime.of(2022, 12, 10, 10, 0)), "Не найдено пересечение по времени старта.");
+    }
+
+    @Test
+    void shouldNotFindOverlapWithAdjacentSlots() {
+        assertFalse(timeSlotIndex.overlaps(LocalDateTime.of(2022, 12, 10, 11, 0),
+                LocalDateTime.of(2022, 12, 10, 12, 0)), "Смежные интервалы не должны пересекаться.");
+        assertFalse(timeSlotIndex.overlaps(LocalDateTime.of(2022, 12, 10, 12, 30),
+                LocalDateTime.of(2022, 12, 10, 12, 30)), "Задача без длительности после интервала.");
+    }
+
+    @Test
+    void shouldReturnOverlappingTasks() {
+        List<Task> overlapping = timeSlotIndex.getOverlapping(LocalDateTime.of(2022, 12, 10, 10, 30),
+                LocalDateTime.of(2022, 12, 10, 12, 1));
+        assertEquals(List.of(task, task2), overlapping, "Неверный список пересекающихся задач.");
+    }
+
+    @Test
+    void shouldReleaseSlotOnRemove() {
+        timeSlotIndex.remove(task);
+        assertFalse(timeSlotIndex.overlaps(LocalDateTime.of(2022, 12, 10, 10, 0),
+                LocalDateTime.of(2022, 12, 10, 11, 0)), "Интервал не освобожден.");
+        assertTrue(timeSlotIndex.overlaps(LocalDateTime.of(2022, 12, 10, 12, 0),
+                LocalDateTime.of(2022, 12, 10, 12, 10)), "Удален чужой интервал.");
+    }
+
+    @Test
+    void shouldRejectOverlappingSlotsInBulkAdd() {
+        TimeSlotIndex bulkIndex = new TreeTimeSlotIndex();
+        Task sameStart = new Task("Task3", "Descr3", Status.NEW, LocalDateTime.of(2022, 12, 10, 10, 0), 15);
+        sameStart.setId(3);
+        assertThrows(TaskTimeValidationException.class, () -> bulkIndex.addAll(List.of(task, sameStart)),
+                "Задачи с одинаковым началом загружены в индекс.");
+        assertFalse(bulkIndex.overlaps(LocalDateTime.of(2022, 12, 10, 10, 0),
+                LocalDateTime.of(2022, 12, 10, 11, 0)), "Индекс изменен при ошибке загрузки.");
+
+        Task inside = new Task("Task4", "Descr4", Status.NEW, LocalDateTime.of(2022, 12, 10, 10, 30), 15);
+        inside.setId(4);
+        assertThrows(TaskTimeValidationException.class, () -> timeSlotIndex.addAll(List.of(inside)),
+                "Пересекающаяся задача добавлена в индекс.");
+        assertEquals(List.of(task), timeSlotIndex.getOverlapping(LocalDateTime.of(2022, 12, 10, 10, 30),
+                LocalDateTime.of(2022, 12, 10, 10, 45)), "Интервал задачи перезаписан.");
+    }
+}